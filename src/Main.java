@@ -1,48 +1,121 @@
+import scanner.IScanner;
 import scanner.Scanner;
+import scanner.StreamScanner;
 import parser.Parser;
+import parser.Recognizer;
+import scanner.DfaScanner;
+import scanner.LexicalException;
+import token.Span;
+import ast.AstCache;
+import ast.NodeDecSt;
 import ast.NodeProgram;
 import visitor.TypeCheckingVisitor;
 import visitor.CodeGeneration; 
 import visitor.TypeDescriptor;
-import visitor.TipoTD;
+import visitor.TypeCheckingCodeGeneration;
 import symbolTable.SymbolTable;
+import compiler.StreamingCompiler;
 
+import java.io.BufferedWriter;
 import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.io.PrintWriter; 
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
 
 public class Main {
+    /**
+     * Uso interattivo: {@code java Main} chiede sorgente e file di output.
+     * Uso da riga di comando: {@code java Main <sorgente> <output>}, dove il sorgente
+     * {@code -} indica lo standard input (es. {@code generatore | java Main - out.dc}).
+     * Con {@code java Main --stream <sorgente> <output>} il programma viene compilato
+     * uno statement alla volta, senza costruire l'AST completo (vedi {@link StreamingCompiler}).
+     * Con {@code java Main --dump-ast <sorgente> <cache>} l'AST viene solo salvato in formato binario;
+     * con {@code java Main --load-ast <cache> <output>} viene ricaricato al posto di analisi lessicale
+     * e sintattica (vedi {@link AstCache}).
+     * Con {@code java Main --check <sorgente>...} i sorgenti vengono solo validati
+     * sintatticamente, senza costruire l'AST (vedi {@link Recognizer}).
+     * Con {@code java Main --single-pass <sorgente> <output>} controllo dei tipi e generazione
+     * del codice avvengono in una sola visita dell'AST (vedi {@link TypeCheckingCodeGeneration}).
+     */
     public static void main(String[] args) {
-        java.util.Scanner tastiera = new java.util.Scanner(System.in);
+        if (args.length > 1 && args[0].equals("--check")) {
+            boolean corretti = true;
+            for (int i = 1; i < args.length; i++)
+                corretti &= verifica(args[i]);
+            System.exit(corretti ? 0 : 1);
+        }
+        if (args.length == 3 && args[0].equals("--stream")) {
+            compilaInStreaming(args[1], args[2]);
+            return;
+        }
+        if (args.length == 3 && args[0].equals("--single-pass")) {
+            compilaInUnaPassata(args[1], args[2]);
+            return;
+        }
+        if (args.length == 3 && args[0].equals("--dump-ast")) {
+            salvaAst(args[1], args[2]);
+            return;
+        }
+        boolean daCache = args.length == 3 && args[0].equals("--load-ast");
+        java.util.Scanner tastiera = null;
+        String filePath;
+        String outputFileName;
 
         System.out.println("--- Compilatore AC to DC ---");
-        System.out.print("Inserisci il percorso del file sorgente: ");
-        String filePath = "input ac/"+tastiera.nextLine();
+        if (args.length == 2) {
+            filePath = args[0];
+            outputFileName = args[1];
+        } else if (daCache) {
+            filePath = args[1];
+            outputFileName = args[2];
+        } else {
+            tastiera = new java.util.Scanner(System.in);
+            System.out.print("Inserisci il percorso del file sorgente: ");
+            filePath = "input ac/"+tastiera.nextLine();
 
-        System.out.print("Inserisci il nome del file di output (es. out.dc): ");
-        String outputFileName = tastiera.nextLine();
+            System.out.print("Inserisci il nome del file di output (es. out.dc): ");
+            outputFileName = tastiera.nextLine();
+        }
 
         try {
             System.out.println("\n--- Inizio Compilazione ---");
-            //inizializzo la Symbol Table
-            SymbolTable.init();
+            //tabella dei simboli di questa compilazione
+            SymbolTable simboli = new SymbolTable();
 
-            // Analisi Lessicale 
-            Scanner sc = new Scanner(filePath);
-            
-            // Analisi Sintattica
-            Parser p = new Parser(sc);
-            NodeProgram nP = p.parse(); 
+            NodeProgram nP;
+            if (daCache) {
+                // AST gia' analizzato, ricaricato dalla cache binaria
+                nP = AstCache.carica(filePath);
+            } else {
+                // Analisi Lessicale (da file, o dallo standard input senza file temporanei)
+                IScanner sc = filePath.equals("-") ? new StreamScanner(System.in) : new Scanner(filePath);
 
-            // Analisi Semantica
-            TypeDescriptor td = new TypeDescriptor(TipoTD.OK);
-            TypeCheckingVisitor tcVisit = new TypeCheckingVisitor(td);
-            nP.accept(tcVisit);
+                // Analisi Sintattica
+                Parser p = new Parser(sc);
+                nP = p.parse();
+            }
 
-            if (td.isError()) {
-                System.err.println("Errore Semantico rilevato: " + td.getmsg());
+            // Analisi Semantica: come nel CompilerContext si raccolgono gli errori di ogni statement
+            TypeCheckingVisitor tcVisit = new TypeCheckingVisitor(TypeDescriptor.OK, simboli);
+            List<String> errori = new ArrayList<>();
+            for (NodeDecSt ds : nP.getDecSts()) {
+                ds.accept(tcVisit);
+                TypeDescriptor td = tcVisit.getResType();
+                if (td.isError()) {
+                    errori.add(td.getmsg());
+                }
+            }
+
+            if (!errori.isEmpty()) {
+                for (String errore : errori)
+                    System.err.println("Errore Semantico rilevato: " + errore);
             } else {
                 // Generazione Codice
-                CodeGeneration cgVisit = new CodeGeneration();
+                CodeGeneration cgVisit = new CodeGeneration(new StringBuilder(), simboli);
                 nP.accept(cgVisit);
 
                 // Scrittura su file del codice generato
@@ -57,16 +130,129 @@ public class Main {
                 }
                 
                 System.out.println("SYMBOL TABLE:");
-                System.out.println(symbolTable.SymbolTable.toStr());
+                System.out.println(simboli);
+            }
+
+        } catch (FileNotFoundException e) {
+            System.err.println("Errore: File non trovato - " + e.getMessage());
+        } catch (Exception e) {
+            System.err.println("Errore critico: " + e.getMessage());
+            e.printStackTrace();
+        } finally {
+            if (tastiera != null)
+                tastiera.close();
+        }
+    }
+
+    /**
+     * Controlla la sintassi di un sorgente e stampa l'esito.
+     * @param filePath il sorgente
+     * @return {@code true} se il sorgente e' sintatticamente corretto
+     */
+    private static boolean verifica(String filePath) {
+        try {
+            Recognizer r = new Recognizer(new DfaScanner(filePath).lexAll());
+            if (r.recognize()) {
+                System.out.println(filePath + ": ok");
+                return true;
+            }
+            long span = r.getSpan();
+            String posizione = span == Span.NESSUNO ? "" : Span.riga(span) + ":" + Span.colonna(span) + ": ";
+            System.err.println(filePath + ": " + posizione + r.getErrore());
+        } catch (LexicalException e) {
+            System.err.println(filePath + ": " + e.getMessage());
+        } catch (Exception e) {
+            System.err.println(filePath + ": Errore critico: " + e.getMessage());
+        }
+        return false;
+    }
+
+    /**
+     * Esegue analisi lessicale e sintattica e salva l'AST nella cache binaria.
+     * @param filePath il sorgente, {@code -} per lo standard input
+     * @param cacheFileName il file in cui salvare l'AST
+     */
+    private static void salvaAst(String filePath, String cacheFileName) {
+        try {
+            IScanner sc = filePath.equals("-") ? new StreamScanner(System.in) : new Scanner(filePath);
+            NodeProgram nP = new Parser(sc).parse();
+            AstCache.salva(nP, cacheFileName);
+            System.out.println("AST di " + nP.getDecSts().size() + " statement salvato in: " + cacheFileName);
+        } catch (FileNotFoundException e) {
+            System.err.println("Errore: File non trovato - " + e.getMessage());
+        } catch (Exception e) {
+            System.err.println("Errore critico: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Costruisce l'AST e lo compila con una sola visita; il file di output viene scritto
+     * solo se il programma non contiene errori.
+     * @param filePath il sorgente, {@code -} per lo standard input
+     * @param outputFileName il file in cui scrivere il codice dc
+     */
+    private static void compilaInUnaPassata(String filePath, String outputFileName) {
+        try {
+            IScanner sc = filePath.equals("-") ? new StreamScanner(System.in) : new Scanner(filePath);
+            NodeProgram nP = new Parser(sc).parse();
+            TypeCheckingCodeGeneration compilatore = new TypeCheckingCodeGeneration();
+            nP.accept(compilatore);
+            if (compilatore.getErrori().isEmpty()) {
+                try (PrintWriter writer = new PrintWriter(outputFileName)) {
+                    writer.print(compilatore.getCodice());
+                }
+                System.out.println("Successo! " + nP.getDecSts().size() + " statement compilati in: " + outputFileName);
+            } else {
+                for (String errore : compilatore.getErrori())
+                    System.err.println("Errore Semantico rilevato: " + errore);
             }
+        } catch (FileNotFoundException e) {
+            System.err.println("Errore: File non trovato - " + e.getMessage());
+        } catch (Exception e) {
+            System.err.println("Errore critico: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
 
+    /**
+     * Compila il sorgente uno statement alla volta scrivendo il codice dc direttamente su un file
+     * temporaneo accanto al file di output, che lo sostituisce solo se la compilazione riesce:
+     * come negli altri modi, un errore non lascia un file di output vuoto o troncato.
+     * @param filePath il sorgente, {@code -} per lo standard input
+     * @param outputFileName il file in cui scrivere il codice dc
+     */
+    private static void compilaInStreaming(String filePath, String outputFileName) {
+        Path temporaneo = null;
+        try {
+            IScanner sc = filePath.equals("-") ? new StreamScanner(System.in) : new Scanner(filePath);
+            Path output = Path.of(outputFileName).toAbsolutePath();
+            temporaneo = Files.createTempFile(output.getParent(), output.getFileName().toString(), ".tmp");
+            StreamingCompiler compilatore;
+            boolean corretto;
+            try (BufferedWriter out = Files.newBufferedWriter(temporaneo)) {
+                compilatore = new StreamingCompiler(out);
+                corretto = compilatore.compile(sc);
+            }
+            if (corretto) {
+                Files.move(temporaneo, output, StandardCopyOption.REPLACE_EXISTING);
+                System.out.println("Successo! " + compilatore.getStatement() + " statement compilati in: " + outputFileName);
+            } else {
+                for (String errore : compilatore.getErrori())
+                    System.err.println("Errore Semantico rilevato: " + errore);
+            }
         } catch (FileNotFoundException e) {
             System.err.println("Errore: File non trovato - " + e.getMessage());
         } catch (Exception e) {
             System.err.println("Errore critico: " + e.getMessage());
             e.printStackTrace();
         } finally {
-            tastiera.close();
+            try {
+                if (temporaneo != null)
+                    Files.deleteIfExists(temporaneo);
+            } catch (IOException e) {
+                System.err.println("Errore: impossibile eliminare " + temporaneo + " - " + e.getMessage());
+            }
         }
     }
 }
\ No newline at end of file
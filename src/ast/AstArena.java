@@ -0,0 +1,407 @@
+package ast;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+/**
+ * Rappresentazione compatta dell'AST: tutti i nodi di un programma in un'unica arena
+ * di array primitivi, invece di un oggetto per nodo.
+ *
+ * <p>Il nodo {@code i} ha un genere ({@link #kind(int)}) e fino a tre operandi interi,
+ * il cui significato dipende dal genere:</p>
+ * <ul>
+ * <li>{@link #COST_INT}, {@link #COST_FLOAT}: indice del letterale nella tabella dei letterali;</li>
+ * <li>{@link #DEREF}: simbolo della variabile letta;</li>
+ * <li>{@link #BINOP}: operatore, figlio sinistro, figlio destro;</li>
+ * <li>{@link #DECL}: simbolo dichiarato, tipo, inizializzazione (-1 se assente);</li>
+ * <li>{@link #ASSIGN}: simbolo assegnato, espressione;</li>
+ * <li>{@link #PRINT}: simbolo stampato.</li>
+ * </ul>
+ * Ogni nodo ha inoltre la sua posizione nel sorgente ({@link #span(int)}); una dichiarazione
+ * e una stampa anche quella del proprio identificatore ({@link #spanId(int)}).
+ *
+ * <p>I figli vengono sempre aggiunti prima dei genitori (ordine posticipato) e gli
+ * statement nell'ordine del sorgente: i nodi di uno statement occupano un intervallo
+ * contiguo che termina con la sua radice. Le passate ({@link visitor.ArenaTypeChecking},
+ * {@link visitor.ArenaCodeGeneration}) possono quindi scorrere l'arena per indice, in
+ * modo lineare, senza ricorsione. Nomi e lessemi sono memorizzati una sola volta in
+ * tabelle a parte: i simboli sono numerati nell'ordine in cui i nomi compaiono.</p>
+ */
+public class AstArena {
+	/** Generi dei nodi. */
+	public static final byte COST_INT = 0, COST_FLOAT = 1, DEREF = 2, BINOP = 3, DECL = 4, ASSIGN = 5, PRINT = 6;
+
+	private static final LangOper[] OPERATORI = LangOper.values();
+	private static final LangType[] TIPI = LangType.values();
+
+	private byte[] kind = new byte[64];
+	private int[] a = new int[64];
+	private int[] b = new int[64];
+	private int[] c = new int[64];
+	private long[] span = new long[64];
+	/** Posizione dell'identificatore dei nodi DECL e PRINT. */
+	private long[] spanId = new long[64];
+	private int size;
+
+	private int[] statement = new int[16];
+	private int nStatement;
+
+	private final ArrayList<String> nomi = new ArrayList<>();
+	private final HashMap<String, Integer> simboli = new HashMap<>();
+
+	private final ArrayList<String> lessemi = new ArrayList<>();
+	private final HashMap<String, Integer> letterali = new HashMap<>();
+	private long[] numeri = new long[16];
+	private byte[] scale = new byte[16];
+
+	private int nodo(byte k, int x, int y, int z) {
+		if (size == kind.length) {
+			int cap = size * 2;
+			kind = Arrays.copyOf(kind, cap);
+			a = Arrays.copyOf(a, cap);
+			b = Arrays.copyOf(b, cap);
+			c = Arrays.copyOf(c, cap);
+			span = Arrays.copyOf(span, cap);
+			spanId = Arrays.copyOf(spanId, cap);
+		}
+		kind[size] = k;
+		a[size] = x;
+		b[size] = y;
+		c[size] = z;
+		return size++;
+	}
+
+	private int radice(int nodo) {
+		if (nStatement == statement.length)
+			statement = Arrays.copyOf(statement, nStatement * 2);
+		statement[nStatement++] = nodo;
+		return nodo;
+	}
+
+	/**
+	 * Restituisce il simbolo associato a un nome, creandolo se il nome e' nuovo.
+	 *
+	 * @param nome il nome della variabile
+	 * @return il numero del simbolo
+	 */
+	public int simbolo(String nome) {
+		Integer s = simboli.get(nome);
+		if (s == null) {
+			s = nomi.size();
+			nomi.add(nome);
+			simboli.put(nome, s);
+		}
+		return s;
+	}
+
+	private int letterale(String lessema, long numero, int scala) {
+		Integer l = letterali.get(lessema);
+		if (l == null) {
+			l = lessemi.size();
+			if (l == numeri.length) {
+				numeri = Arrays.copyOf(numeri, l * 2);
+				scale = Arrays.copyOf(scale, l * 2);
+			}
+			lessemi.add(lessema);
+			numeri[l] = numero;
+			scale[l] = (byte) scala;
+			letterali.put(lessema, l);
+		}
+		return l;
+	}
+
+	/**
+	 * Aggiunge una costante.
+	 *
+	 * @param lessema il lessema della costante
+	 * @param tipo il tipo della costante
+	 * @param numero il valore non scalato (vedi {@link NodeCost#getNumero()})
+	 * @param scala il numero di cifre decimali
+	 * @return l'indice del nodo
+	 */
+	public int costante(String lessema, LangType tipo, long numero, int scala) {
+		return nodo(tipo == LangType.INT ? COST_INT : COST_FLOAT, letterale(lessema, numero, scala), 0, 0);
+	}
+
+	/**
+	 * Aggiunge la lettura di una variabile.
+	 *
+	 * @param nome il nome della variabile
+	 * @return l'indice del nodo
+	 */
+	public int deref(String nome) {
+		return nodo(DEREF, simbolo(nome), 0, 0);
+	}
+
+	/**
+	 * Aggiunge un'operazione binaria; i figli devono essere gia' nell'arena.
+	 *
+	 * @param op l'operatore
+	 * @param sinistro indice del figlio sinistro
+	 * @param destro indice del figlio destro
+	 * @return l'indice del nodo
+	 */
+	public int binOp(LangOper op, int sinistro, int destro) {
+		return nodo(BINOP, op.ordinal(), sinistro, destro);
+	}
+
+	/**
+	 * Aggiunge uno statement di dichiarazione.
+	 *
+	 * @param tipo il tipo dichiarato
+	 * @param nome il nome della variabile
+	 * @param init indice dell'espressione di inizializzazione, -1 se assente
+	 * @return l'indice del nodo
+	 */
+	public int decl(LangType tipo, String nome, int init) {
+		return radice(nodo(DECL, simbolo(nome), tipo.ordinal(), init));
+	}
+
+	/**
+	 * Aggiunge uno statement di assegnamento.
+	 *
+	 * @param nome il nome della variabile assegnata
+	 * @param espressione indice dell'espressione
+	 * @return l'indice del nodo
+	 */
+	public int assign(String nome, int espressione) {
+		return radice(nodo(ASSIGN, simbolo(nome), espressione, 0));
+	}
+
+	/**
+	 * Aggiunge uno statement di stampa.
+	 *
+	 * @param nome il nome della variabile stampata
+	 * @return l'indice del nodo
+	 */
+	public int print(String nome) {
+		return radice(nodo(PRINT, simbolo(nome), 0, 0));
+	}
+
+	/** @return il numero di nodi */
+	public int size() {
+		return size;
+	}
+
+	public byte kind(int i) {
+		return kind[i];
+	}
+
+	/** @return il simbolo di un nodo DEREF, DECL, ASSIGN o PRINT */
+	public int simboloDi(int i) {
+		return a[i];
+	}
+
+	/** @return l'indice nella tabella dei letterali di un nodo COST_INT o COST_FLOAT */
+	public int letteraleDi(int i) {
+		return a[i];
+	}
+
+	/** @return l'operatore di un nodo BINOP */
+	public LangOper op(int i) {
+		return OPERATORI[a[i]];
+	}
+
+	/**
+	 * Cambia l'operatore di un nodo BINOP (specializzazione di DIVIDE in DIV_FLOAT).
+	 *
+	 * @param i indice del nodo
+	 * @param op il nuovo operatore
+	 */
+	public void setOp(int i, LangOper op) {
+		a[i] = op.ordinal();
+	}
+
+	/** @return il figlio sinistro di un nodo BINOP */
+	public int sinistro(int i) {
+		return b[i];
+	}
+
+	/** @return il figlio destro di un nodo BINOP */
+	public int destro(int i) {
+		return c[i];
+	}
+
+	/** @return il tipo dichiarato da un nodo DECL */
+	public LangType tipoDichiarato(int i) {
+		return TIPI[b[i]];
+	}
+
+	/** @return l'inizializzazione di un nodo DECL, -1 se assente */
+	public int init(int i) {
+		return c[i];
+	}
+
+	/** @return l'espressione di un nodo ASSIGN */
+	public int espressione(int i) {
+		return b[i];
+	}
+
+	/** @return la posizione del nodo nel sorgente (vedi {@link token.Span}) */
+	public long span(int i) {
+		return span[i];
+	}
+
+	public void setSpan(int i, long span) {
+		this.span[i] = span;
+	}
+
+	/** @return la posizione dell'identificatore di un nodo DECL o PRINT */
+	public long spanId(int i) {
+		return spanId[i];
+	}
+
+	/**
+	 * @param i indice di un nodo DECL o PRINT
+	 * @param span la posizione del suo identificatore
+	 */
+	public void setSpanId(int i, long span) {
+		spanId[i] = span;
+	}
+
+	/** @return il numero di statement */
+	public int statementCount() {
+		return nStatement;
+	}
+
+	/**
+	 * @param k posizione dello statement nel programma
+	 * @return l'indice del nodo radice dello statement
+	 */
+	public int statement(int k) {
+		return statement[k];
+	}
+
+	/**
+	 * @param k posizione dello statement nel programma
+	 * @return l'indice del primo nodo dello statement (l'intervallo termina con la radice)
+	 */
+	public int inizioStatement(int k) {
+		return k == 0 ? 0 : statement[k - 1] + 1;
+	}
+
+	/** @return il numero di simboli distinti */
+	public int simboli() {
+		return nomi.size();
+	}
+
+	/** @return il numero di letterali distinti */
+	public int letterali() {
+		return lessemi.size();
+	}
+
+	public String nome(int simbolo) {
+		return nomi.get(simbolo);
+	}
+
+	public String lessema(int letterale) {
+		return lessemi.get(letterale);
+	}
+
+	public long numero(int letterale) {
+		return numeri[letterale];
+	}
+
+	public int scala(int letterale) {
+		return scale[letterale];
+	}
+
+	/**
+	 * Costruisce l'arena equivalente a un AST a oggetti. Le espressioni sono
+	 * visitate con una pila esplicita, quindi la profondita' non e' limitata dallo stack.
+	 *
+	 * @param program il programma da convertire
+	 * @return l'arena con gli stessi statement, nello stesso ordine
+	 */
+	public static AstArena from(NodeProgram program) {
+		AstArena arena = new AstArena();
+		for (NodeDecSt ds : program.getDecSts()) {
+			int radice;
+			if (ds instanceof NodeDecl d) {
+				int init = d.getInit() != null ? arena.espressione(d.getInit()) : -1;
+				radice = arena.decl(d.getType(), d.getId().getName(), init);
+				arena.setSpanId(radice, d.getId().getSpan());
+			} else if (ds instanceof NodeAssign as) {
+				radice = arena.assign(as.getId().getName(), arena.espressione(as.getExpr()));
+			} else {
+				NodePrint p = (NodePrint) ds;
+				radice = arena.print(p.getId().getName());
+				arena.setSpanId(radice, p.getId().getSpan());
+			}
+			arena.setSpan(radice, ds.getSpan());
+		}
+		return arena;
+	}
+
+	/** Segnaposto sulla pila: i due figli dell'operazione sono gia' nell'arena. */
+	private record Chiudi(NodeBinOp op) {
+	}
+
+	private int espressione(NodeExpr radice) {
+		ArrayDeque<Object> pila = new ArrayDeque<>();
+		int[] valori = new int[16];
+		int n = 0;
+		pila.push(radice);
+		while (!pila.isEmpty()) {
+			Object o = pila.pop();
+			int nodo;
+			if (o instanceof NodeBinOp op) {
+				pila.push(new Chiudi(op));
+				pila.push(op.getRight());
+				pila.push(op.getLeft());
+				continue;
+			} else if (o instanceof Chiudi ch) {
+				int destro = valori[--n];
+				int sinistro = valori[--n];
+				nodo = binOp(ch.op().getOp(), sinistro, destro);
+				span[nodo] = ch.op().getSpan();
+			} else if (o instanceof NodeCost cost) {
+				nodo = costante(cost.getValue(), cost.getType(), cost.getNumero(), cost.getScala());
+				span[nodo] = cost.getSpan();
+			} else {
+				NodeDeref deref = (NodeDeref) o;
+				nodo = deref(deref.getId().getName());
+				span[nodo] = deref.getSpan();
+			}
+			if (n == valori.length)
+				valori = Arrays.copyOf(valori, n * 2);
+			valori[n++] = nodo;
+		}
+		return valori[0];
+	}
+
+	/**
+	 * Ricostruisce l'AST a oggetti, cosi' che le passate basate su {@link visitor.IVisitor}
+	 * possano lavorare sull'arena. Ogni {@link NodeId} porta come numero il simbolo dell'arena.
+	 * Poiche' i figli precedono i genitori, i nodi sono creati con una sola scansione.
+	 *
+	 * @return il programma equivalente
+	 */
+	public NodeProgram toProgram() {
+		NodeExpr[] espressioni = new NodeExpr[size];
+		ArrayList<NodeDecSt> decSts = new ArrayList<>(nStatement);
+		for (int i = 0; i < size; i++) {
+			NodeAST nodo = switch (kind[i]) {
+			case COST_INT, COST_FLOAT -> espressioni[i] = new NodeCost(lessema(a[i]),
+					kind[i] == COST_INT ? LangType.INT : LangType.FLOAT, numeri[a[i]], scale[a[i]]);
+			case DEREF -> espressioni[i] = new NodeDeref(id(i, span[i]));
+			case BINOP -> espressioni[i] = new NodeBinOp(op(i), espressioni[b[i]], espressioni[c[i]]);
+			case DECL -> new NodeDecl(tipoDichiarato(i), id(i, spanId[i]), c[i] >= 0 ? espressioni[c[i]] : null);
+			case ASSIGN -> new NodeAssign(id(i, span[i]), espressioni[b[i]]);
+			case PRINT -> new NodePrint(id(i, spanId[i]));
+			default -> throw new IllegalStateException("Nodo sconosciuto: " + kind[i]);
+			};
+			nodo.setSpan(span[i]);
+			if (nodo instanceof NodeDecSt ds)
+				decSts.add(ds);
+		}
+		return new NodeProgram(decSts);
+	}
+
+	private NodeId id(int i, long span) {
+		NodeId id = new NodeId(nome(a[i]), a[i]);
+		id.setSpan(span);
+		return id;
+	}
+}
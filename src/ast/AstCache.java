@@ -0,0 +1,343 @@
+package ast;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import token.Span;
+/**
+ * Formato binario compatto per salvare un {@link NodeProgram} e ricaricarlo senza rifare
+ * analisi lessicale e sintattica.
+ *
+ * <p>Il programma viene prima portato nella forma di {@link AstArena}, poi scritto cosi':</p>
+ * <pre>
+ * intestazione: "ACAS" | versione (1 byte) | CRC32 del contenuto (4 byte) | lunghezza del contenuto (4 byte)
+ * contenuto:    nomi       (numero, poi lunghezza e byte UTF-8 di ogni nome)
+ *               letterali  (numero, poi lessema in UTF-8, valore non scalato + 1 e scala di ognuno)
+ *               nodi       (numero di nodi e di statement, poi ogni nodo in ordine posticipato)
+ * </pre>
+ * <p>I nodi sono in notazione polacca inversa: un'operazione non memorizza i figli, che sono
+ * gli ultimi due valori prodotti, e un assegnamento o una dichiarazione inizializzata prende
+ * l'ultimo valore. Per ogni nodo si scrivono il genere, la posizione (offset e riga come differenza
+ * da quelli del nodo precedente, poi la colonna) e gli operandi propri (simbolo, letterale, operatore, tipo; per
+ * una DECL e un PRINT anche la posizione dell'identificatore). Gli interi sono codificati a lunghezza
+ * variabile (7 bit per byte), quindi sia la scrittura sia la lettura
+ * sono una scansione lineare senza ricorsione.</p>
+ *
+ * <p>Gli errori di formato (intestazione, versione, checksum) sono segnalati con {@link IOException}.</p>
+ */
+public final class AstCache {
+	/** Versione del formato: va incrementata a ogni modifica incompatibile. */
+	public static final int VERSIONE = 2;
+
+	private static final byte[] MAGIA = { 'A', 'C', 'A', 'S' };
+	private static final int INTESTAZIONE = MAGIA.length + 1 + 4 + 4;
+	private static final LangOper[] OPERATORI = LangOper.values();
+	private static final LangType[] TIPI = LangType.values();
+
+	private AstCache() {
+	}
+
+	/**
+	 * Salva il programma in un file.
+	 *
+	 * @param program il programma da salvare
+	 * @param fileName il file da scrivere
+	 * @throws IOException in caso di errore di scrittura
+	 */
+	public static void salva(NodeProgram program, String fileName) throws IOException {
+		Files.write(Path.of(fileName), serializza(program));
+	}
+
+	/**
+	 * Scrive il programma su uno stream.
+	 *
+	 * @param program il programma da salvare
+	 * @param out lo stream di destinazione
+	 * @throws IOException in caso di errore di scrittura
+	 */
+	public static void salva(NodeProgram program, OutputStream out) throws IOException {
+		out.write(serializza(program));
+	}
+
+	/**
+	 * Ricarica un programma salvato con {@link #salva(NodeProgram, String)}.
+	 *
+	 * @param fileName il file da leggere
+	 * @return il programma, con nomi, valori dei letterali e posizioni originali
+	 * @throws IOException se il file non e' leggibile o non e' una cache valida
+	 */
+	public static NodeProgram carica(String fileName) throws IOException {
+		return deserializza(Files.readAllBytes(Path.of(fileName)));
+	}
+
+	/**
+	 * @param in lo stream da leggere fino in fondo
+	 * @return il programma salvato
+	 * @throws IOException se lo stream non contiene una cache valida
+	 */
+	public static NodeProgram carica(InputStream in) throws IOException {
+		return deserializza(in.readAllBytes());
+	}
+
+	/**
+	 * @param program il programma da codificare
+	 * @return la codifica binaria, intestazione compresa
+	 */
+	public static byte[] serializza(NodeProgram program) {
+		AstArena arena = AstArena.from(program);
+		Scrittore w = new Scrittore();
+		w.buf = new byte[INTESTAZIONE + arena.size() * 4 + 64];
+		w.pos = INTESTAZIONE;
+
+		w.intero(arena.simboli());
+		for (int s = 0; s < arena.simboli(); s++)
+			w.stringa(arena.nome(s));
+		w.intero(arena.letterali());
+		for (int l = 0; l < arena.letterali(); l++) {
+			w.stringa(arena.lessema(l));
+			w.lungo(arena.numero(l) + 1);
+			w.intero(arena.scala(l));
+		}
+
+		w.intero(arena.size());
+		w.intero(arena.statementCount());
+		long span = 0;
+		for (int i = 0; i < arena.size(); i++) {
+			byte k = arena.kind(i);
+			w.byte_(k);
+			scriviSpan(w, arena.span(i), span);
+			span = arena.span(i);
+			switch (k) {
+			case AstArena.COST_INT, AstArena.COST_FLOAT -> w.intero(arena.letteraleDi(i));
+			case AstArena.DEREF, AstArena.ASSIGN -> w.intero(arena.simboloDi(i));
+			case AstArena.BINOP -> w.byte_(arena.op(i).ordinal());
+			case AstArena.DECL -> {
+				w.intero(arena.simboloDi(i));
+				w.byte_(arena.tipoDichiarato(i).ordinal() << 1 | (arena.init(i) >= 0 ? 1 : 0));
+				scriviSpan(w, arena.spanId(i), span);
+			}
+			default -> {
+				w.intero(arena.simboloDi(i));
+				scriviSpan(w, arena.spanId(i), span);
+			}
+			}
+		}
+
+		byte[] b = Arrays.copyOf(w.buf, w.pos);
+		CRC32 crc = new CRC32();
+		crc.update(b, INTESTAZIONE, b.length - INTESTAZIONE);
+		System.arraycopy(MAGIA, 0, b, 0, MAGIA.length);
+		b[MAGIA.length] = VERSIONE;
+		scriviInt(b, MAGIA.length + 1, (int) crc.getValue());
+		scriviInt(b, MAGIA.length + 5, b.length - INTESTAZIONE);
+		return b;
+	}
+
+	/**
+	 * @param b una codifica prodotta da {@link #serializza(NodeProgram)}
+	 * @return il programma ricostruito
+	 * @throws IOException se intestazione, versione, lunghezza o checksum non sono validi
+	 */
+	public static NodeProgram deserializza(byte[] b) throws IOException {
+		if (b.length < INTESTAZIONE || !Arrays.equals(b, 0, MAGIA.length, MAGIA, 0, MAGIA.length)) {
+			throw new IOException("Il file non e' una cache dell'AST");
+		}
+		if (b[MAGIA.length] != VERSIONE) {
+			throw new IOException("Versione della cache dell'AST non supportata: " + b[MAGIA.length]);
+		}
+		if (leggiInt(b, MAGIA.length + 5) != b.length - INTESTAZIONE) {
+			throw new IOException("Cache dell'AST troncata");
+		}
+		CRC32 crc = new CRC32();
+		crc.update(b, INTESTAZIONE, b.length - INTESTAZIONE);
+		if ((int) crc.getValue() != leggiInt(b, MAGIA.length + 1)) {
+			throw new IOException("Cache dell'AST corrotta: checksum errato");
+		}
+		try {
+			return decodifica(new Lettore(b, INTESTAZIONE));
+		} catch (RuntimeException e) {
+			// il checksum e' corretto ma il contenuto no: file scritto da un'altra implementazione
+			throw new IOException("Cache dell'AST non valida", e);
+		}
+	}
+
+	private static NodeProgram decodifica(Lettore r) {
+		String[] nomi = new String[r.intero()];
+		for (int s = 0; s < nomi.length; s++)
+			nomi[s] = r.stringa();
+		int letterali = r.intero();
+		String[] lessemi = new String[letterali];
+		long[] numeri = new long[letterali];
+		int[] scale = new int[letterali];
+		for (int l = 0; l < letterali; l++) {
+			lessemi[l] = r.stringa();
+			numeri[l] = r.lungo() - 1;
+			scale[l] = r.intero();
+		}
+
+		int nodi = r.intero();
+		ArrayList<NodeDecSt> decSts = new ArrayList<>(r.intero());
+		NodeExpr[] pila = new NodeExpr[16];
+		int n = 0;
+		long span = 0;
+		for (int i = 0; i < nodi; i++) {
+			byte k = r.byte_();
+			span = leggiSpan(r, span);
+			NodeAST nodo;
+			switch (k) {
+			case AstArena.COST_INT, AstArena.COST_FLOAT -> {
+				int l = r.intero();
+				nodo = new NodeCost(lessemi[l], k == AstArena.COST_INT ? LangType.INT : LangType.FLOAT, numeri[l], scale[l]);
+			}
+			case AstArena.DEREF -> nodo = new NodeDeref(id(nomi, r.intero(), span));
+			case AstArena.BINOP -> {
+				LangOper op = OPERATORI[r.byte_()];
+				NodeExpr destro = pila[--n];
+				nodo = new NodeBinOp(op, pila[--n], destro);
+			}
+			case AstArena.DECL -> {
+				int s = r.intero();
+				int flag = r.byte_();
+				NodeId id = id(nomi, s, leggiSpan(r, span));
+				nodo = new NodeDecl(TIPI[flag >>> 1], id, (flag & 1) != 0 ? pila[--n] : null);
+			}
+			case AstArena.ASSIGN -> nodo = new NodeAssign(id(nomi, r.intero(), span), pila[--n]);
+			case AstArena.PRINT -> {
+				int s = r.intero();
+				nodo = new NodePrint(id(nomi, s, leggiSpan(r, span)));
+			}
+			default -> throw new IllegalStateException("Nodo sconosciuto: " + k);
+			}
+			nodo.setSpan(span);
+			if (nodo instanceof NodeExpr e) {
+				if (n == pila.length)
+					pila = Arrays.copyOf(pila, n * 2);
+				pila[n++] = e;
+			} else {
+				decSts.add((NodeDecSt) nodo);
+			}
+		}
+		return new NodeProgram(decSts);
+	}
+
+	/**
+	 * Ricostruisce un identificatore: come in {@link AstArena#toProgram()}, il numero
+	 * del simbolo e' l'indice del nome nella tabella dei nomi.
+	 */
+	private static NodeId id(String[] nomi, int s, long span) {
+		NodeId id = new NodeId(nomi[s], s);
+		id.setSpan(span);
+		return id;
+	}
+
+	/**
+	 * Scrive una posizione relativa a quella precedente: nello {@link Span} impacchettato l'offset
+	 * occupa i bit alti, quindi la differenza tra i valori interi sarebbe grande anche tra nodi vicini.
+	 */
+	private static void scriviSpan(Scrittore w, long span, long prec) {
+		w.lungo(zigzag(Span.offset(span) - Span.offset(prec)));
+		w.lungo(zigzag(Span.riga(span) - Span.riga(prec)));
+		w.intero(Span.colonna(span));
+	}
+
+	private static long leggiSpan(Lettore r, long prec) {
+		long offset = Span.offset(prec) + dezigzag(r.lungo());
+		int riga = Span.riga(prec) + (int) dezigzag(r.lungo());
+		return Span.of(offset, riga, r.intero());
+	}
+
+	private static long zigzag(long v) {
+		return v << 1 ^ v >> 63;
+	}
+
+	private static long dezigzag(long v) {
+		return v >>> 1 ^ -(v & 1);
+	}
+
+	private static void scriviInt(byte[] b, int i, int v) {
+		b[i] = (byte) v;
+		b[i + 1] = (byte) (v >>> 8);
+		b[i + 2] = (byte) (v >>> 16);
+		b[i + 3] = (byte) (v >>> 24);
+	}
+
+	private static int leggiInt(byte[] b, int i) {
+		return (b[i] & 0xFF) | (b[i + 1] & 0xFF) << 8 | (b[i + 2] & 0xFF) << 16 | (b[i + 3] & 0xFF) << 24;
+	}
+
+	/** Buffer di scrittura che cresce raddoppiando. */
+	private static final class Scrittore {
+		private byte[] buf;
+		private int pos;
+
+		void byte_(int v) {
+			if (pos == buf.length)
+				buf = Arrays.copyOf(buf, buf.length * 2);
+			buf[pos++] = (byte) v;
+		}
+
+		void intero(int v) {
+			lungo(v & 0xFFFFFFFFL);
+		}
+
+		void lungo(long v) {
+			while ((v & ~0x7FL) != 0) {
+				byte_((int) (v & 0x7F) | 0x80);
+				v >>>= 7;
+			}
+			byte_((int) v);
+		}
+
+		void stringa(String s) {
+			byte[] b = s.getBytes(StandardCharsets.UTF_8);
+			intero(b.length);
+			if (buf.length - pos < b.length)
+				buf = Arrays.copyOf(buf, Math.max(buf.length * 2, pos + b.length));
+			System.arraycopy(b, 0, buf, pos, b.length);
+			pos += b.length;
+		}
+	}
+
+	/** Cursore di lettura su una codifica gia' verificata. */
+	private static final class Lettore {
+		private final byte[] buf;
+		private int pos;
+
+		Lettore(byte[] buf, int pos) {
+			this.buf = buf;
+			this.pos = pos;
+		}
+
+		byte byte_() {
+			return buf[pos++];
+		}
+
+		int intero() {
+			return (int) lungo();
+		}
+
+		long lungo() {
+			long v = 0;
+			int shift = 0;
+			byte b;
+			while ((b = buf[pos++]) < 0) {
+				v |= (long) (b & 0x7F) << shift;
+				shift += 7;
+			}
+			return v | (long) b << shift;
+		}
+
+		String stringa() {
+			int len = intero();
+			String s = new String(buf, pos, len, StandardCharsets.UTF_8);
+			pos += len;
+			return s;
+		}
+	}
+}
@@ -1,5 +1,20 @@
 package ast;
 
 public enum LangOper {
-	ASSIGN,PLUS,MINUS,TIMES,DIVIDE,DIV_FLOAT;
+	ASSIGN(" "),PLUS(" +"),MINUS(" -"),TIMES(" *"),DIVIDE(" /"),DIV_FLOAT(" 5 k / 0 k");
+
+	private final String dc;
+
+	LangOper(String dc) {
+		this.dc = dc;
+	}
+
+	/**
+	 * Codice {@code dc} dell'operatore, preceduto dallo spazio. La divisione tra float
+	 * imposta la precisione a 5 decimali e la riporta a 0 dopo l'operazione.
+	 * @return il codice dc dell'operatore
+	 */
+	public String dc() {
+		return dc;
+	}
 }
@@ -1,5 +1,37 @@
 package ast;
+import token.Span;
 import visitor.IVisitor;
-public abstract class NodeAST {
+public abstract sealed class NodeAST permits NodeExpr, NodeDecSt, NodeId, NodeProgram {
+	/** Posizione del nodo nel sorgente, impacchettata (vedi {@link Span}). */
+	private long span = Span.NESSUNO;
+	/** Spostamento da sommare a {@link #span} quando viene letto, {@code null} se non ce n'e'. */
+	private Spostamento spostamento;
+
 	public abstract void accept(IVisitor visitor);
+
+	/**
+	 * @return offset, riga e colonna del primo token del nodo, impacchettati in uno {@link Span}
+	 */
+	public long getSpan() {
+		return spostamento == null || span == Span.NESSUNO ? span : spostamento.applica(span);
+	}
+
+	/**
+	 * @param span la posizione del primo token del nodo
+	 */
+	public void setSpan(long span) {
+		this.span = spostamento == null || span == Span.NESSUNO ? span : spostamento.togli(span);
+	}
+
+	/**
+	 * Aggancia il nodo a uno spostamento condiviso, o lo sgancia con {@code null}: da qui in
+	 * avanti la sua posizione segue lo spostamento, ma la posizione attuale non cambia.
+	 *
+	 * @param spostamento lo spostamento da seguire, {@code null} per una posizione fissa
+	 */
+	public void setSpostamento(Spostamento spostamento) {
+		long attuale = getSpan();
+		this.spostamento = spostamento;
+		setSpan(attuale);
+	}
 }
@@ -2,7 +2,7 @@ package ast;
 
 import visitor.IVisitor;
 
-public class NodeAssign extends NodeStm{
+public final class NodeAssign extends NodeStm{
 	private NodeId id;
 	private NodeExpr expr;
 	public NodeAssign(NodeId id, NodeExpr expr) {
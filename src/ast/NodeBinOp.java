@@ -1,6 +1,6 @@
 package ast;
 import visitor.IVisitor;
-public class NodeBinOp extends NodeExpr{
+public final class NodeBinOp extends NodeExpr{
 	private LangOper op;
 	private NodeExpr left;
 	private NodeExpr right;
@@ -1,14 +1,35 @@
 package ast;
 
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import token.Literals;
 import visitor.IVisitor;
 
-public class NodeCost extends NodeExpr {
+public final class NodeCost extends NodeExpr {
 	private String value;
 	private LangType type;
+	private long numero;
+	private int scala;
+	private BigInteger grande;
 	public NodeCost(String value, LangType type) {
+		this(value, type, Literals.nonScalato(value), Literals.scala(value));
+	}
+	/**
+	 * Costruisce una costante con il valore gia' calcolato dallo scanner.
+	 * @param value il lessema della costante, usato per generare il codice
+	 * @param type il tipo della costante
+	 * @param numero valore non scalato (per 3.14 vale 314), o {@link Literals#FUORI_SCALA}
+	 * @param scala numero di cifre decimali, 0 per gli INT
+	 */
+	public NodeCost(String value, LangType type, long numero, int scala) {
 		super();
 		this.value = value;
 		this.type = type;
+		this.numero = numero;
+		this.scala = scala;
+		if (numero == Literals.FUORI_SCALA) {
+			this.grande = Literals.grande(value);
+		}
 	}
 	public String getValue() {
 		return value;
@@ -16,6 +37,30 @@ public class NodeCost extends NodeExpr {
 	public LangType getType() {
 		return type;
 	}
+	/**
+	 * @return il valore non scalato, o {@link Literals#FUORI_SCALA} se non sta in un long
+	 */
+	public long getNumero() {
+		return numero;
+	}
+	/**
+	 * @return il numero di cifre decimali, 0 per gli INT
+	 */
+	public int getScala() {
+		return scala;
+	}
+	/**
+	 * @return il valore esatto non scalato, anche oltre i limiti del long
+	 */
+	public BigInteger getNumeroGrande() {
+		return grande != null ? grande : BigInteger.valueOf(numero);
+	}
+	/**
+	 * @return il valore esatto della costante
+	 */
+	public BigDecimal getDecimale() {
+		return grande != null ? new BigDecimal(grande, scala) : BigDecimal.valueOf(numero, scala);
+	}
 	@Override
 	public void accept(IVisitor visitor) {
 		visitor.visit(this);
@@ -1,5 +1,5 @@
 package ast;
 
-public abstract class NodeDecSt extends NodeAST {
+public abstract sealed class NodeDecSt extends NodeAST permits NodeDecl, NodeStm {
 
 }
@@ -2,7 +2,7 @@ package ast;
 
 import visitor.IVisitor;
 
-public class NodeDecl extends NodeDecSt {
+public final class NodeDecl extends NodeDecSt {
 	public LangType type;
 	public NodeId id;
 	public NodeExpr init;
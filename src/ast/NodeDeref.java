@@ -2,7 +2,7 @@ package ast;
 
 import visitor.IVisitor;
 
-public class NodeDeref extends NodeExpr{
+public final class NodeDeref extends NodeExpr{
 	NodeId Id;
 
 	public NodeDeref(NodeId id) {
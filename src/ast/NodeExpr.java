@@ -1,5 +1,5 @@
 package ast;
 
-public abstract class NodeExpr extends NodeAST {
+public abstract sealed class NodeExpr extends NodeAST permits NodeBinOp, NodeCost, NodeDeref {
 
 }
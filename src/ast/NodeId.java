@@ -2,15 +2,27 @@ package ast;
 import symbolTable.SymbolTable.Attributes;
 import visitor.IVisitor;
 
-public class NodeId extends NodeAST{
+public final class NodeId extends NodeAST{
 	
 	public String name;
+	public int sym = -1;
 	public Attributes entry;
+	/** Slot della variabile nella tabella dei simboli, assegnato dal controllo dei tipi; -1 se non risolta. */
+	private int slot = -1;
 
 	public NodeId(String name) {
 		super();
 		this.name = name;
 	}
+	/**
+	 * Costruisce un identificatore con il numero assegnato dal pool in fase lessicale.
+	 * @param name il nome dell'identificatore
+	 * @param sym il numero dell'identificatore nel pool, -1 se sconosciuto
+	 */
+	public NodeId(String name, int sym) {
+		this(name);
+		this.sym = sym;
+	}
 	@Override
 	public void accept(IVisitor visitor) {
 		visitor.visit(this);
@@ -23,6 +35,10 @@ public class NodeId extends NodeAST{
 	public String getName() {
 		return name;
 	}
+
+	public int getSym() {
+		return sym;
+	}
 	
 	public void setEntry(Attributes entry) {
 		this.entry=entry;
@@ -30,5 +46,21 @@ public class NodeId extends NodeAST{
 	public Attributes getEntry() {
 		return entry;
 	}
+	/**
+	 * Lega l'identificatore alla sua dichiarazione. Viene fatto una volta sola, durante il
+	 * controllo dei tipi: le fasi successive leggono il legame invece di cercare il nome.
+	 * @param slot lo slot nella {@link symbolTable.SymbolTable}, -1 per sciogliere il legame
+	 * @param entry gli attributi della variabile, {@code null} se non dichiarata
+	 */
+	public void bind(int slot, Attributes entry) {
+		this.slot = slot;
+		this.entry = entry;
+	}
+	/**
+	 * @return lo slot della variabile nella tabella dei simboli, -1 se l'identificatore non e' risolto
+	 */
+	public int getSlot() {
+		return slot;
+	}
 	
 }
@@ -2,7 +2,7 @@ package ast;
 
 import visitor.IVisitor;
 
-public class NodePrint extends NodeStm {
+public final class NodePrint extends NodeStm {
 	public NodeId Id;
 	public NodePrint(NodeId id) {
 		super();
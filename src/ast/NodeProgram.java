@@ -1,12 +1,12 @@
 package ast;
-import  java.util.ArrayList;
+import  java.util.List;
 import visitor.IVisitor;
-public class NodeProgram extends NodeAST{
-	private ArrayList<NodeDecSt> decSts;
-	public NodeProgram(ArrayList<NodeDecSt> decSts) {
+public final class NodeProgram extends NodeAST{
+	private List<NodeDecSt> decSts;
+	public NodeProgram(List<NodeDecSt> decSts) {
 		this.decSts=decSts;
 	}
-	public ArrayList<NodeDecSt> getDecSts() {
+	public List<NodeDecSt> getDecSts() {
 		return decSts;
 	}
 	@Override
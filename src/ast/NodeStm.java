@@ -1,5 +1,5 @@
 package ast;
 
-public abstract class NodeStm extends NodeDecSt{
+public abstract sealed class NodeStm extends NodeDecSt permits NodeAssign, NodePrint {
 
 }
@@ -0,0 +1,52 @@
+package ast;
+
+import java.util.ArrayDeque;
+/**
+ * Percorre un albero di {@link NodeBinOp} in ordine posticipato con una pila esplicita,
+ * cosi' che la profondita' delle espressioni non sia limitata dallo stack.
+ *
+ * <p>{@link #prossimo()} restituisce, da sinistra a destra, le foglie ({@link NodeCost},
+ * {@link NodeDeref}) e, subito dopo i due figli, ogni operazione: chi usa la visita
+ * distingue i due casi con {@code instanceof NodeBinOp} e fornisce solo il passo per le
+ * foglie e quello che combina i risultati dei figli. La pila viene riutilizzata da
+ * un'espressione all'altra, quindi a regime la visita non alloca nulla. Un'istanza
+ * serve una sola visita alla volta.</p>
+ */
+public final class OrdinePosticipato {
+	/** Marcatore sulla pila: i figli dell'operazione sotto di lui sono gia' stati restituiti. */
+	private static final Object CHIUDI = new Object();
+	private final ArrayDeque<Object> pila = new ArrayDeque<>();
+
+	/**
+	 * Comincia la visita di un'espressione, abbandonando quella in corso.
+	 *
+	 * @param radice la radice dell'espressione
+	 */
+	public void inizia(NodeExpr radice) {
+		pila.clear();
+		pila.push(radice);
+	}
+
+	/**
+	 * @return la prossima foglia, o l'operazione i cui figli sono appena stati restituiti;
+	 *         {@code null} a fine visita
+	 */
+	public NodeExpr prossimo() {
+		while (!pila.isEmpty()) {
+			Object o = pila.pop();
+			if (o == CHIUDI) {
+				return (NodeBinOp) pila.pop();
+			}
+			if (o instanceof NodeBinOp op) {
+				// riapparira' dopo i figli, preceduto dal marcatore
+				pila.push(op);
+				pila.push(CHIUDI);
+				pila.push(op.getRight());
+				pila.push(op.getLeft());
+			} else {
+				return (NodeExpr) o;
+			}
+		}
+		return null;
+	}
+}
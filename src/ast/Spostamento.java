@@ -0,0 +1,43 @@
+package ast;
+
+import token.Span;
+/**
+ * Spostamento in byte e in righe condiviso dai nodi che seguono una modifica del sorgente
+ * (vedi {@link parser.IncrementalParser}).
+ *
+ * <p>Un nodo agganciato con {@link NodeAST#setSpostamento(Spostamento)} conserva la posizione
+ * precedente alle modifiche e la sposta solo quando viene letta: aggiornare lo spostamento
+ * sposta in un colpo solo tutti i nodi che lo condividono, senza percorrerli.</p>
+ */
+public final class Spostamento {
+	private int offset;
+	private int righe;
+
+	/**
+	 * Somma uno spostamento a quello attuale.
+	 *
+	 * @param dOff byte da aggiungere
+	 * @param dRighe righe da aggiungere
+	 */
+	public void aggiungi(int dOff, int dRighe) {
+		offset += dOff;
+		righe += dRighe;
+	}
+
+	/**
+	 * Riporta lo spostamento a zero.
+	 */
+	public void azzera() {
+		offset = righe = 0;
+	}
+
+	/** @return la posizione attuale corrispondente a quella conservata nel nodo */
+	long applica(long span) {
+		return Span.sposta(span, offset, righe);
+	}
+
+	/** @return la posizione da conservare nel nodo perche' quella attuale sia {@code span} */
+	long togli(long span) {
+		return Span.sposta(span, -offset, -righe);
+	}
+}
@@ -0,0 +1,87 @@
+package benchmark;
+
+import java.io.File;
+import ast.AstCache;
+import ast.NodeProgram;
+import parser.Parser;
+import scanner.DfaScanner;
+import visitor.CodeGeneration;
+import visitor.PatternCodeGeneration;
+import visitor.PatternTypeChecking;
+import visitor.TipoTD;
+import visitor.TypeCheckingCodeGeneration;
+import visitor.TypeCheckingVisitor;
+import visitor.TypeDescriptor;
+/**
+ * Micro-benchmark che confronta, sullo stesso AST, il controllo dei tipi e la generazione
+ * del codice basati su {@link visitor.IVisitor} con le passate basate su {@code switch}
+ * ({@link PatternTypeChecking}, {@link PatternCodeGeneration}) e con la passata unica
+ * ({@link TypeCheckingCodeGeneration}), e il front end con il
+ * ricaricamento dell'AST dalla cache binaria ({@link AstCache}).
+ * <p>Uso: {@code java benchmark.AstBenchmark <file> [iterazioni]}; il sorgente deve essere
+ * semanticamente corretto, altrimenti il visitor stampa ogni errore.</p>
+ */
+public class AstBenchmark {
+
+	public static void main(String[] args) throws Exception {
+		String file = args[0];
+		int iterazioni = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+		NodeProgram programma = new Parser(new DfaScanner(file).lexAll()).parse();
+		int statement = programma.getDecSts().size();
+
+		// front end (analisi lessicale e sintattica) contro ricaricamento dalla cache binaria
+		byte[] cache = AstCache.serializza(programma);
+		for (boolean daCache : new boolean[] { false, true }) {
+			for (int i = 0; i < 3; i++)
+				carica(file, cache, daCache);
+			long inizio = System.nanoTime();
+			for (int i = 0; i < iterazioni; i++)
+				carica(file, cache, daCache);
+			double secondi = (System.nanoTime() - inizio) / 1e9;
+			System.out.printf("%-8s %10d statement  %10d byte     %8.3f s  %8.1f Mstatement/s%n",
+					daCache ? "CACHE" : "PARSE", statement, daCache ? cache.length : new File(file).length(),
+					secondi, statement * (double) iterazioni / secondi / 1e6);
+		}
+
+		for (String modo : new String[] { "VISITOR", "PATTERN", "FUSED" }) {
+			// riscaldamento del JIT
+			for (int i = 0; i < 3; i++)
+				compila(programma, modo);
+			long inizio = System.nanoTime();
+			long codice = 0;
+			for (int i = 0; i < iterazioni; i++)
+				codice += compila(programma, modo);
+			double secondi = (System.nanoTime() - inizio) / 1e9;
+			System.out.printf("%-8s %10d statement  %10d byte dc  %8.3f s  %8.1f Mstatement/s%n",
+					modo, statement, codice / iterazioni, secondi,
+					statement * (double) iterazioni / secondi / 1e6);
+		}
+	}
+
+	private static int carica(String file, byte[] cache, boolean daCache) throws Exception {
+		NodeProgram p = daCache ? AstCache.deserializza(cache) : new Parser(new DfaScanner(file).lexAll()).parse();
+		return p.getDecSts().size();
+	}
+
+	/**
+	 * Esegue controllo dei tipi e generazione del codice.
+	 * @return la lunghezza del codice generato
+	 */
+	private static long compila(NodeProgram programma, String modo) {
+		if (modo.equals("FUSED")) {
+			TypeCheckingCodeGeneration tc = new TypeCheckingCodeGeneration();
+			programma.accept(tc);
+			return tc.getCodice().length();
+		}
+		if (modo.equals("PATTERN")) {
+			new PatternTypeChecking().check(programma);
+			PatternCodeGeneration cg = new PatternCodeGeneration();
+			cg.genera(programma);
+			return cg.getCodice().length();
+		}
+		programma.accept(new TypeCheckingVisitor(new TypeDescriptor(TipoTD.OK)));
+		CodeGeneration cg = new CodeGeneration();
+		programma.accept(cg);
+		return cg.getCodice().length();
+	}
+}
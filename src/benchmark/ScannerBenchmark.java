@@ -0,0 +1,95 @@
+package benchmark;
+
+import java.io.File;
+import parser.Parser;
+import parser.Recognizer;
+import scanner.DfaScanner;
+import scanner.IScanner;
+import scanner.ScannerKind;
+import token.Token;
+import token.TokenBuffer;
+import token.TokenType;
+/**
+ * Micro-benchmark che confronta i backend lessicali su uno stesso sorgente ac, e la sola
+ * validazione sintattica ({@link Recognizer}) con l'analisi che costruisce l'AST.
+ * <p>Uso: {@code java benchmark.ScannerBenchmark <file> [iterazioni]}</p>
+ */
+public class ScannerBenchmark {
+
+	public static void main(String[] args) throws Exception {
+		String file = args[0];
+		int iterazioni = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+		double mb = new File(file).length() / (1024.0 * 1024.0);
+
+		for (ScannerKind kind : ScannerKind.values()) {
+			// riscaldamento del JIT
+			for (int i = 0; i < 3; i++)
+				contaToken(kind, file);
+			long inizio = System.nanoTime();
+			long token = 0;
+			for (int i = 0; i < iterazioni; i++)
+				token += contaToken(kind, file);
+			double secondi = (System.nanoTime() - inizio) / 1e9;
+			System.out.printf("%-8s %10d token  %8.3f s  %8.1f MB/s%n", kind, token / iterazioni, secondi,
+					mb * iterazioni / secondi);
+		}
+
+		// analisi batch: automa byte per byte contro percorsi veloci SWAR
+		for (boolean swar : new boolean[] { false, true }) {
+			for (int i = 0; i < 3; i++)
+				lexAll(file, swar);
+			long inizio = System.nanoTime();
+			long token = 0;
+			for (int i = 0; i < iterazioni; i++)
+				token += lexAll(file, swar);
+			double secondi = (System.nanoTime() - inizio) / 1e9;
+			System.out.printf("%-8s %10d token  %8.3f s  %8.1f MB/s%n", swar ? "LEX_SWAR" : "LEX_ALL",
+					token / iterazioni, secondi, mb * iterazioni / secondi);
+		}
+
+		// analisi sintattica sui token gia' prodotti: con e senza costruzione dell'AST
+		for (boolean ast : new boolean[] { false, true }) {
+			for (int i = 0; i < 3; i++)
+				analizza(file, ast);
+			long inizio = System.nanoTime();
+			long token = 0;
+			for (int i = 0; i < iterazioni; i++)
+				token += analizza(file, ast);
+			double secondi = (System.nanoTime() - inizio) / 1e9;
+			System.out.printf("%-8s %10d token  %8.3f s  %8.1f MB/s%n", ast ? "PARSE" : "RECOGN",
+					token / iterazioni, secondi, mb * iterazioni / secondi);
+		}
+	}
+
+	/**
+	 * Analisi lessicale batch seguita dal parser o dal solo riconoscitore.
+	 * @return il numero di token analizzati
+	 */
+	private static long analizza(String file, boolean ast) throws Exception {
+		DfaScanner sc = new DfaScanner(file);
+		sc.setSwar(true);
+		TokenBuffer tokens = sc.lexAll();
+		if (ast)
+			new Parser(tokens).parse();
+		else if (!new Recognizer(tokens).recognize())
+			throw new IllegalStateException("sorgente non valido");
+		return tokens.size();
+	}
+
+	private static long lexAll(String file, boolean swar) throws Exception {
+		DfaScanner sc = new DfaScanner(file);
+		sc.setSwar(swar);
+		return sc.lexAll().size();
+	}
+
+	private static long contaToken(ScannerKind kind, String file) throws Exception {
+		IScanner sc = kind.open(file);
+		long n = 0;
+		Token t;
+		do {
+			t = sc.nextToken();
+			n++;
+		} while (t.getType() != TokenType.EOF);
+		return n;
+	}
+}
@@ -0,0 +1,92 @@
+package benchmark;
+
+import java.util.HashMap;
+import ast.LangType;
+import symbolTable.SymbolTable;
+import symbolTable.SymbolTable.Attributes;
+/**
+ * Micro-benchmark che confronta la {@link SymbolTable} a indirizzamento aperto con una
+ * {@code HashMap<String, Attributes>}, la struttura usata in precedenza.
+ * <p>Per ciascuna misura dichiarazione di {@code n} variabili, ricerca per nome, ricerca per
+ * numero del pool (solo la tabella) e memoria occupata dalla struttura piena.</p>
+ * <p>Uso: {@code java benchmark.SymbolTableBenchmark [variabili] [iterazioni]}</p>
+ */
+public class SymbolTableBenchmark {
+
+	public static void main(String[] args) {
+		int n = args.length > 0 ? Integer.parseInt(args[0]) : 500000;
+		int iterazioni = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+		// nomi distinti come quelli consegnati dal pool: una sola istanza per nome
+		String[] nomi = new String[n];
+		for (int i = 0; i < n; i++)
+			nomi[i] = "v" + i;
+		// le ricerche seguono un ordine casuale, non quello di dichiarazione
+		int[] ordine = new int[n];
+		java.util.Random r = new java.util.Random(42);
+		for (int i = 0; i < n; i++) {
+			int k = r.nextInt(i + 1);
+			ordine[i] = ordine[k];
+			ordine[k] = i;
+		}
+
+		for (String struttura : new String[] { "HASHMAP", "TABELLA" }) {
+			for (int i = 0; i < 3; i++)
+				misura(struttura, nomi, ordine);
+			long[] totale = new long[4];
+			for (int i = 0; i < iterazioni; i++) {
+				long[] t = misura(struttura, nomi, ordine);
+				for (int k = 0; k < t.length; k++)
+					totale[k] += t[k];
+			}
+			System.out.printf("%-8s %8d var  enter %6.1f ns  lookup %6.1f ns  per numero %6.1f ns  %6.1f byte/var%n",
+					struttura, n, totale[0] / (double) iterazioni / n, totale[1] / (double) iterazioni / n,
+					totale[2] / (double) iterazioni / n, totale[3] / (double) iterazioni / n);
+		}
+	}
+
+	/**
+	 * @return i nanosecondi di dichiarazione, ricerca per nome e ricerca per numero, e i byte occupati
+	 */
+	private static long[] misura(String struttura, String[] nomi, int[] ordine) {
+		int n = nomi.length;
+		long controllo = 0;
+		long[] t = new long[4];
+		long occupata = occupata();
+		long inizio = System.nanoTime();
+		if (struttura.equals("HASHMAP")) {
+			HashMap<String, Attributes> mappa = new HashMap<>();
+			for (int i = 0; i < n; i++)
+				mappa.putIfAbsent(nomi[i], new Attributes(LangType.INT, (char) i));
+			t[0] = System.nanoTime() - inizio;
+			t[3] = occupata() - occupata;
+			inizio = System.nanoTime();
+			for (int i : ordine)
+				controllo += mappa.get(nomi[i]).getRegistro();
+			t[1] = System.nanoTime() - inizio;
+		} else {
+			SymbolTable tabella = new SymbolTable();
+			for (int i = 0; i < n; i++)
+				tabella.add(i, nomi[i], LangType.INT, (char) i);
+			t[0] = System.nanoTime() - inizio;
+			t[3] = occupata() - occupata;
+			inizio = System.nanoTime();
+			for (int i : ordine)
+				controllo += tabella.getRegistro(tabella.slot(nomi[i]));
+			t[1] = System.nanoTime() - inizio;
+			inizio = System.nanoTime();
+			for (int i : ordine)
+				controllo += tabella.getRegistro(tabella.slot(i, nomi[i]));
+			t[2] = System.nanoTime() - inizio;
+		}
+		if (controllo == 42)
+			System.out.println();
+		return t;
+	}
+
+	/** @return la memoria occupata dopo una garbage collection (stima) */
+	private static long occupata() {
+		Runtime rt = Runtime.getRuntime();
+		System.gc();
+		return rt.totalMemory() - rt.freeMemory();
+	}
+}
@@ -0,0 +1,126 @@
+package compiler;
+
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import ast.NodeDecSt;
+import ast.NodeProgram;
+import parser.Parser;
+import parser.SyntacticException;
+import scanner.Scanner;
+import symbolTable.SymbolTable;
+import token.InternPool;
+import visitor.CodeGeneration;
+import visitor.TypeCheckingVisitor;
+import visitor.TypeDescriptor;
+/**
+ * Stato riutilizzabile per compilare molti programmi ac piccoli uno dopo l'altro.
+ *
+ * <p>Le tabelle lessicali dello {@link Scanner} sono immutabili e condivise da tutti gli
+ * scanner; il contesto conserva inoltre il pool degli identificatori, la propria
+ * {@link SymbolTable}, il buffer del codice dc, il {@link TypeCheckingVisitor}, il
+ * {@link CodeGeneration} e la lista degli errori, che
+ * {@link #reset()} svuota senza ricrearli. Per ogni compilazione restano da allocare solo lo
+ * scanner, il parser e l'AST.</p>
+ *
+ * <p>Gli identificatori gia' visti restano nel pool (e quindi non vengono riallocati) finche'
+ * il loro numero non supera {@link #MAX_SIMBOLI}. Un contesto non e' thread-safe, ma contesti
+ * diversi non condividono stato e possono compilare in parallelo, uno per thread.</p>
+ */
+public class CompilerContext {
+	/** Oltre questo numero di identificatori {@link #reset()} svuota il pool. */
+	public static final int MAX_SIMBOLI = 4096;
+
+	private final InternPool pool = new InternPool();
+	private final SymbolTable simboli = new SymbolTable();
+	private final StringBuilder codice = new StringBuilder();
+	private final TypeDescriptor inizio = TypeDescriptor.OK;
+	private final TypeCheckingVisitor typeCheck = new TypeCheckingVisitor(inizio, simboli);
+	private final CodeGeneration codeGen = new CodeGeneration(codice, simboli);
+	private final ArrayList<String> errori = new ArrayList<>();
+
+	/**
+	 * Prepara il contesto per una nuova compilazione: svuota la tabella dei simboli,
+	 * il codice e gli errori della compilazione precedente.
+	 */
+	public void reset() {
+		if (pool.size() > MAX_SIMBOLI) {
+			pool.clear();
+		}
+		codice.setLength(0);
+		errori.clear();
+		typeCheck.reset(inizio);
+		codeGen.reset();
+	}
+
+	/**
+	 * Crea uno scanner che usa il pool degli identificatori del contesto.
+	 *
+	 * @param source il sorgente
+	 * @return lo scanner
+	 */
+	public Scanner scanner(Reader source) {
+		return new Scanner(source, pool);
+	}
+
+	/**
+	 * @param sorgente il testo del programma ac
+	 * @return {@code true} se il programma non contiene errori semantici
+	 * @throws SyntacticException in caso di errore lessicale o sintattico
+	 * @see #compile(Reader)
+	 */
+	public boolean compile(String sorgente) throws SyntacticException {
+		return compile(new StringReader(sorgente));
+	}
+
+	/**
+	 * Compila un programma dopo aver chiamato {@link #reset()}. Come nel compilatore da riga di comando, il
+	 * controllo dei tipi riporta tutti gli errori e il codice viene generato solo se non
+	 * ce ne sono.
+	 *
+	 * @param source il sorgente
+	 * @return {@code true} se il programma non contiene errori semantici
+	 * @throws SyntacticException in caso di errore lessicale o sintattico
+	 */
+	public boolean compile(Reader source) throws SyntacticException {
+		reset();
+		NodeProgram program = new Parser(scanner(source)).parse();
+		for (NodeDecSt ds : program.getDecSts()) {
+			ds.accept(typeCheck);
+			TypeDescriptor td = typeCheck.getResType();
+			if (td.isError()) {
+				errori.add(td.getmsg());
+			}
+		}
+		if (errori.isEmpty()) {
+			program.accept(codeGen);
+			if (!codeGen.getLog().isEmpty()) {
+				errori.add(codeGen.getLog());
+			}
+		}
+		return errori.isEmpty();
+	}
+
+	/**
+	 * @return il codice dc dell'ultima compilazione; il buffer viene riutilizzato,
+	 *         quindi il contenuto cambia alla compilazione successiva
+	 */
+	public CharSequence getCodice() {
+		return codice;
+	}
+
+	/**
+	 * @return i messaggi degli errori dell'ultima compilazione
+	 */
+	public List<String> getErrori() {
+		return errori;
+	}
+
+	/**
+	 * @return il pool degli identificatori condiviso dalle compilazioni
+	 */
+	public InternPool getPool() {
+		return pool;
+	}
+}
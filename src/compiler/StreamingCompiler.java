@@ -0,0 +1,96 @@
+package compiler;
+
+import java.util.ArrayList;
+import java.util.List;
+import ast.NodeDecSt;
+import parser.Parser;
+import parser.SyntacticException;
+import scanner.IScanner;
+import symbolTable.SymbolTable;
+import visitor.CodeGeneration;
+import visitor.TypeCheckingVisitor;
+import visitor.TypeDescriptor;
+/**
+ * Compilatore ac -> dc che lavora uno statement alla volta.
+ *
+ * <p>Il {@link Parser} consegna ogni {@link NodeDecSt} appena riconosciuto; lo statement
+ * viene subito controllato dal {@link TypeCheckingVisitor}, tradotto dal
+ * {@link CodeGeneration} direttamente sulla destinazione e poi abbandonato. Poiche' in ac
+ * uno statement dipende solo dalle dichiarazioni che lo precedono, il risultato e' lo
+ * stesso della compilazione in due passate sul {@link ast.NodeProgram}, ma la memoria
+ * occupata e' limitata dalla tabella dei simboli e non dalla lunghezza del programma.</p>
+ *
+ * <p>Dopo il primo errore semantico la generazione del codice si ferma, mentre il
+ * controllo dei tipi prosegue per riportare tutti gli errori; il codice gia' scritto
+ * sulla destinazione in quel caso e' incompleto e va scartato.</p>
+ */
+public class StreamingCompiler {
+	private final TypeCheckingVisitor typeCheck;
+	private final CodeGeneration codeGen;
+	private final ArrayList<String> errori = new ArrayList<>();
+	private long statement;
+
+	/**
+	 * Prepara una nuova compilazione, con una {@link SymbolTable} propria.
+	 *
+	 * @param out destinazione del codice dc generato
+	 */
+	public StreamingCompiler(Appendable out) {
+		SymbolTable simboli = new SymbolTable();
+		this.typeCheck = new TypeCheckingVisitor(TypeDescriptor.OK, simboli);
+		this.codeGen = new CodeGeneration(out, simboli);
+	}
+
+	/**
+	 * Compila il programma letto dallo scanner.
+	 *
+	 * @param sc lo scanner del sorgente
+	 * @return {@code true} se il programma non contiene errori semantici
+	 * @throws SyntacticException in caso di errore lessicale o sintattico
+	 */
+	public boolean compile(IScanner sc) throws SyntacticException {
+		return compile(new Parser(sc));
+	}
+
+	/**
+	 * Compila il programma riconosciuto dal parser.
+	 *
+	 * @param parser il parser del sorgente
+	 * @return {@code true} se il programma non contiene errori semantici
+	 * @throws SyntacticException in caso di errore lessicale o sintattico
+	 */
+	public boolean compile(Parser parser) throws SyntacticException {
+		parser.parse(this::compila);
+		return errori.isEmpty();
+	}
+
+	private void compila(NodeDecSt ds) {
+		statement++;
+		ds.accept(typeCheck);
+		TypeDescriptor td = typeCheck.getResType();
+		if (td.isError()) {
+			errori.add(td.getmsg());
+			return;
+		}
+		if (errori.isEmpty()) {
+			ds.accept(codeGen);
+			if (!codeGen.getLog().isEmpty()) {
+				errori.add(codeGen.getLog());
+			}
+		}
+	}
+
+	/**
+	 * @return i messaggi degli errori semantici, nell'ordine degli statement
+	 */
+	public List<String> getErrori() {
+		return errori;
+	}
+
+	/**
+	 * @return il numero di statement compilati
+	 */
+	public long getStatement() {
+		return statement;
+	}
+}
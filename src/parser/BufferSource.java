@@ -0,0 +1,72 @@
+package parser;
+
+import token.TokenBuffer;
+import token.TokenType;
+/**
+ * {@link TokenSource} che scorre per indice un {@link TokenBuffer} gia' prodotto
+ * in modalita' batch: nessun oggetto Token viene creato, e i lessemi sono
+ * materializzati solo per i token che li portano nell'AST.
+ * Puo' anche scorrere solo un intervallo del buffer: il token di indice {@code fine}
+ * viene allora visto come EOF.
+ */
+class BufferSource implements TokenSource {
+	private final TokenBuffer tokens;
+	private int pos;
+	private final int fine;
+
+	BufferSource(TokenBuffer tokens) {
+		this(tokens, 0, tokens.size() - 1);
+	}
+
+	/**
+	 * @param tokens il buffer dei token
+	 * @param da primo token dell'intervallo
+	 * @param fine indice del token che fa da EOF per l'intervallo
+	 */
+	BufferSource(TokenBuffer tokens, int da, int fine) {
+		this.tokens = tokens;
+		this.pos = da;
+		this.fine = fine;
+	}
+
+	@Override
+	public TokenType peekType() {
+		return pos == fine ? TokenType.EOF : tokens.type(pos);
+	}
+
+	@Override
+	public int peekRiga() {
+		return tokens.riga(pos);
+	}
+
+	@Override
+	public String peekValore() {
+		return tokens.lexeme(pos);
+	}
+
+	@Override
+	public int peekSym() {
+		return tokens.sym(pos);
+	}
+
+	@Override
+	public long peekNumero() {
+		return tokens.numero(pos);
+	}
+
+	@Override
+	public int peekScala() {
+		return tokens.scala(pos);
+	}
+
+	@Override
+	public long peekSpan() {
+		return tokens.span(pos);
+	}
+
+	@Override
+	public void advance() {
+		if (pos < fine)
+			pos++;
+	}
+}
@@ -0,0 +1,335 @@
+package parser;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+import ast.NodeAST;
+import ast.NodeAssign;
+import ast.NodeBinOp;
+import ast.NodeDecSt;
+import ast.NodeDecl;
+import ast.NodeDeref;
+import ast.NodeId;
+import ast.NodePrint;
+import ast.NodeProgram;
+import ast.Spostamento;
+import scanner.DfaScanner;
+import scanner.LexicalException;
+import token.EditableSource;
+import token.LineMap;
+import token.Span;
+import token.TokenBuffer;
+import token.TokenType;
+/**
+ * Rianalisi incrementale di un programma ac dopo una modifica del testo.
+ *
+ * <p>Ogni elemento di {@link NodeProgram#getDecSts()} corrisponde esattamente ai token
+ * compresi tra due {@code SEMI} consecutivi: il k-esimo {@link NodeDecSt} termina con
+ * il k-esimo {@code ;}. Dopo una modifica vengono quindi rianalizzati (lessicalmente e
+ * sintatticamente) solo gli statement toccati, allargati fino ai {@code ;} che li
+ * delimitano; i nuovi nodi sostituiscono i vecchi e i nuovi token sostituiscono i vecchi
+ * nel {@link TokenBuffer}.</p>
+ *
+ * <p>Sorgente ({@link EditableSource}), token, {@link LineMap} e statement sono tenuti con uno
+ * spazio libero nel punto dell'ultima modifica: cio' che segue la modifica non viene copiato ne'
+ * spostato, ma porta uno spostamento in byte e in righe che viene sommato solo quando si legge.
+ * Una modifica costa quindi quanto la regione rianalizzata piu' la distanza dalla modifica
+ * precedente, non quanto il sorgente. Per le posizioni ({@link Span}) dei nodi lo spostamento
+ * e' uno {@link Spostamento} a cui sono agganciati tutti i nodi che seguono lo spazio libero, e
+ * la lista del programma e' una vista sull'array degli statement: {@link #getProgram()} non
+ * percorre nulla.</p>
+ *
+ * <p>Se la regione modificata contiene un errore viene sollevata l'eccezione e lo stato
+ * precedente (sorgente, token e AST) resta invariato.</p>
+ */
+public class IncrementalParser {
+	private final EditableSource testo;
+	private final TokenBuffer tokens;
+	private final LineMap righe;
+	private final NodeProgram program;
+	/** Gli statement del programma; quelli che seguono lo spazio libero sono in fondo all'array. */
+	private NodeDecSt[] statement;
+	private int nStatement;
+	/** Indice del primo statement che segue lo spazio libero. */
+	private int gap;
+	/** Spostamento degli statement che seguono lo spazio libero, a cui sono agganciati i loro nodi. */
+	private final Spostamento coda = new Spostamento();
+	/** Pila riutilizzata per percorrere i nodi di uno statement. */
+	private final ArrayDeque<NodeAST> pila = new ArrayDeque<>();
+
+	/**
+	 * Analizza completamente il sorgente iniziale.
+	 *
+	 * @param source il testo del programma
+	 * @throws LexicalException in caso di errore lessicale
+	 * @throws SyntacticException in caso di errore sintattico
+	 */
+	public IncrementalParser(byte[] source) throws LexicalException, SyntacticException {
+		byte[] copia = source.clone();
+		this.testo = new EditableSource(copia);
+		this.tokens = new DfaScanner(ByteBuffer.wrap(copia)).lexAll();
+		this.righe = tokens.righe();
+		this.program = indicizza(new Parser(tokens).parse());
+	}
+	/**
+	 * Riprende i risultati di un'analisi precedente dell'intero sorgente.
+	 *
+	 * @param tokens i token del programma, prodotti da {@link DfaScanner#lexAll()} sull'intero sorgente
+	 * @param program l'AST costruito da quei token, i cui statement vengono ripresi
+	 */
+	public IncrementalParser(TokenBuffer tokens, NodeProgram program) {
+		this.testo = new EditableSource(tokens.source());
+		this.tokens = tokens;
+		this.righe = tokens.righe();
+		this.program = indicizza(program);
+	}
+
+	/**
+	 * Riprende gli statement di un programma analizzato.
+	 *
+	 * @return il programma i cui statement sono una vista su {@link #statement}
+	 */
+	private NodeProgram indicizza(NodeProgram analizzato) {
+		statement = analizzato.getDecSts().toArray(new NodeDecSt[0]);
+		nStatement = statement.length;
+		gap = nStatement;
+		NodeProgram vista = new NodeProgram(new VistaStatement());
+		vista.setSpan(analizzato.getSpan());
+		return vista;
+	}
+
+	/**
+	 * @return una copia del sorgente attuale
+	 */
+	public byte[] getSource() {
+		return testo.toArray();
+	}
+
+	public TokenBuffer getTokens() {
+		return tokens;
+	}
+
+	/**
+	 * Restituisce il programma aggiornato. La sua lista di statement e' una vista in sola
+	 * lettura che segue le modifiche successive.
+	 *
+	 * @return il programma (sempre la stessa istanza)
+	 */
+	public NodeProgram getProgram() {
+		return program;
+	}
+
+	/**
+	 * Applica una modifica al testo e aggiorna token e AST.
+	 *
+	 * @param offset posizione, in byte, in cui inizia la modifica
+	 * @param rimossi numero di byte rimossi a partire da offset
+	 * @param inserito testo inserito al posto dei byte rimossi
+	 * @return gli statement rianalizzati, che hanno preso il posto di quelli toccati dalla modifica
+	 *         (il programma completo si ottiene con {@link #getProgram()})
+	 * @throws LexicalException se la regione modificata contiene un errore lessicale
+	 * @throws SyntacticException se la regione modificata contiene un errore sintattico
+	 */
+	public List<NodeDecSt> edit(int offset, int rimossi, String inserito) throws LexicalException, SyntacticException {
+		int lunghezza = testo.length();
+		if (offset < 0 || rimossi < 0 || offset + rimossi > lunghezza) {
+			throw new IndexOutOfBoundsException("Modifica fuori dal sorgente: " + offset + "+" + rimossi);
+		}
+		byte[] ins = inserito.getBytes(StandardCharsets.ISO_8859_1);
+		int fineModifica = offset + rimossi;
+		int delta = ins.length - rimossi;
+		int eof = tokens.size() - 1;
+
+		// Primo token toccato: il primo che termina in corrispondenza o dopo l'inizio della modifica
+		int primo = 0, alto = eof;
+		while (primo < alto) {
+			int medio = (primo + alto) >>> 1;
+			if (tokens.offset(medio) + tokens.length(medio) < offset)
+				primo = medio + 1;
+			else
+				alto = medio;
+		}
+		// La regione parte subito dopo il ';' che precede il primo token toccato
+		int inizioTok = primo;
+		while (inizioTok > 0 && tokens.type(inizioTok - 1) != TokenType.SEMI)
+			inizioTok--;
+		// ... e termina con il primo ';' intatto dopo la modifica, o a fine sorgente
+		int fineTok = inizioTok;
+		while (fineTok < eof && (tokens.type(fineTok) != TokenType.SEMI || tokens.offset(fineTok) < fineModifica))
+			fineTok++;
+		boolean finoAllaFine = fineTok == eof;
+
+		int inizioByte = inizioTok > 0 ? tokens.offset(inizioTok - 1) + 1 : 0;
+		int fineByte = finoAllaFine ? lunghezza : tokens.offset(fineTok) + 1;
+		int rigaInizio = inizioTok > 0 ? tokens.riga(inizioTok - 1) : 1;
+
+		// Rianalisi della sola regione danneggiata, copiata dall'inizio della sua prima riga
+		// perche' lo scanner ne ricavi le colonne; i suoi offset partono da base
+		int base = righe.inizioRiga(inizioByte);
+		byte[] regione = new byte[fineByte + delta - base];
+		testo.get(base, regione, 0, offset - base);
+		System.arraycopy(ins, 0, regione, offset - base, ins.length);
+		testo.get(fineModifica, regione, offset - base + ins.length, fineByte - fineModifica);
+		TokenBuffer nuoviTok = new DfaScanner(ByteBuffer.wrap(regione).position(inizioByte - base), tokens.pool(),
+				rigaInizio).lexAll();
+		List<NodeDecSt> nuoviStatement = new Parser(nuoviTok).parse().getDecSts();
+
+		int primoStatement = cercaStatement(inizioByte);
+		int dopoStatement = finoAllaFine ? nStatement : cercaStatement(fineByte);
+		// l'EOF della regione segue subito il ';' che la chiude, sulla stessa riga
+		int rigaFine = nuoviTok.riga(nuoviTok.size() - 1);
+		int deltaRighe = finoAllaFine ? 0 : rigaFine - tokens.riga(fineTok);
+
+		testo.replace(offset, rimossi, ins);
+		righe.replace(inizioByte, fineByte, nuoviTok.righe(), base, delta);
+		if (finoAllaFine) {
+			tokens.replace(inizioTok, eof + 1, nuoviTok, nuoviTok.size(), base, testo, delta, 0);
+		} else {
+			tokens.replace(inizioTok, fineTok + 1, nuoviTok, nuoviTok.size() - 1, base, testo, delta, deltaRighe);
+		}
+		for (NodeDecSt s : nuoviStatement)
+			sposta(s, base, null, null);
+		sostituisci(primoStatement, dopoStatement, nuoviStatement, delta, deltaRighe);
+		// gli statement che iniziano sulla riga del ';' finale cambiano anche colonna:
+		// vengono portati prima dello spazio libero ricavando le posizioni dalla tabella delle righe
+		int g = statement.length - nStatement;
+		while (gap < nStatement && Span.riga(statement[gap + g].getSpan()) == rigaFine) {
+			NodeDecSt s = statement[gap + g];
+			statement[gap + g] = null;
+			sposta(s, 0, righe, null);
+			statement[gap++] = s;
+		}
+		if (gap == nStatement)
+			coda.azzera();
+		return nuoviStatement;
+	}
+
+	/** @return l'indice del primo statement che inizia all'offset indicato o dopo */
+	private int cercaStatement(int offset) {
+		int basso = 0, alto = nStatement;
+		while (basso < alto) {
+			int medio = (basso + alto) >>> 1;
+			if (inizioStatement(medio) < offset)
+				basso = medio + 1;
+			else
+				alto = medio;
+		}
+		return basso;
+	}
+
+	private int inizioStatement(int k) {
+		return (int) Span.offset(statement[fisico(k)].getSpan());
+	}
+
+	/** @return la posizione nell'array del k-esimo statement */
+	private int fisico(int k) {
+		return k < gap ? k : k + statement.length - nStatement;
+	}
+
+	/**
+	 * Sostituisce gli statement [da, a) con quelli nuovi; quelli successivi si spostano di
+	 * {@code dOff} byte e {@code dRighe} righe.
+	 */
+	private void sostituisci(int da, int a, List<NodeDecSt> nuovi, int dOff, int dRighe) {
+		spostaGap(da);
+		nStatement -= a - da;
+		if (statement.length - nStatement < nuovi.size()) {
+			int coda = nStatement - gap;
+			NodeDecSt[] nuovo = new NodeDecSt[Math.max(statement.length * 2, nStatement + nuovi.size() + 16)];
+			System.arraycopy(statement, 0, nuovo, 0, gap);
+			System.arraycopy(statement, statement.length - coda, nuovo, nuovo.length - coda, coda);
+			statement = nuovo;
+		}
+		for (NodeDecSt s : nuovi)
+			statement[gap++] = s;
+		nStatement += nuovi.size();
+		coda.aggiungi(dOff, dRighe);
+	}
+
+	/**
+	 * Sposta lo spazio libero prima dello statement di indice k, agganciando allo spostamento
+	 * della coda o sganciando i nodi degli statement che lo attraversano.
+	 */
+	private void spostaGap(int k) {
+		int g = statement.length - nStatement;
+		if (k < gap) {
+			System.arraycopy(statement, k, statement, k + g, gap - k);
+			Arrays.fill(statement, k, Math.min(gap, k + g), null);
+			for (int j = k + g; j < gap + g; j++)
+				sposta(statement[j], 0, null, coda);
+		} else if (k > gap) {
+			System.arraycopy(statement, gap + g, statement, gap, k - gap);
+			Arrays.fill(statement, Math.max(k, gap + g), k + g, null);
+			for (int j = gap; j < k; j++)
+				sposta(statement[j], 0, null, null);
+		}
+		gap = k;
+		if (gap == nStatement)
+			coda.azzera();
+	}
+
+	/**
+	 * Aggancia ogni nodo dello statement a {@code spostamento} (o lo sgancia se e' {@code null})
+	 * e sposta la sua posizione di {@code dOff} byte: se {@code righe} e' indicata riga e colonna
+	 * vengono ricavate dalla tabella, altrimenti restano invariate. Le espressioni vengono
+	 * percorse con una pila esplicita; l'identificatore di un assegnamento composto
+	 * ({@code a += b}), condiviso con la sua dereferenziazione, viene spostato una volta sola.
+	 */
+	private void sposta(NodeDecSt statement, int dOff, LineMap righe, Spostamento spostamento) {
+		NodeId condiviso = null;
+		pila.push(statement);
+		while (!pila.isEmpty()) {
+			NodeAST n = pila.pop();
+			n.setSpostamento(spostamento);
+			long span = n.getSpan();
+			if (span != Span.NESSUNO && (dOff != 0 || righe != null)) {
+				int off = (int) Span.offset(span) + dOff;
+				n.setSpan(righe != null ? righe.span(off) : Span.of(off, Span.riga(span), Span.colonna(span)));
+			}
+			switch (n) {
+			case NodeDecl d -> {
+				pila.push(d.getId());
+				if (d.getInit() != null)
+					pila.push(d.getInit());
+			}
+			case NodeAssign a -> {
+				condiviso = a.getId();
+				pila.push(a.getId());
+				pila.push(a.getExpr());
+			}
+			case NodePrint p -> pila.push(p.getId());
+			case NodeBinOp b -> {
+				pila.push(b.getLeft());
+				pila.push(b.getRight());
+			}
+			case NodeDeref d -> {
+				if (d.getId() != condiviso)
+					pila.push(d.getId());
+			}
+			default -> {
+			}
+			}
+		}
+	}
+
+	/**
+	 * Vista in sola lettura degli statement del programma, che salta lo spazio libero.
+	 */
+	private final class VistaStatement extends AbstractList<NodeDecSt> implements RandomAccess {
+		@Override
+		public NodeDecSt get(int k) {
+			if (k < 0 || k >= nStatement)
+				throw new IndexOutOfBoundsException(k);
+			return statement[fisico(k)];
+		}
+
+		@Override
+		public int size() {
+			return nStatement;
+		}
+	}
+}
@@ -0,0 +1,116 @@
+package parser;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import ast.NodeDecSt;
+import ast.NodeProgram;
+import token.TokenBuffer;
+import token.TokenType;
+/**
+ * Analisi sintattica parallela di programmi ac di grandi dimensioni.
+ *
+ * <p>Ogni produzione di {@code DSs} (una {@code Dcl}, un assegnamento o una {@code print})
+ * termina con {@code ;} e nessuna guarda oltre il proprio {@code ;}: la sequenza di token
+ * puo' quindi essere divisa in pezzi che iniziano subito dopo un {@code SEMI}. Ogni pezzo
+ * viene analizzato da un {@link Parser} indipendente su un {@link ForkJoinPool}, che vede
+ * la fine del pezzo come EOF, e le liste di statement vengono concatenate nell'ordine
+ * del sorgente in un unico {@link NodeProgram}.</p>
+ *
+ * <p>L'AST e' identico a quello del parser sequenziale; in caso di errori viene sollevato
+ * quello del primo pezzo errato, cioe' il primo errore nell'ordine del sorgente, con lo
+ * stesso messaggio. I token possono essere prodotti in parallelo con
+ * {@link scanner.ParallelLexer}.</p>
+ */
+public class ParallelParser {
+	/** Numero minimo di token di un pezzo, per impostazione predefinita. */
+	public static final int DIMENSIONE_PEZZO = 1 << 16;
+
+	private final ForkJoinPool pool;
+	private final int dimensionePezzo;
+
+	/**
+	 * Costruisce un parser parallelo sul pool comune, con pezzi da {@link #DIMENSIONE_PEZZO} token.
+	 */
+	public ParallelParser() {
+		this(ForkJoinPool.commonPool(), DIMENSIONE_PEZZO);
+	}
+	/**
+	 * @param pool il pool su cui eseguire l'analisi dei pezzi
+	 * @param dimensionePezzo numero minimo di token di ogni pezzo
+	 */
+	public ParallelParser(ForkJoinPool pool, int dimensionePezzo) {
+		this.pool = pool;
+		this.dimensionePezzo = Math.max(1, dimensionePezzo);
+	}
+
+	/**
+	 * Analizza in parallelo un programma gia' diviso in token.
+	 *
+	 * @param tokens i token del programma, terminati da EOF
+	 * @return il nodo radice dell'AST
+	 * @throws SyntacticException al primo errore sintattico (nell'ordine del sorgente)
+	 */
+	public NodeProgram parse(TokenBuffer tokens) throws SyntacticException {
+		List<Pezzo> pezzi = new ArrayList<>();
+		int eof = tokens.size() - 1;
+		int inizio = 0;
+		do {
+			int fine = taglio(tokens, inizio + dimensionePezzo, eof);
+			pezzi.add(new Pezzo(tokens, inizio, fine));
+			inizio = fine;
+		} while (inizio < eof);
+
+		for (Pezzo p : pezzi)
+			pool.execute(p);
+		int totale = 0;
+		for (Pezzo p : pezzi)
+			totale += p.join().size();
+
+		ArrayList<NodeDecSt> decSts = new ArrayList<>(totale);
+		for (Pezzo p : pezzi) {
+			if (p.errore != null) {
+				throw p.errore;
+			}
+			decSts.addAll(p.join());
+		}
+		return new NodeProgram(decSts);
+	}
+
+	/**
+	 * Trova il primo punto di taglio valido a partire da {@code da}: subito dopo un {@code SEMI}.
+	 */
+	private static int taglio(TokenBuffer tokens, int da, int eof) {
+		for (int i = da - 1; i < eof; i++) {
+			if (tokens.type(i) == TokenType.SEMI)
+				return i + 1;
+		}
+		return eof;
+	}
+
+	/** Analisi sintattica dei token [inizio, fine) del programma. */
+	private static class Pezzo extends RecursiveTask<List<NodeDecSt>> {
+		private static final long serialVersionUID = 1L;
+		private final transient TokenBuffer tokens;
+		private final int inizio;
+		private final int fine;
+		private SyntacticException errore;
+
+		Pezzo(TokenBuffer tokens, int inizio, int fine) {
+			this.tokens = tokens;
+			this.inizio = inizio;
+			this.fine = fine;
+		}
+
+		@Override
+		protected List<NodeDecSt> compute() {
+			try {
+				return new Parser(tokens, inizio, fine).parse().getDecSts();
+			} catch (SyntacticException e) {
+				errore = e;
+				return List.of();
+			}
+		}
+	}
+}
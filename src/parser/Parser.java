@@ -1,12 +1,13 @@
 package parser;
 
-import scanner.Scanner;
-import scanner.LexicalException;
+import scanner.Diagnostics;
+import scanner.IScanner;
+import token.TokenBuffer;
 import token.TokenType;
-import token.Token;
 import ast.*;
 
 import java.util.ArrayList;
+import java.util.function.Consumer;
 /**
  * La classe Parser implementa un analizzatore sintattico a discesa ricorsiva 
  * per il linguaggio 'ac' 
@@ -16,10 +17,50 @@ import java.util.ArrayList;
  */
 
 public class Parser {
-	private scanner.Scanner sc;
+	/**
+	 * Eccezione preallocata e senza stack trace usata in modalita' recupero per
+	 * risalire fino a {@link #parseDSs()}: l'errore e' gia' stato registrato.
+	 */
+	private static final SyntacticException RECUPERO = new SyntacticException("Errore sintattico registrato", false);
+
+	private TokenSource src;
+	/** Destinazione degli errori sintattici in modalita' recupero, {@code null} in modalita' normale. */
+	private Diagnostics diagnostics;
 
-	public Parser(Scanner sc) {
-		this.sc = sc;
+	public Parser(IScanner sc) {
+		this.src = new ScannerSource(sc);
+	}
+	/**
+	 * Costruisce un parser che consuma per indice i token gia' prodotti in modalita' batch
+	 * (vedi {@link scanner.DfaScanner#lexAll()}), senza creare oggetti Token.
+	 *
+	 * @param tokens il buffer dei token del programma, terminato da EOF
+	 */
+	public Parser(TokenBuffer tokens) {
+		this.src = new BufferSource(tokens);
+	}
+	/**
+	 * Costruisce un parser per i soli token [da, fine) del buffer; il token di indice
+	 * {@code fine} viene visto come EOF (vedi {@link ParallelParser}).
+	 *
+	 * @param tokens il buffer dei token del programma
+	 * @param da primo token da analizzare, inizio di uno statement
+	 * @param fine primo token escluso, subito dopo un {@code ;} o l'EOF del buffer
+	 */
+	Parser(TokenBuffer tokens, int da, int fine) {
+		this.src = new BufferSource(tokens, da, fine);
+	}
+	/**
+	 * Attiva la modalita' recupero: ogni errore sintattico viene registrato in
+	 * {@code diagnostics} e l'analisi riprende dopo il prossimo {@code ;}, cosi' che
+	 * un solo passaggio riporti tutti gli errori. I token {@link TokenType#ERROR}
+	 * prodotti da uno scanner in modalita' recupero non vengono segnalati una seconda volta.
+	 * L'AST restituito contiene solo gli statement analizzati senza errori.
+	 *
+	 * @param diagnostics dove registrare gli errori, {@code null} per tornare alla modalita' normale
+	 */
+	public void setDiagnostics(Diagnostics diagnostics) {
+		this.diagnostics = diagnostics;
 	}
 	/**
      * Avvia l'analisi sintattica del programma. 
@@ -28,16 +69,22 @@ public class Parser {
      * @throws SyntacticException Se viene riscontrato un errore di sintassi o un errore lessicale durante il parsing.
      */
 	 public NodeProgram parse() throws SyntacticException {return this.parsePrg(); }
+	/**
+	 * Analizza il programma uno statement alla volta, senza costruire il {@link NodeProgram}:
+	 * ogni {@link NodeDecSt} viene passato ad {@code azione} appena riconosciuto e non viene
+	 * conservato dal parser, cosi' che la memoria occupata non dipenda dalla lunghezza del programma.
+	 * Gli statement sono consegnati nello stesso ordine di {@link NodeProgram#getDecSts()}.
+	 *
+	 * @param azione chiamata per ogni dichiarazione o istruzione del programma
+	 * @throws SyntacticException Se viene riscontrato un errore di sintassi o un errore lessicale durante il parsing.
+	 */
+	public void parse(Consumer<? super NodeDecSt> azione) throws SyntacticException {
+		parseInizio();
+		parseDSs(azione);
+		match(TokenType.EOF);
+	}
 	 
 
-	private Token peekWithChaining() throws SyntacticException {
-		try {
-			return sc.peekToken();
-		} catch (LexicalException e) {
-			// Chaining formale: passo l'eccezione originale come causa [5, 6]
-			throw new SyntacticException("Errore lessicale durante l'ispezione del token", e);
-		}
-	}
 	/**
      * Analizza il non terminale Prg -> DSs $.
      * * @return Un oggetto {@link NodeProgram} contenente la lista di dichiarazioni e istruzioni.
@@ -45,47 +92,62 @@ public class Parser {
      * @throws SyntacticException In caso di violazione della grammatica o mancanza di EOF.
      */
 	private NodeProgram parsePrg() throws SyntacticException {
-		Token tk = peekWithChaining();
-		switch (tk.getType()) {
+		parseInizio();
+		ArrayList<NodeDecSt>decSts = new ArrayList<>();
+		parseDSs(decSts::add);
+		match(TokenType.EOF);
+		return new NodeProgram(decSts);
+	}
+	/**
+	 * Controlla che il primo token possa iniziare un programma (Prg -> DSs $).
+	 * @throws SyntacticException Se il token non e' valido come inizio del programma.
+	 */
+	private void parseInizio() throws SyntacticException {
+		TokenType tk = src.peekType();
+		switch (tk) {
 		case TYFLOAT, TYINT, ID, PRINT, EOF -> {
-			ArrayList<NodeDecSt>decSts = parseDSs();
-			match(TokenType.EOF);
-			return new NodeProgram(decSts);
 		}
 		default -> {
-			throw new SyntacticException("Token" + tk.getType() + "non valido come inizio alla riga: " + tk.getRiga());
+			// in modalita' recupero l'errore viene registrato e superato da parseDSs
+			if (diagnostics == null)
+				throw new SyntacticException("Token" + tk + "non valido come inizio alla riga: " + src.peekRiga());
 		}
 		}
 	}
 	/**
      * Analizza una sequenza di dichiarazioni e istruzioni (DSs).
-     * Gestisce la ricorsione della grammatica per accumulare i nodi in una lista.
-     * * @return Una {@link ArrayList} di {@link NodeDecSt}.
+     * La ricorsione destra della grammatica (DSs -> Dcl DSs | Stm DSs | epsilon) e'
+     * svolta in un ciclo che consegna i nodi uno alla volta: tempo lineare nel numero
+     * di statement e profondita' dello stack costante.
+     * * @param decDtS riceve ogni {@link NodeDecSt} riconosciuto, nell'ordine del sorgente.
      * @throws SyntacticException In caso di errore sintattico.
      */
-	private ArrayList<NodeDecSt> parseDSs() throws SyntacticException {
-		Token tk = peekWithChaining();
-		ArrayList<NodeDecSt> decDtS = new ArrayList<>();
-		
-		switch (tk.getType()) {
-		case TYFLOAT, TYINT -> {
-			decDtS.add(parseDcl());
-			decDtS.addAll(parseDSs());
-		}
-		case ID, PRINT -> {
-			NodeStm stm=parseStm();
-			if(stm != null)
-				decDtS.add(stm);
-			decDtS.addAll(parseDSs());
-		}
-		case EOF -> {
-			return decDtS;
-		}
-		default -> {
-			throw new SyntacticException("Token" + tk.getType() + "non valido come inizio alla riga: " + tk.getRiga());
-		}
+	private void parseDSs(Consumer<? super NodeDecSt> decDtS) throws SyntacticException {
+		while (true) {
+			TokenType tk = src.peekType();
+			try {
+				switch (tk) {
+				case TYFLOAT, TYINT -> {
+					decDtS.accept(parseDcl());
+				}
+				case ID, PRINT -> {
+					NodeStm stm=parseStm();
+					if(stm != null)
+						decDtS.accept(stm);
+				}
+				case EOF -> {
+					return;
+				}
+				default -> {
+					throw errore("Token" + tk + "non valido come inizio alla riga: " + src.peekRiga());
+				}
+				}
+			} catch (SyntacticException e) {
+				if (e != RECUPERO)
+					throw e;
+				sincronizza();
+			}
 		}
-		return decDtS;
 	}
 	/**
 	 * Parsifica una dichiarazione
@@ -93,18 +155,18 @@ public class Parser {
 	 * @return Un oggetto {@link NodeDecl} che rappresenta la dichiarazione nell'AST.
 	 */
 	private NodeDecl parseDcl() throws SyntacticException {
-		Token tk = peekWithChaining();
-		switch (tk.getType()) {
+		TokenType tk = src.peekType();
+		switch (tk) {
 		case TYFLOAT, TYINT -> {
+			long span = src.peekSpan();
 			LangType type=parseTy();
-			Token idToken=match(TokenType.ID);
+			NodeId idnodo=matchId();
 			NodeExpr expr=parseDclP();
-			NodeId idnodo= new NodeId(idToken.getValore());
-			NodeDecl node= new NodeDecl(type,idnodo,expr);
+			NodeDecl node= posiziona(new NodeDecl(type,idnodo,expr), span);
 			return node;
 		}
 		default -> {
-			throw new SyntacticException("Token" + tk.getType() + "non valido come inizio alla riga: " + tk.getRiga());
+			throw errore("Token" + tk + "non valido come inizio alla riga: " + src.peekRiga());
 		}
 		}
 	}
@@ -116,8 +178,8 @@ public class Parser {
      * @throws SyntacticException Se il token corrente non è un tipo valido.
 	 */
 	private LangType parseTy() throws SyntacticException {
-		Token tk = peekWithChaining();
-		switch (tk.getType()) {
+		TokenType tk = src.peekType();
+		switch (tk) {
 		case TYFLOAT -> {
 			match(TokenType.TYFLOAT);
 			return LangType.FLOAT;
@@ -127,7 +189,7 @@ public class Parser {
 			return LangType.INT;
 		}
 		default ->
-			throw new SyntacticException("Token" + tk.getType() + "non valido come inizio alla riga: " + tk.getRiga());
+			throw errore("Token" + tk + "non valido come inizio alla riga: " + src.peekRiga());
 		}
 	}
 	/**
@@ -138,8 +200,8 @@ public class Parser {
      * @throws SyntacticException Se la sintassi dopo l'identificatore è errata.
      */
 	private NodeExpr parseDclP() throws SyntacticException {
-		Token tk = peekWithChaining();
-		switch (tk.getType()) {
+		TokenType tk = src.peekType();
+		switch (tk) {
 		case SEMI -> {
 			match(TokenType.SEMI);
 			return null;
@@ -151,8 +213,8 @@ public class Parser {
 			return exp;
 		}
 		default -> {
-			throw new SyntacticException(
-					"Token " + tk.getType() + " non valido come inizio alla riga: " + tk.getRiga());
+			throw errore(
+					"Token " + tk + " non valido come inizio alla riga: " + src.peekRiga());
 		}
 		}
 
@@ -166,37 +228,37 @@ public class Parser {
      * @throws SyntacticException Se l'istruzione è malformata.
      */
 	private NodeStm parseStm() throws SyntacticException {
-		Token tk = peekWithChaining();
-		switch (tk.getType()) {
+		TokenType tk = src.peekType();
+		switch (tk) {
 		case ID -> {
-			Token idtk = match(TokenType.ID);
-			NodeId idNodo= new NodeId(idtk.getValore());
+			NodeId idNodo= matchId();
 			LangOper op =parseOp();
 			NodeExpr exp=parseExp();
 			match(TokenType.SEMI);
 			
+			long span = idNodo.getSpan();
 			if(op == LangOper.ASSIGN) {
-				return new NodeAssign(idNodo,exp);
+				return posiziona(new NodeAssign(idNodo,exp), span);
 			}
 			else {
-				NodeDeref deref = new NodeDeref(idNodo);
-				NodeBinOp binop= new NodeBinOp(op,deref,exp);
-				return new NodeAssign(idNodo,binop);
+				NodeDeref deref = posiziona(new NodeDeref(idNodo), span);
+				NodeBinOp binop= posiziona(new NodeBinOp(op,deref,exp), span);
+				return posiziona(new NodeAssign(idNodo,binop), span);
 			}
 			
 		}
 		case PRINT -> {
+			long span = src.peekSpan();
 			match(TokenType.PRINT);
-			Token idtoken = match(TokenType.ID);//il parser legge l'id
+			NodeId idnodo = matchId();//il parser legge l'id e lo mette nella scatola "piccola"
 			match(TokenType.SEMI);
-			
-			NodeId idnodo = new NodeId(idtoken.getValore());//mette nella scatola "piccola" il valore
-			return new NodePrint(idnodo);
+
+			return posiziona(new NodePrint(idnodo), span);
 			
 		}
 		default -> {
-			throw new SyntacticException(
-					"Token " + tk.getType() + " non valido come inizio alla riga: " + tk.getRiga());
+			throw errore(
+					"Token " + tk + " non valido come inizio alla riga: " + src.peekRiga());
 		}
 		}
 	}
@@ -207,47 +269,50 @@ public class Parser {
      * @throws SyntacticException Se l'espressione non inizia con un token valido.
      */
 	private NodeExpr parseExp() throws SyntacticException{
-		Token tk= peekWithChaining();
-		switch(tk.getType()) {
+		TokenType tk = src.peekType();
+		switch(tk) {
 		case ID,FLOAT,INT->{
 			NodeExpr left=parseTr();
 			return parseExpP(left);
 		}
 		default ->{
-			throw new SyntacticException(
-					"Token " + tk.getType() + " non valido come inizio alla riga: " + tk.getRiga());
+			throw errore(
+					"Token " + tk + " non valido come inizio alla riga: " + src.peekRiga());
 		}
 		}
 	}
 	/**
      * Gestisce la ricorsione destra per l'addizione e la sottrazione (ExpP).
      * <p>Grammatica: ExpP -> + Tr ExpP | - Tr ExpP | SEMI</p>
+     * <p>La ricorsione e' svolta in un ciclo: ogni operatore diventa la radice di un nuovo
+     * {@link NodeBinOp} che ha come figlio sinistro l'albero costruito fin qui, cosi' che
+     * l'albero resti associativo a sinistra senza consumare stack.</p>
      * * @param left Il sotto-albero sinistro già analizzato.
      * @return Un nodo {@link NodeExpr} che integra l'operatore e l'operando destro, 
      * o il nodo 'left' se non ci sono più operatori additivi.
      * @throws SyntacticException Se viene trovato un operatore senza un termine valido.
      */
 	private NodeExpr parseExpP(NodeExpr left) throws SyntacticException{
-		Token tk= peekWithChaining();
-		switch(tk.getType()) {
-		case PLUS ->{
-			match(TokenType.PLUS);
-			NodeExpr right=parseTr();
-			NodeBinOp nodeop=new NodeBinOp(LangOper.PLUS,left,right);
-			return parseExpP(nodeop);
-		}
-		case MINUS ->{
-			match(TokenType.MINUS);
-			NodeExpr right = parseTr();
-			NodeBinOp nodeop=new NodeBinOp(LangOper.MINUS,left,right);
-			return parseExpP(nodeop);
-		}
-		case SEMI ,EOF->{
-			return left;
-		}
-		default->{
-			throw new SyntacticException("Token " + tk.getType() + " non valido come inizio alla riga: " + tk.getRiga());
-		}
+		while (true) {
+			TokenType tk = src.peekType();
+			switch(tk) {
+			case PLUS ->{
+				match(TokenType.PLUS);
+				NodeExpr right=parseTr();
+				left=posiziona(new NodeBinOp(LangOper.PLUS,left,right), left.getSpan());
+			}
+			case MINUS ->{
+				match(TokenType.MINUS);
+				NodeExpr right = parseTr();
+				left=posiziona(new NodeBinOp(LangOper.MINUS,left,right), left.getSpan());
+			}
+			case SEMI ,EOF->{
+				return left;
+			}
+			default->{
+				throw errore("Token " + tk + " non valido come inizio alla riga: " + src.peekRiga());
+			}
+			}
 		}
 	}
 	/**
@@ -257,49 +322,48 @@ public class Parser {
      * @throws SyntacticException Se il termine non inizia con un valore valido.
      */
 	private NodeExpr parseTr() throws SyntacticException{
-		Token tk= peekWithChaining();
-		switch(tk.getType()) {
+		TokenType tk = src.peekType();
+		switch(tk) {
 		case ID, FLOAT, INT ->{
 			NodeExpr left=parseVal();
 			return parseTrP(left);
 		}
 		default->{
-			throw new SyntacticException("Token " + tk.getType() + " non valido come inizio alla riga: " + tk.getRiga());
+			throw errore("Token " + tk + " non valido come inizio alla riga: " + src.peekRiga());
 		}
 		}
 	}
 	/**
      * Gestisce la ricorsione destra per la moltiplicazione e la divisione (TrP).
      * <p>Grammatica: TrP -> * Val TrP | / Val TrP | epsilon</p>
+     * <p>Come {@link #parseExpP(NodeExpr)}, la ricorsione e' svolta in un ciclo.</p>
      * * @param left Il sotto-albero sinistro già analizzato.
      * @return Un nodo {@link NodeExpr} integrato con operatori moltiplicativi, 
      * o il nodo 'left' se non ci sono più operatori.
      * @throws SyntacticException Se la sintassi del termine è incompleta.
      */
 	private NodeExpr parseTrP(NodeExpr left) throws SyntacticException{
-		Token tk= peekWithChaining();
-		switch(tk.getType()) {
-		case TIMES->{
-			match(TokenType.TIMES);
-			NodeExpr right=parseVal();
-			NodeBinOp nodeop= new NodeBinOp(LangOper.TIMES,left,right);
-			return parseTrP(nodeop);
-		}
-		case DIVIDE->{
-			match(TokenType.DIVIDE);
-			NodeExpr right=parseVal();
-			NodeBinOp nodeop= new NodeBinOp(LangOper.DIVIDE,left,right);
-			return parseTrP(nodeop);
-			
-		}
-		case MINUS,PLUS,SEMI ->{
-			return left;
-		}
-		default->{
-			throw new SyntacticException("Token " + tk.getType() + " non valido come inizio alla riga: " + tk.getRiga());
-		}
+		while (true) {
+			TokenType tk = src.peekType();
+			switch(tk) {
+			case TIMES->{
+				match(TokenType.TIMES);
+				NodeExpr right=parseVal();
+				left= posiziona(new NodeBinOp(LangOper.TIMES,left,right), left.getSpan());
+			}
+			case DIVIDE->{
+				match(TokenType.DIVIDE);
+				NodeExpr right=parseVal();
+				left= posiziona(new NodeBinOp(LangOper.DIVIDE,left,right), left.getSpan());
+			}
+			case MINUS,PLUS,SEMI ->{
+				return left;
+			}
+			default->{
+				throw errore("Token " + tk + " non valido come inizio alla riga: " + src.peekRiga());
+			}
+			}
 		}
-		
 	}
 	/**
      * Analizza i valori atomici di un'espressione (Val).
@@ -308,23 +372,20 @@ public class Parser {
      * @throws SyntacticException Se il token non è un valore costante o un identificatore.
      */
 	private NodeExpr parseVal() throws SyntacticException{
-		Token tk=peekWithChaining();
-		switch(tk.getType()) {
+		TokenType tk = src.peekType();
+		switch(tk) {
 		case INT -> {
-			Token t = match(TokenType.INT);
-			return new NodeCost(t.getValore(),LangType.INT);
+			return matchCost(LangType.INT);
 		}
 		case FLOAT -> { 
-			Token t = match(TokenType.FLOAT);
-			return new NodeCost(t.getValore(),LangType.FLOAT);
+			return matchCost(LangType.FLOAT);
 		}
 		case ID -> {
-			Token t =match(TokenType.ID);
-			NodeId node = new NodeId(t.getValore());
-			return new NodeDeref(node);
+			NodeId node = matchId();
+			return posiziona(new NodeDeref(node), node.getSpan());
 		}
 		default->{
-			throw new SyntacticException("Token " + tk.getType() + " non valido come inizio alla riga: " + tk.getRiga());
+			throw errore("Token " + tk + " non valido come inizio alla riga: " + src.peekRiga());
 		}
 		}
 	}
@@ -335,24 +396,24 @@ public class Parser {
      * @throws SyntacticException Se l'operatore non è riconosciuto.
      */
 	private LangOper parseOp() throws SyntacticException{
-		Token tk=peekWithChaining();
-		switch(tk.getType()) {
+		TokenType tk = src.peekType();
+		switch(tk) {
 		case ASSIGN ->{
 			match(TokenType.ASSIGN);
 			return LangOper.ASSIGN;
 		}
 		case OP_ASSIGN -> {
-			match(TokenType.OP_ASSIGN);
-			if(tk.getValore().equals("+=")) return LangOper.PLUS;
-			if(tk.getValore().equals("-=")) return LangOper.MINUS;
-			if(tk.getValore().equals("*=")) return LangOper.TIMES;
-			if(tk.getValore().equals("/=")) return LangOper.DIVIDE;
-			throw new SyntacticException("Operatore composto non riconosciuto: "+ tk.getValore());
+			String op = matchValore(TokenType.OP_ASSIGN);
+			if(op.equals("+=")) return LangOper.PLUS;
+			if(op.equals("-=")) return LangOper.MINUS;
+			if(op.equals("*=")) return LangOper.TIMES;
+			if(op.equals("/=")) return LangOper.DIVIDE;
+			throw errore("Operatore composto non riconosciuto: "+ op);
 
 
 		}
 		default->{
-			throw new SyntacticException("Atteso operatore di assegnamento alla riga: "+tk.getRiga());
+			throw errore("Atteso operatore di assegnamento alla riga: "+src.peekRiga());
 		}
 		}
 	}
@@ -362,23 +423,102 @@ public class Parser {
      * Verifica che il prossimo token sia del tipo atteso e lo consuma.
      * <p>Implementa il controllo sintattico fondamentale del parser a discesa ricorsiva.</p>
      * * @param Type Il tipo di token ({@link TokenType}) atteso.
-     * @return Il {@link Token} consumato.
      * @throws SyntacticException Se il token corrente non corrisponde a Type 
      * o se si verifica un errore lessicale.
      */
-	private Token match(TokenType Type) throws SyntacticException {
-		Token t = peekWithChaining();
-		if (Type.equals(t.getType())) {
-			try {
-				return sc.nextToken(); // Consuma e ritorna il token [7, 8]
-			} catch (LexicalException e) {
-				throw new SyntacticException("Errore lessicale durante il consumo del token", e);
-			}
+	private void match(TokenType Type) throws SyntacticException {
+		TokenType t = src.peekType();
+		if (Type.equals(t)) {
+			src.advance(); // Consuma il token
 		} else {
-			throw new SyntacticException(
-					"Errore Sintattico: atteso " + Type + " ma trovato " + t.getType() + " alla riga " + t.getRiga());
+			throw errore(
+					"Errore Sintattico: atteso " + Type + " ma trovato " + t + " alla riga " + src.peekRiga());
 
 		}
 	}
+	/**
+	 * Costruisce l'eccezione per un errore sintattico sul token corrente.
+	 * In modalita' recupero registra l'errore (a meno che il token corrente sia un
+	 * token ERROR, gia' segnalato dallo scanner) e restituisce l'eccezione preallocata
+	 * {@link #RECUPERO}, che non costa nessuna visita dello stack.
+	 * @param messaggio la descrizione dell'errore.
+	 * @return l'eccezione da sollevare.
+	 * @throws SyntacticException Se la lettura del token causa un errore lessicale.
+	 */
+	private SyntacticException errore(String messaggio) throws SyntacticException {
+		if (diagnostics == null) {
+			return new SyntacticException(messaggio);
+		}
+		if (src.peekType() != TokenType.ERROR) {
+			diagnostics.sintattica(src.peekRiga(), messaggio);
+		}
+		return RECUPERO;
+	}
+	/**
+	 * Recupero in modalita' panico: scarta i token fino al prossimo {@code ;}
+	 * compreso, o fino a EOF.
+	 * @throws SyntacticException Se la lettura del token causa un errore lessicale.
+	 */
+	private void sincronizza() throws SyntacticException {
+		TokenType tk;
+		while ((tk = src.peekType()) != TokenType.SEMI && tk != TokenType.EOF)
+			src.advance();
+		if (tk == TokenType.SEMI)
+			src.advance();
+	}
+	/**
+	 * Come {@link #match(TokenType)}, ma restituisce il lessema del token consumato.
+	 * Usato solo per i token che portano un valore nell'AST (INT, FLOAT, OP_ASSIGN).
+	 * @param Type Il tipo di token atteso.
+	 * @return il lessema del token consumato.
+	 * @throws SyntacticException Se il token corrente non corrisponde a Type.
+	 */
+	private String matchValore(TokenType Type) throws SyntacticException {
+		TokenType t = src.peekType();
+		if (!Type.equals(t)) {
+			match(Type);
+		}
+		String valore = src.peekValore();
+		src.advance();
+		return valore;
+	}
+	/**
+	 * Consuma il letterale corrente (INT o FLOAT) e costruisce la {@link NodeCost},
+	 * che porta sia il lessema sia il valore gia' calcolato dallo scanner.
+	 * @param type il tipo della costante
+	 * @return il nodo della costante consumata.
+	 * @throws SyntacticException Se la lettura del token causa un errore lessicale.
+	 */
+	private NodeCost matchCost(LangType type) throws SyntacticException {
+		NodeCost cost = new NodeCost(src.peekValore(), type, src.peekNumero(), src.peekScala());
+		cost.setSpan(src.peekSpan());
+		src.advance();
+		return cost;
+	}
+	/**
+	 * Consuma un identificatore e costruisce il relativo {@link NodeId}, che porta
+	 * il nome condiviso del pool e il numero assegnato in fase lessicale.
+	 * @return il nodo dell'identificatore consumato.
+	 * @throws SyntacticException Se il token corrente non e' un identificatore.
+	 */
+	private NodeId matchId() throws SyntacticException {
+		if (src.peekType() != TokenType.ID) {
+			match(TokenType.ID);
+		}
+		NodeId id = new NodeId(src.peekValore(), src.peekSym());
+		id.setSpan(src.peekSpan());
+		src.advance();
+		return id;
+	}
+	/**
+	 * Registra nel nodo la posizione del suo primo token.
+	 * @param nodo il nodo appena costruito.
+	 * @param span la posizione (vedi {@link token.Span}).
+	 * @return lo stesso nodo.
+	 */
+	private static <T extends NodeAST> T posiziona(T nodo, long span) {
+		nodo.setSpan(span);
+		return nodo;
+	}
 
 }
@@ -0,0 +1,226 @@
+package parser;
+
+import scanner.IScanner;
+import token.Span;
+import token.TokenBuffer;
+import token.TokenType;
+/**
+ * Riconoscitore sintattico per il linguaggio ac: applica la stessa grammatica del
+ * {@link Parser} (Prg, DSs, Dcl, DclP, Stm, Op, Exp, ExpP, Tr, TrP, Val) ma non costruisce
+ * l'AST, e dice solo se il programma e' sintatticamente corretto.
+ *
+ * <p>Non alloca nodi ne' liste: su un {@link TokenBuffer} il riconoscimento non alloca
+ * nulla, quindi la validazione di molti file costa poco piu' dell'analisi lessicale.
+ * Il primo errore interrompe l'analisi; messaggio, riga e posizione del token
+ * errato sono disponibili con {@link #getErrore()}, {@link #getRiga()} e {@link #getSpan()},
+ * e il messaggio coincide con quello della {@link SyntacticException} del {@link Parser}.</p>
+ */
+public class Recognizer {
+	/**
+	 * Eccezione preallocata e senza stack trace con cui si risale fino a {@link #recognize()}:
+	 * l'errore e' gia' stato registrato.
+	 */
+	private static final SyntacticException FALLITO = new SyntacticException("Errore sintattico registrato", false);
+
+	private final TokenSource src;
+	private String errore;
+	private int riga = -1;
+	private long span = Span.NESSUNO;
+
+	/**
+	 * @param sc lo scanner del sorgente
+	 */
+	public Recognizer(IScanner sc) {
+		this.src = new ScannerSource(sc);
+	}
+
+	/**
+	 * Costruisce un riconoscitore che legge per indice i token gia' prodotti in modalita'
+	 * batch (vedi {@link scanner.DfaScanner#lexAll()}).
+	 *
+	 * @param tokens il buffer dei token del programma, terminato da EOF
+	 */
+	public Recognizer(TokenBuffer tokens) {
+		this.src = new BufferSource(tokens);
+	}
+
+	/**
+	 * Riconosce l'intero programma (Prg -> DSs $).
+	 *
+	 * @return {@code true} se il programma e' sintatticamente corretto
+	 */
+	public boolean recognize() {
+		try {
+			prg();
+			return true;
+		} catch (SyntacticException e) {
+			if (e != FALLITO) {
+				// errore lessicale: la posizione non e' piu' leggibile dal flusso dei token
+				errore = e.getCause() != null ? e.getMessage() + ": " + e.getCause().getMessage() : e.getMessage();
+			}
+			return false;
+		}
+	}
+
+	/**
+	 * @return il messaggio del primo errore, {@code null} se il programma e' corretto
+	 */
+	public String getErrore() {
+		return errore;
+	}
+
+	/**
+	 * @return la riga del token errato, -1 se il programma e' corretto o l'errore e' lessicale
+	 */
+	public int getRiga() {
+		return riga;
+	}
+
+	/**
+	 * @return la posizione del token errato (vedi {@link Span}), {@link Span#NESSUNO} se non nota
+	 */
+	public long getSpan() {
+		return span;
+	}
+
+	private void prg() throws SyntacticException {
+		TokenType tk = src.peekType();
+		switch (tk) {
+		case TYFLOAT, TYINT, ID, PRINT, EOF -> {
+		}
+		default -> throw errore("Token" + tk + "non valido come inizio alla riga: " + src.peekRiga());
+		}
+		dSs();
+		match(TokenType.EOF);
+	}
+
+	/** DSs -> Dcl DSs | Stm DSs | epsilon, svolta in un ciclo come nel {@link Parser}. */
+	private void dSs() throws SyntacticException {
+		while (true) {
+			TokenType tk = src.peekType();
+			switch (tk) {
+			case TYFLOAT, TYINT -> dcl();
+			case ID, PRINT -> stm();
+			case EOF -> {
+				return;
+			}
+			default -> throw errore("Token" + tk + "non valido come inizio alla riga: " + src.peekRiga());
+			}
+		}
+	}
+
+	/** Dcl -> Ty id DclP, con Ty -> TYFLOAT | TYINT */
+	private void dcl() throws SyntacticException {
+		src.advance();
+		match(TokenType.ID);
+		dclP();
+	}
+
+	/** DclP -> ; | = Exp ; */
+	private void dclP() throws SyntacticException {
+		TokenType tk = src.peekType();
+		switch (tk) {
+		case SEMI -> src.advance();
+		case ASSIGN -> {
+			src.advance();
+			exp();
+			match(TokenType.SEMI);
+		}
+		default -> throw errore("Token " + tk + " non valido come inizio alla riga: " + src.peekRiga());
+		}
+	}
+
+	/** Stm -> id Op Exp ; | print id ; */
+	private void stm() throws SyntacticException {
+		if (src.peekType() == TokenType.ID) {
+			src.advance();
+			op();
+			exp();
+		} else {
+			src.advance();
+			match(TokenType.ID);
+		}
+		match(TokenType.SEMI);
+	}
+
+	/**
+	 * Op -> ASSIGN | OP_ASSIGN. Gli scanner producono OP_ASSIGN solo per i quattro
+	 * operatori composti, quindi il lessema non viene controllato.
+	 */
+	private void op() throws SyntacticException {
+		switch (src.peekType()) {
+		case ASSIGN, OP_ASSIGN -> src.advance();
+		default -> throw errore("Atteso operatore di assegnamento alla riga: " + src.peekRiga());
+		}
+	}
+
+	/** Exp -> Tr ExpP, con ExpP -> + Tr ExpP | - Tr ExpP | epsilon svolta in un ciclo */
+	private void exp() throws SyntacticException {
+		TokenType tk = src.peekType();
+		switch (tk) {
+		case ID, FLOAT, INT -> tr();
+		default -> throw errore("Token " + tk + " non valido come inizio alla riga: " + src.peekRiga());
+		}
+		while (true) {
+			tk = src.peekType();
+			switch (tk) {
+			case PLUS, MINUS -> {
+				src.advance();
+				tr();
+			}
+			case SEMI, EOF -> {
+				return;
+			}
+			default -> throw errore("Token " + tk + " non valido come inizio alla riga: " + src.peekRiga());
+			}
+		}
+	}
+
+	/** Tr -> Val TrP, con TrP -> * Val TrP | / Val TrP | epsilon svolta in un ciclo */
+	private void tr() throws SyntacticException {
+		val();
+		while (true) {
+			TokenType tk = src.peekType();
+			switch (tk) {
+			case TIMES, DIVIDE -> {
+				src.advance();
+				val();
+			}
+			case MINUS, PLUS, SEMI -> {
+				return;
+			}
+			default -> throw errore("Token " + tk + " non valido come inizio alla riga: " + src.peekRiga());
+			}
+		}
+	}
+
+	/** Val -> intVal | floatVal | id */
+	private void val() throws SyntacticException {
+		TokenType tk = src.peekType();
+		switch (tk) {
+		case INT, FLOAT, ID -> src.advance();
+		default -> throw errore("Token " + tk + " non valido come inizio alla riga: " + src.peekRiga());
+		}
+	}
+
+	private void match(TokenType tipo) throws SyntacticException {
+		TokenType t = src.peekType();
+		if (t == tipo) {
+			src.advance();
+		} else {
+			throw errore("Errore Sintattico: atteso " + tipo + " ma trovato " + t + " alla riga " + src.peekRiga());
+		}
+	}
+
+	/**
+	 * Registra l'errore sul token corrente; il messaggio viene costruito solo qui,
+	 * quindi il riconoscimento di un programma corretto non crea stringhe.
+	 * @return l'eccezione preallocata da sollevare.
+	 */
+	private SyntacticException errore(String messaggio) throws SyntacticException {
+		errore = messaggio;
+		riga = src.peekRiga();
+		span = src.peekSpan();
+		return FALLITO;
+	}
+}
@@ -0,0 +1,70 @@
+package parser;
+
+import scanner.IScanner;
+import scanner.LexicalException;
+import token.Token;
+import token.TokenType;
+/**
+ * {@link TokenSource} che legge i token uno alla volta da uno {@link IScanner},
+ * trasformando gli errori lessicali in {@link SyntacticException} (chaining).
+ */
+class ScannerSource implements TokenSource {
+	private final IScanner sc;
+
+	ScannerSource(IScanner sc) {
+		this.sc = sc;
+	}
+
+	private Token peek() throws SyntacticException {
+		try {
+			return sc.peekToken();
+		} catch (LexicalException e) {
+			// Chaining formale: passo l'eccezione originale come causa
+			throw new SyntacticException("Errore lessicale durante l'ispezione del token", e);
+		}
+	}
+
+	@Override
+	public TokenType peekType() throws SyntacticException {
+		return peek().getType();
+	}
+
+	@Override
+	public int peekRiga() throws SyntacticException {
+		return peek().getRiga();
+	}
+
+	@Override
+	public String peekValore() throws SyntacticException {
+		return peek().getValore();
+	}
+
+	@Override
+	public int peekSym() throws SyntacticException {
+		return peek().getSym();
+	}
+
+	@Override
+	public long peekNumero() throws SyntacticException {
+		return peek().getNumero();
+	}
+
+	@Override
+	public int peekScala() throws SyntacticException {
+		return peek().getScala();
+	}
+
+	@Override
+	public long peekSpan() throws SyntacticException {
+		return peek().getSpan();
+	}
+
+	@Override
+	public void advance() throws SyntacticException {
+		try {
+			sc.nextToken();
+		} catch (LexicalException e) {
+			throw new SyntacticException("Errore lessicale durante il consumo del token", e);
+		}
+	}
+}
@@ -9,4 +9,9 @@ public class SyntacticException extends Exception {
 	public SyntacticException(String message, Throwable cause) {
 		super(message, cause);
 	}
+
+	// Eccezione senza stack trace: il Parser la prealloca una volta sola per la modalita' recupero
+	SyntacticException(String message, boolean writableStackTrace) {
+		super(message, null, false, writableStackTrace);
+	}
 }
@@ -0,0 +1,52 @@
+package parser;
+
+import token.TokenType;
+/**
+ * Flusso di token consumato dal {@link Parser}.
+ *
+ * <p>Astrae la provenienza dei token: uno {@link scanner.IScanner} che li produce
+ * uno alla volta, oppure un {@link token.TokenBuffer} letto per indice.
+ * Il Parser ispeziona sempre il token corrente e lo consuma con {@link #advance()}.</p>
+ */
+interface TokenSource {
+	/**
+	 * @return il tipo del token corrente
+	 * @throws SyntacticException se la lettura del token causa un errore lessicale
+	 */
+	TokenType peekType() throws SyntacticException;
+	/**
+	 * @return la riga del token corrente
+	 * @throws SyntacticException se la lettura del token causa un errore lessicale
+	 */
+	int peekRiga() throws SyntacticException;
+	/**
+	 * @return il lessema del token corrente
+	 * @throws SyntacticException se la lettura del token causa un errore lessicale
+	 */
+	String peekValore() throws SyntacticException;
+	/**
+	 * @return il numero nel pool del token corrente se e' un identificatore, -1 altrimenti
+	 * @throws SyntacticException se la lettura del token causa un errore lessicale
+	 */
+	int peekSym() throws SyntacticException;
+	/**
+	 * @return il valore non scalato del token corrente se e' un letterale INT o FLOAT
+	 * @throws SyntacticException se la lettura del token causa un errore lessicale
+	 */
+	long peekNumero() throws SyntacticException;
+	/**
+	 * @return le cifre decimali del token corrente se e' un letterale FLOAT, 0 altrimenti
+	 * @throws SyntacticException se la lettura del token causa un errore lessicale
+	 */
+	int peekScala() throws SyntacticException;
+	/**
+	 * @return la posizione del token corrente (vedi {@link token.Span})
+	 * @throws SyntacticException se la lettura del token causa un errore lessicale
+	 */
+	long peekSpan() throws SyntacticException;
+	/**
+	 * Consuma il token corrente.
+	 * @throws SyntacticException se la lettura del token causa un errore lessicale
+	 */
+	void advance() throws SyntacticException;
+}
@@ -0,0 +1,471 @@
+package scanner;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import token.*;
+/**
+ * Analizzatore lessicale per il linguaggio ac guidato da tabelle.
+ *
+ * <p>Ogni byte del sorgente viene ridotto a una classe di caratteri tramite un array
+ * primitivo ({@link #CLASSE}); il riconoscimento avviene poi con una tabella di
+ * transizione precalcolata ({@link #DELTA}) di un automa a stati finiti deterministico
+ * che riconosce anche le parole chiave {@code int}, {@code float} e {@code print}.
+ * Non vengono usati {@code Set<Character>} o {@code Map}: nessun boxing e nessun hashing.</p>
+ *
+ * <p>Produce la stessa sequenza di Token (tipo, riga e valore) dello {@link Scanner}
+ * e puo' essere scelto al suo posto tramite {@link ScannerKind}.</p>
+ */
+public class DfaScanner implements IScanner {
+	// Classi di caratteri
+	private static final byte C_ALTRO = 0, C_SPAZIO = 1, C_LETTERA = 2, C_CIFRA = 3, C_PUNTO = 4,
+			C_PIU = 5, C_MENO = 6, C_PER = 7, C_DIVISO = 8, C_UGUALE = 9, C_PUNTOVIRGOLA = 10,
+			C_I = 11, C_N = 12, C_T = 13, C_F = 14, C_L = 15, C_O = 16, C_A = 17, C_P = 18, C_R = 19;
+	private static final int NCLASSI = 20;
+
+	// Stati dell'automa
+	private static final byte S_INIZIO = 0, S_ID = 1,
+			S_I = 2, S_IN = 3, S_INT = 4,
+			S_F = 5, S_FL = 6, S_FLO = 7, S_FLOA = 8, S_FLOAT = 9,
+			S_P = 10, S_PR = 11, S_PRI = 12, S_PRIN = 13, S_PRINT = 14,
+			S_NUM = 15, S_PUNTO = 16, S_DEC1 = 17, S_DEC2 = 18, S_DEC3 = 19, S_DEC4 = 20, S_DEC5 = 21,
+			S_TROPPI_DEC = 22,
+			S_PIU = 23, S_MENO = 24, S_PER = 25, S_DIVISO = 26,
+			S_PIU_UGUALE = 27, S_MENO_UGUALE = 28, S_PER_UGUALE = 29, S_DIVISO_UGUALE = 30,
+			S_ASSIGN = 31, S_SEMI = 32, S_MORTO = 33;
+	private static final int NSTATI = 34;
+
+	/** Classe di ogni byte del sorgente (indicizzata con {@code b & 0xFF}). */
+	private static final byte[] CLASSE = new byte[256];
+	/** Tabella di transizione appiattita: {@code DELTA[stato * NCLASSI + classe]}. */
+	private static final byte[] DELTA = new byte[NSTATI * NCLASSI];
+	/** Tipo del token riconosciuto in ogni stato, {@code null} per gli stati non finali. */
+	private static final TokenType[] ACCETTA = new TokenType[NSTATI];
+	/** Lessema costante degli stati che riconoscono parole chiave, operatori e delimitatori. */
+	private static final String[] LESSEMA = new String[NSTATI];
+
+	static {
+		CLASSE[' '] = C_SPAZIO;
+		CLASSE['\t'] = C_SPAZIO;
+		CLASSE['\r'] = C_SPAZIO;
+		CLASSE['\n'] = C_SPAZIO;
+		for (char c = 'a'; c <= 'z'; c++)
+			CLASSE[c] = C_LETTERA;
+		for (char c = 'A'; c <= 'Z'; c++)
+			CLASSE[c] = C_LETTERA;
+		for (char c = '0'; c <= '9'; c++)
+			CLASSE[c] = C_CIFRA;
+		CLASSE['.'] = C_PUNTO;
+		CLASSE['+'] = C_PIU;
+		CLASSE['-'] = C_MENO;
+		CLASSE['*'] = C_PER;
+		CLASSE['/'] = C_DIVISO;
+		CLASSE['='] = C_UGUALE;
+		CLASSE[';'] = C_PUNTOVIRGOLA;
+		CLASSE['i'] = C_I;
+		CLASSE['n'] = C_N;
+		CLASSE['t'] = C_T;
+		CLASSE['f'] = C_F;
+		CLASSE['l'] = C_L;
+		CLASSE['o'] = C_O;
+		CLASSE['a'] = C_A;
+		CLASSE['p'] = C_P;
+		CLASSE['r'] = C_R;
+
+		java.util.Arrays.fill(DELTA, S_MORTO);
+
+		// Identificatori: ogni stato "alfanumerico" prosegue in S_ID, salvo i passi delle parole chiave
+		byte[] alfanumerici = { S_ID, S_I, S_IN, S_INT, S_F, S_FL, S_FLO, S_FLOA, S_FLOAT,
+				S_P, S_PR, S_PRI, S_PRIN, S_PRINT };
+		for (byte s : alfanumerici) {
+			arco(s, C_LETTERA, S_ID);
+			arco(s, C_CIFRA, S_ID);
+			for (byte c = C_I; c <= C_R; c++)
+				arco(s, c, S_ID);
+		}
+		arco(S_INIZIO, C_LETTERA, S_ID);
+		for (byte c = C_I; c <= C_R; c++)
+			arco(S_INIZIO, c, S_ID);
+		arco(S_INIZIO, C_I, S_I);
+		arco(S_I, C_N, S_IN);
+		arco(S_IN, C_T, S_INT);
+		arco(S_INIZIO, C_F, S_F);
+		arco(S_F, C_L, S_FL);
+		arco(S_FL, C_O, S_FLO);
+		arco(S_FLO, C_A, S_FLOA);
+		arco(S_FLOA, C_T, S_FLOAT);
+		arco(S_INIZIO, C_P, S_P);
+		arco(S_P, C_R, S_PR);
+		arco(S_PR, C_I, S_PRI);
+		arco(S_PRI, C_N, S_PRIN);
+		arco(S_PRIN, C_T, S_PRINT);
+
+		// Costanti numeriche: al massimo 5 cifre decimali
+		arco(S_INIZIO, C_CIFRA, S_NUM);
+		arco(S_NUM, C_CIFRA, S_NUM);
+		arco(S_NUM, C_PUNTO, S_PUNTO);
+		arco(S_PUNTO, C_CIFRA, S_DEC1);
+		arco(S_DEC1, C_CIFRA, S_DEC2);
+		arco(S_DEC2, C_CIFRA, S_DEC3);
+		arco(S_DEC3, C_CIFRA, S_DEC4);
+		arco(S_DEC4, C_CIFRA, S_DEC5);
+		arco(S_DEC5, C_CIFRA, S_TROPPI_DEC);
+
+		// Operatori, assegnamenti composti e delimitatori
+		arco(S_INIZIO, C_PIU, S_PIU);
+		arco(S_INIZIO, C_MENO, S_MENO);
+		arco(S_INIZIO, C_PER, S_PER);
+		arco(S_INIZIO, C_DIVISO, S_DIVISO);
+		arco(S_PIU, C_UGUALE, S_PIU_UGUALE);
+		arco(S_MENO, C_UGUALE, S_MENO_UGUALE);
+		arco(S_PER, C_UGUALE, S_PER_UGUALE);
+		arco(S_DIVISO, C_UGUALE, S_DIVISO_UGUALE);
+		arco(S_INIZIO, C_UGUALE, S_ASSIGN);
+		arco(S_INIZIO, C_PUNTOVIRGOLA, S_SEMI);
+
+		for (byte s : alfanumerici)
+			ACCETTA[s] = TokenType.ID;
+		finale(S_INT, TokenType.TYINT, "int");
+		finale(S_FLOAT, TokenType.TYFLOAT, "float");
+		finale(S_PRINT, TokenType.PRINT, "print");
+		ACCETTA[S_NUM] = TokenType.INT;
+		for (byte s = S_DEC1; s <= S_DEC5; s++)
+			ACCETTA[s] = TokenType.FLOAT;
+		finale(S_PIU, TokenType.PLUS, "+");
+		finale(S_MENO, TokenType.MINUS, "-");
+		finale(S_PER, TokenType.TIMES, "*");
+		finale(S_DIVISO, TokenType.DIVIDE, "/");
+		finale(S_PIU_UGUALE, TokenType.OP_ASSIGN, "+=");
+		finale(S_MENO_UGUALE, TokenType.OP_ASSIGN, "-=");
+		finale(S_PER_UGUALE, TokenType.OP_ASSIGN, "*=");
+		finale(S_DIVISO_UGUALE, TokenType.OP_ASSIGN, "/=");
+		finale(S_ASSIGN, TokenType.ASSIGN, "=");
+		finale(S_SEMI, TokenType.SEMI, ";");
+		// l'automa non si ferma mai in S_MORTO: scan() lo usa per i lessemi errati in modalita' recupero
+		ACCETTA[S_MORTO] = TokenType.ERROR;
+	}
+
+	private static void arco(byte da, byte classe, byte a) {
+		DELTA[da * NCLASSI + classe] = a;
+	}
+
+	private static void finale(byte stato, TokenType tipo, String lessema) {
+		ACCETTA[stato] = tipo;
+		LESSEMA[stato] = lessema;
+	}
+
+	private final ByteBuffer buffer;
+	private final int limit;
+	private int pos;
+	private int riga;
+	/** Offset del primo byte della riga corrente, per ricavare la colonna dei token. */
+	private int inizioRiga;
+	/**
+	 * Tabella in cui registrare l'inizio di ogni riga letta: la crea {@link #lexAll()}, che la
+	 * consegna al {@link TokenBuffer}; in modalita' token resta {@code null}.
+	 */
+	private LineMap righe;
+	private Token nextTk;
+	/** Pool in cui vengono internati gli identificatori riconosciuti. */
+	private final InternPool pool;
+	/** Inizio del lessema riconosciuto dall'ultima chiamata a {@link #scan()}. */
+	private int tkStart;
+	/** Buffer di appoggio riutilizzato per copiare i lessemi fuori dal sorgente. */
+	private byte[] lexeme = new byte[64];
+	/** Destinazione degli errori lessicali in modalita' recupero, {@code null} in modalita' normale. */
+	private Diagnostics diagnostics;
+	/** Vista little endian del sorgente usata dai percorsi veloci {@link Swar}, {@code null} se disattivati. */
+	private ByteBuffer parole;
+
+	/**
+     * Costruisce uno scanner che mappa in memoria il file sorgente.
+     *
+     * @param fileName percorso del file da analizzare
+     * @throws IOException se il file non esiste o non e' leggibile
+     */
+	public DfaScanner(String fileName) throws IOException {
+		this(MappedScanner.map(fileName));
+	}
+	/**
+	 * Costruisce uno scanner sui byte compresi tra position e limit del buffer.
+	 *
+	 * @param buffer il buffer contenente il sorgente ASCII
+	 */
+	public DfaScanner(ByteBuffer buffer) {
+		this(buffer, new InternPool());
+	}
+	/**
+	 * Costruisce uno scanner che interna gli identificatori in un pool esistente,
+	 * cosi' che i numeri degli identificatori siano condivisi con altri sorgenti.
+	 *
+	 * @param buffer il buffer contenente il sorgente ASCII
+	 * @param pool il pool degli identificatori
+	 */
+	public DfaScanner(ByteBuffer buffer, InternPool pool) {
+		this(buffer, pool, 1);
+	}
+	/**
+	 * Costruisce uno scanner su una porzione di sorgente che inizia alla riga indicata.
+	 *
+	 * @param buffer il buffer contenente il sorgente ASCII
+	 * @param pool il pool degli identificatori
+	 * @param riga numero della riga su cui si trova position
+	 */
+	public DfaScanner(ByteBuffer buffer, InternPool pool, int riga) {
+		this.pool = pool;
+		this.buffer = buffer;
+		this.pos = buffer.position();
+		this.limit = buffer.limit();
+		this.riga = riga;
+		// la prima riga puo' iniziare prima di position (es. rianalisi di una regione)
+		int inizioRiga = pos;
+		while (inizioRiga > 0 && buffer.get(inizioRiga - 1) != '\n')
+			inizioRiga--;
+		this.inizioRiga = inizioRiga;
+	}
+
+	/**
+	 * @return la tabella delle righe lette da {@link #lexAll()} (vedi {@link Span}),
+	 *         {@code null} in modalita' token
+	 */
+	public LineMap getLineMap() {
+		return righe;
+	}
+
+	@Override
+	public Token nextToken() throws LexicalException {
+		if (nextTk != null) {
+			Token t = nextTk;
+			nextTk = null;
+			return t;
+		}
+		int stato = scan();
+		Token tk = token(stato);
+		tk.setSpan(Span.of(tkStart, riga, tkStart - inizioRiga + 1));
+		return tk;
+	}
+
+	/** @return se lo stato finale riconosce una parola chiave */
+	private static boolean parolaChiave(int stato) {
+		return stato == S_INT || stato == S_FLOAT || stato == S_PRINT;
+	}
+
+	/**
+	 * Costruisce il token del lessema appena riconosciuto da {@link #scan()}.
+	 */
+	private Token token(int stato) {
+		if (stato < 0) {
+			return new Token(TokenType.EOF, riga, "EOF");
+		}
+		if (ACCETTA[stato] == TokenType.ID) {
+			int sym = pool.intern(buffer, tkStart, pos - tkStart);
+			return new Token(TokenType.ID, riga, pool.name(sym), sym);
+		}
+		if (parolaChiave(stato)) {
+			// come negli altri scanner anche le parole chiave sono internate nel pool
+			return new Token(ACCETTA[stato], riga, pool.name(pool.intern(buffer, tkStart, pos - tkStart)));
+		}
+		String valore = LESSEMA[stato];
+		if (valore == null) {
+			valore = slice(tkStart, pos);
+		}
+		TokenType tipo = ACCETTA[stato];
+		if (tipo == TokenType.INT) {
+			return new Token(tipo, riga, valore, Literals.nonScalato(valore), 0);
+		}
+		if (tipo == TokenType.FLOAT) {
+			// lo stato finale S_DECk conta gia' le cifre decimali
+			return new Token(tipo, riga, valore, Literals.nonScalato(valore), stato - S_DEC1 + 1);
+		}
+		return new Token(tipo, riga, valore);
+	}
+
+	/**
+	 * Analizza in un colpo solo tutto il sorgente rimanente (modalita' batch),
+	 * senza creare oggetti {@link Token}: il risultato e' un {@link TokenBuffer}
+	 * terminato dal token EOF, i cui lessemi sono sezioni del sorgente.
+	 *
+	 * @return il buffer con tutti i token del sorgente
+	 * @throws LexicalException al primo errore lessicale
+	 */
+	public TokenBuffer lexAll() throws LexicalException {
+		if (nextTk != null) {
+			throw new IllegalStateException("lexAll() deve essere invocato prima di peekToken()");
+		}
+		TokenBuffer tb = new TokenBuffer(buffer, pool, (limit - pos) / 4);
+		if (righe == null)
+			righe = new LineMap(riga, inizioRiga);
+		int stato;
+		while ((stato = scan()) >= 0) {
+			int len = pos - tkStart;
+			TokenType tipo = ACCETTA[stato];
+			long v;
+			int s = 0;
+			if (tipo == TokenType.ID) {
+				v = pool.intern(buffer, tkStart, len);
+			} else if (tipo == TokenType.INT) {
+				v = Literals.nonScalato(buffer, tkStart, len);
+			} else if (tipo == TokenType.FLOAT) {
+				v = Literals.nonScalato(buffer, tkStart, len);
+				s = stato - S_DEC1 + 1;
+			} else {
+				if (parolaChiave(stato))
+					pool.intern(buffer, tkStart, len);
+				v = -1;
+			}
+			tb.add(tipo, riga, tkStart, len, v, s);
+		}
+		tb.add(TokenType.EOF, riga, pos, 0, -1);
+		tb.setRighe(righe);
+		return tb;
+	}
+
+	/**
+	 * Attiva la modalita' recupero: invece di sollevare {@link LexicalException},
+	 * ogni errore lessicale viene registrato in {@code diagnostics} e il lessema
+	 * errato diventa un token {@link TokenType#ERROR}, sia in {@link #nextToken()}
+	 * sia in {@link #lexAll()}.
+	 *
+	 * @param diagnostics dove registrare gli errori, {@code null} per tornare alla modalita' normale
+	 */
+	public void setDiagnostics(Diagnostics diagnostics) {
+		this.diagnostics = diagnostics;
+	}
+
+	/**
+	 * Attiva o disattiva i percorsi veloci che esaminano il sorgente 8 byte alla volta
+	 * ({@link Swar}) per saltare gli spazi contando i ritorni a capo e per trovare la fine
+	 * di identificatori e sequenze di cifre. Il risultato non cambia; con i percorsi veloci
+	 * disattivati (predefinito) l'automa avanza un byte alla volta.
+	 *
+	 * @param attivo {@code true} per usare i percorsi veloci
+	 */
+	public void setSwar(boolean attivo) {
+		parole = attivo ? buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN) : null;
+	}
+
+	/**
+	 * @return il pool in cui lo scanner interna gli identificatori
+	 */
+	public InternPool getPool() {
+		return pool;
+	}
+
+	@Override
+	public Token peekToken() throws LexicalException {
+		if (nextTk == null) {
+			nextTk = nextToken();
+		}
+		return nextTk;
+	}
+
+	/**
+	 * Registra l'inizio di una nuova riga.
+	 *
+	 * @param offset offset del byte successivo al ritorno a capo
+	 */
+	private void aCapo(int offset) {
+		inizioRiga = offset;
+		if (righe != null)
+			righe.aCapo(offset);
+	}
+
+	/**
+	 * Salta gli spazi e fa avanzare l'automa sul prossimo lessema (massimo prefisso).
+	 * Non alloca nulla: il lessema riconosciuto e' compreso tra {@link #tkStart} e il cursore.
+	 *
+	 * @return lo stato finale raggiunto, {@link #S_MORTO} per un lessema errato in
+	 *         modalita' recupero, o -1 a fine input
+	 * @throws LexicalException se l'automa si ferma in uno stato non finale (modalita' normale)
+	 */
+	private int scan() throws LexicalException {
+		int p = pos;
+		if (parole != null) {
+			// le sequenze di un solo spazio sono le piu' comuni: il percorso veloce parte dal secondo
+			if (p < limit && CLASSE[buffer.get(p) & 0xFF] == C_SPAZIO) {
+				if (buffer.get(p++) == '\n') {
+					riga++;
+					aCapo(p);
+				}
+				if (p < limit && CLASSE[buffer.get(p) & 0xFF] == C_SPAZIO) {
+					int da = p;
+					p = Swar.fineSpazi(parole, p, limit);
+					int n = Swar.contaRighe(parole, da, p, righe);
+					if (n > 0) {
+						riga += n;
+						// l'ultimo ritorno a capo e' seguito solo dall'indentazione
+						int i = p;
+						while (buffer.get(i - 1) != '\n')
+							i--;
+						inizioRiga = i;
+					}
+				}
+			}
+		} else {
+			while (p < limit && CLASSE[buffer.get(p) & 0xFF] == C_SPAZIO) {
+				if (buffer.get(p) == '\n') {
+					riga++;
+					aCapo(p + 1);
+				}
+				p++;
+			}
+		}
+		pos = p;
+		tkStart = p;
+		if (p == limit) {
+			return -1;
+		}
+		int stato = S_INIZIO;
+		while (p < limit) {
+			int prossimo = DELTA[stato * NCLASSI + CLASSE[buffer.get(p) & 0xFF]];
+			if (prossimo == S_MORTO)
+				break;
+			stato = prossimo;
+			p++;
+			if (parole != null) {
+				// S_ID e S_NUM restano tali finche' arrivano lettere/cifre: si salta l'intera sequenza
+				if (stato == S_ID)
+					p = Swar.fineIdentificatore(parole, p, limit);
+				else if (stato == S_NUM)
+					p = Swar.fineCifre(parole, p, limit);
+			}
+		}
+		if (ACCETTA[stato] == null) {
+			String messaggio = switch (stato) {
+			case S_INIZIO -> "Carattere illegale '" + (char) (buffer.get(p) & 0xFF) + "' alla riga " + riga;
+			case S_PUNTO -> "Numero non valido alla riga " + riga + ": manca la parte decimale";
+			default -> "Numero reale con piu' di 5 cifre decimali alla riga " + riga;
+			};
+			if (diagnostics == null) {
+				if (stato != S_INIZIO)
+					pos = p;
+				throw new LexicalException(messaggio);
+			}
+			// modalita' recupero: il lessema errato diventa un token ERROR e l'analisi prosegue
+			if (stato == S_INIZIO) {
+				p++;
+			} else {
+				while (p < limit && CLASSE[buffer.get(p) & 0xFF] == C_CIFRA)
+					p++;
+			}
+			diagnostics.lessicale(riga, messaggio);
+			pos = p;
+			return S_MORTO;
+		}
+		pos = p;
+		return stato;
+	}
+
+	/**
+	 * Copia i byte [start, end) del sorgente in una stringa.
+	 */
+	private String slice(int start, int end) {
+		int len = end - start;
+		if (len > lexeme.length) {
+			lexeme = new byte[Math.max(len, lexeme.length * 2)];
+		}
+		buffer.get(start, lexeme, 0, len);
+		return new String(lexeme, 0, len, StandardCharsets.ISO_8859_1);
+	}
+}
@@ -0,0 +1,82 @@
+package scanner;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+/**
+ * Raccolta degli errori trovati durante una compilazione in modalita' recupero.
+ *
+ * <p>In modalita' normale il primo errore interrompe l'analisi con un'eccezione;
+ * se invece allo {@link Scanner} (o al {@link DfaScanner}) e al {@link parser.Parser}
+ * viene passato un oggetto Diagnostics, ogni errore viene registrato qui come un
+ * semplice record, senza creare eccezioni ne' stack trace, e l'analisi prosegue:
+ * un solo passaggio riporta tutti gli errori del sorgente.</p>
+ */
+public class Diagnostics {
+	/** Fase della compilazione in cui e' stato trovato l'errore. */
+	public enum Fase {
+		LESSICALE, SINTATTICA
+	}
+
+	/**
+	 * Un errore registrato.
+	 *
+	 * @param fase fase in cui e' stato trovato
+	 * @param riga riga del sorgente
+	 * @param messaggio lo stesso messaggio dell'eccezione sollevata in modalita' normale
+	 */
+	public record Diagnostic(Fase fase, int riga, String messaggio) {
+		@Override
+		public String toString() {
+			return messaggio;
+		}
+	}
+
+	private final ArrayList<Diagnostic> elenco = new ArrayList<>();
+
+	/**
+	 * Registra un errore lessicale.
+	 *
+	 * @param riga riga dell'errore
+	 * @param messaggio descrizione dell'errore
+	 */
+	public void lessicale(int riga, String messaggio) {
+		elenco.add(new Diagnostic(Fase.LESSICALE, riga, messaggio));
+	}
+
+	/**
+	 * Registra un errore sintattico.
+	 *
+	 * @param riga riga dell'errore
+	 * @param messaggio descrizione dell'errore
+	 */
+	public void sintattica(int riga, String messaggio) {
+		elenco.add(new Diagnostic(Fase.SINTATTICA, riga, messaggio));
+	}
+
+	/**
+	 * Restituisce gli errori registrati ordinati per riga; a parita' di riga
+	 * resta l'ordine di registrazione.
+	 *
+	 * @return la lista degli errori
+	 */
+	public List<Diagnostic> getDiagnostics() {
+		ArrayList<Diagnostic> ordinati = new ArrayList<>(elenco);
+		ordinati.sort(Comparator.comparingInt(Diagnostic::riga));
+		return ordinati;
+	}
+
+	/**
+	 * @return il numero di errori registrati
+	 */
+	public int size() {
+		return elenco.size();
+	}
+
+	/**
+	 * @return {@code true} se non e' stato registrato nessun errore
+	 */
+	public boolean isEmpty() {
+		return elenco.isEmpty();
+	}
+}
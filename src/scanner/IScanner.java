@@ -0,0 +1,26 @@
+package scanner;
+
+import token.Token;
+/**
+ * Interfaccia comune a tutti gli analizzatori lessicali del linguaggio ac.
+ *
+ * Il Parser dipende solo da questa interfaccia: in questo modo e' possibile
+ * scegliere il backend di lettura del sorgente (PushbackReader, file mappato
+ * in memoria, ...) senza modificare l'analisi sintattica.
+ */
+public interface IScanner {
+	/**
+     * Restituisce il prossimo token consumando input.
+     *
+     * @return prossimo Token riconosciuto
+     * @throws LexicalException in caso di errore lessicale
+     */
+	public abstract Token nextToken() throws LexicalException;
+	/**
+     * Ispeziona il prossimo token senza consumare l'input.
+     *
+     * @return il prossimo Token senza avanzare nel flusso
+     * @throws LexicalException in caso di errore lessicale
+     */
+	public abstract Token peekToken() throws LexicalException;
+}
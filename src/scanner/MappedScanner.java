@@ -0,0 +1,256 @@
+package scanner;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import token.*;
+/**
+ * Analizzatore lessicale per il linguaggio ac che lavora direttamente
+ * sui byte del file sorgente mappato in memoria.
+ *
+ * <p>A differenza di {@link Scanner}, non passa da un {@code PushbackReader}:
+ * il file viene mappato con {@link FileChannel#map} e i caratteri ASCII vengono
+ * letti sul posto tramite un cursore, senza nessuna chiamata sincronizzata
+ * per carattere. La sequenza di Token prodotta (tipo, riga e valore) e' la
+ * stessa dello {@link Scanner}.</p>
+ */
+public class MappedScanner implements IScanner {
+	private final ByteBuffer buffer;
+	private final int limit;
+	private int pos;
+	private int riga;
+	/** Offset del primo byte della riga corrente, per ricavare la colonna dei token. */
+	private int inizioRiga;
+	/** Tabella in cui registrare l'inizio di ogni riga letta, {@code null} se non richiesta. */
+	private LineMap righe;
+	private Token nextTk;
+	/** Pool in cui vengono internati gli identificatori riconosciuti. */
+	private final InternPool pool = new InternPool();
+	/** Buffer di appoggio riutilizzato per copiare i lessemi fuori dal file mappato. */
+	private byte[] lexeme = new byte[64];
+
+	/**
+     * Costruisce uno scanner che mappa in memoria il file sorgente.
+     *
+     * @param fileName percorso del file da analizzare
+     * @throws IOException se il file non esiste, non e' leggibile o e' troppo grande per essere mappato
+     */
+	public MappedScanner(String fileName) throws IOException {
+		this(map(fileName));
+	}
+	/**
+	 * Costruisce uno scanner su un buffer gia' disponibile (mappato o su heap).
+	 * Vengono analizzati i byte compresi tra position e limit del buffer.
+	 *
+	 * @param buffer il buffer contenente il sorgente ASCII
+	 */
+	public MappedScanner(ByteBuffer buffer) {
+		this.buffer = buffer;
+		this.pos = buffer.position();
+		this.limit = buffer.limit();
+		this.riga = 1;
+	}
+	/**
+	 * Mappa in sola lettura l'intero file indicato.
+	 *
+	 * @param fileName percorso del file da mappare
+	 * @return il buffer mappato in memoria
+	 * @throws IOException se il file non e' accessibile o supera i 2GB
+	 */
+	static MappedByteBuffer map(String fileName) throws IOException {
+		try (FileChannel ch = FileChannel.open(Path.of(fileName), StandardOpenOption.READ)) {
+			long size = ch.size();
+			if (size > Integer.MAX_VALUE) {
+				throw new IOException("File troppo grande per essere mappato: " + fileName);
+			}
+			return ch.map(FileChannel.MapMode.READ_ONLY, 0, size);
+		}
+	}
+
+	@Override
+	public Token nextToken() throws LexicalException {
+		if (nextTk != null) {
+			Token t = nextTk;
+			nextTk = null;
+			return t;
+		}
+		int c = peekChar();
+		while (c == ' ' || c == '\t' || c == '\r' || c == '\n') {
+			if (c == '\n') {
+				riga++;
+				inizioRiga = pos + 1;
+				if (righe != null)
+					righe.aCapo(inizioRiga);
+			}
+			pos++;
+			c = peekChar();
+		}
+		int inizio = pos;
+		Token tk = scanToken(c);
+		tk.setSpan(Span.of(inizio, riga, inizio - inizioRiga + 1));
+		return tk;
+	}
+
+	/**
+	 * Fa registrare allo scanner l'inizio di ogni riga letta da qui in avanti (vedi
+	 * {@link Scanner#setLineMap(LineMap)}).
+	 *
+	 * @param righe la tabella da riempire, {@code null} per non registrare piu' le righe
+	 */
+	public void setLineMap(LineMap righe) {
+		this.righe = righe;
+	}
+
+	/**
+	 * @return la tabella impostata con {@link #setLineMap(LineMap)}, o {@code null}
+	 */
+	public LineMap getLineMap() {
+		return righe;
+	}
+
+	private Token scanToken(int c) throws LexicalException {
+		if (c == -1) {
+			return new Token(TokenType.EOF, riga, "EOF");
+		}
+		if (isLetter(c)) {
+			return scanId();
+		}
+		if (c == '+' || c == '-' || c == '*' || c == '/' || c == '=' || c == ';') {
+			return scanOperator();
+		}
+		if (isDigit(c)) {
+			return scanNumber();
+		}
+		throw new LexicalException("Carattere illegale '" + (char) c + "' alla riga " + riga);
+	}
+
+	@Override
+	public Token peekToken() throws LexicalException {
+		if (nextTk == null) {
+			nextTk = nextToken();
+		}
+		return nextTk;
+	}
+
+	/**
+     * Riconosce identificatori e parole chiave a partire dal cursore corrente.
+     *
+     * @return Un Token di tipo ID o una parola chiave specifica.
+     */
+	private Token scanId() {
+		int start = pos++;
+		while (isLetter(peekChar()) || isDigit(peekChar())) {
+			pos++;
+		}
+		int sym = pool.intern(buffer, start, pos - start);
+		String lexeme = pool.name(sym);
+		switch (lexeme) {
+		case "int":
+			return new Token(TokenType.TYINT, riga, lexeme);
+		case "float":
+			return new Token(TokenType.TYFLOAT, riga, lexeme);
+		case "print":
+			return new Token(TokenType.PRINT, riga, lexeme);
+		default:
+			return new Token(TokenType.ID, riga, lexeme, sym);
+		}
+	}
+
+	/**
+	 * Riconosce operatori, operatori di assegnamento composto e delimitatori.
+	 *
+	 * @return Un Token corrispondente all'operatore o al delimitatore riconosciuto.
+	 */
+	private Token scanOperator() {
+		int first = buffer.get(pos++);
+		switch (first) {
+		case '=':
+			return new Token(TokenType.ASSIGN, riga, "=");
+		case ';':
+			return new Token(TokenType.SEMI, riga, ";");
+		default:
+			break;
+		}
+		if (peekChar() == '=') {
+			pos++;
+			return new Token(TokenType.OP_ASSIGN, riga, (char) first + "=");
+		}
+		switch (first) {
+		case '+':
+			return new Token(TokenType.PLUS, riga, "+");
+		case '-':
+			return new Token(TokenType.MINUS, riga, "-");
+		case '*':
+			return new Token(TokenType.TIMES, riga, "*");
+		default:
+			return new Token(TokenType.DIVIDE, riga, "/");
+		}
+	}
+
+	/**
+     * Riconosce le costanti numeriche (Interi e Float), con al massimo 5 cifre decimali.
+     *
+     * @return Un Token di tipo INT o FLOAT.
+     * @throws LexicalException Se il numero e' malformato o supera i limiti di precisione.
+     */
+	private Token scanNumber() throws LexicalException {
+		int start = pos;
+		long valore = peekChar() - '0';
+		pos++;
+		int c;
+		while (isDigit(c = peekChar())) {
+			valore = Literals.accumula(valore, c - '0');
+			pos++;
+		}
+		if (c != '.') {
+			return new Token(TokenType.INT, riga, slice(start, pos), valore, 0);
+		}
+		pos++;
+		if (!isDigit(peekChar())) {
+			throw new LexicalException("Numero non valido alla riga " + riga + ": manca la parte decimale");
+		}
+		int contDec = 0;
+		while (isDigit(c = peekChar())) {
+			valore = Literals.accumula(valore, c - '0');
+			pos++;
+			contDec++;
+			if (contDec > 5) {
+				throw new LexicalException("Numero reale con piu' di 5 cifre decimali alla riga " + riga);
+			}
+		}
+		return new Token(TokenType.FLOAT, riga, slice(start, pos), valore, contDec);
+	}
+
+	/**
+	 * Restituisce il byte sotto il cursore senza consumarlo.
+	 *
+	 * @return il carattere corrente, o -1 a fine input
+	 */
+	private int peekChar() {
+		return pos < limit ? buffer.get(pos) & 0xFF : -1;
+	}
+
+	private static boolean isLetter(int c) {
+		return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+	}
+
+	private static boolean isDigit(int c) {
+		return c >= '0' && c <= '9';
+	}
+
+	/**
+	 * Copia i byte [start, end) del sorgente in una stringa.
+	 */
+	private String slice(int start, int end) {
+		int len = end - start;
+		if (len > lexeme.length) {
+			lexeme = new byte[Math.max(len, lexeme.length * 2)];
+		}
+		buffer.get(start, lexeme, 0, len);
+		return new String(lexeme, 0, len, StandardCharsets.ISO_8859_1);
+	}
+}
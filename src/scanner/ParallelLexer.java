@@ -0,0 +1,148 @@
+package scanner;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import token.InternPool;
+import token.TokenBuffer;
+import token.TokenType;
+/**
+ * Analisi lessicale parallela di sorgenti ac di grandi dimensioni.
+ *
+ * <p>Un programma ac ({@code Prg -> DSs $}) e' una lista piatta di dichiarazioni e
+ * istruzioni terminate da {@code ;}, e nessun lessema contiene {@code ;}: il sorgente
+ * puo' quindi essere tagliato subito dopo un {@code ;} senza spezzare token.
+ * Ogni pezzo viene analizzato da un {@link DfaScanner} su un {@link ForkJoinPool};
+ * i risultati vengono poi fusi nell'ordine del sorgente in un unico {@link TokenBuffer},
+ * correggendo le righe con la somma prefissa dei ritorni a capo dei pezzi precedenti
+ * e rinumerando gli identificatori in un unico {@link InternPool}.</p>
+ *
+ * <p>Il risultato e' identico a quello di {@link DfaScanner#lexAll()}; in caso di errori
+ * viene segnalato il primo nell'ordine del sorgente, con la riga corretta.</p>
+ */
+public class ParallelLexer {
+	/** Dimensione minima di un pezzo, in byte, per impostazione predefinita. */
+	public static final int DIMENSIONE_PEZZO = 1 << 20;
+
+	private final ForkJoinPool pool;
+	private final int dimensionePezzo;
+
+	/**
+	 * Costruisce un lexer parallelo sul pool comune, con pezzi da {@link #DIMENSIONE_PEZZO} byte.
+	 */
+	public ParallelLexer() {
+		this(ForkJoinPool.commonPool(), DIMENSIONE_PEZZO);
+	}
+	/**
+	 * @param pool il pool su cui eseguire l'analisi dei pezzi
+	 * @param dimensionePezzo dimensione minima, in byte, di ogni pezzo
+	 */
+	public ParallelLexer(ForkJoinPool pool, int dimensionePezzo) {
+		this.pool = pool;
+		this.dimensionePezzo = Math.max(1, dimensionePezzo);
+	}
+
+	/**
+	 * Mappa in memoria il file e lo analizza in parallelo.
+	 *
+	 * @param fileName percorso del file sorgente
+	 * @return i token dell'intero sorgente, terminati da EOF
+	 * @throws IOException se il file non e' accessibile
+	 * @throws LexicalException al primo errore lessicale (nell'ordine del sorgente)
+	 */
+	public TokenBuffer lex(String fileName) throws IOException, LexicalException {
+		return lex(MappedScanner.map(fileName));
+	}
+
+	/**
+	 * Analizza in parallelo i byte compresi tra position e limit del buffer.
+	 *
+	 * @param source il sorgente ASCII
+	 * @return i token dell'intero sorgente, terminati da EOF
+	 * @throws LexicalException al primo errore lessicale (nell'ordine del sorgente)
+	 */
+	public TokenBuffer lex(ByteBuffer source) throws LexicalException {
+		List<Pezzo> pezzi = new ArrayList<>();
+		int inizio = source.position();
+		int limit = source.limit();
+		do {
+			int fine = taglio(source, inizio + dimensionePezzo, limit);
+			pezzi.add(new Pezzo(source, inizio, fine));
+			inizio = fine;
+		} while (inizio < limit);
+
+		for (Pezzo p : pezzi)
+			pool.execute(p);
+		int totale = 1;
+		for (Pezzo p : pezzi)
+			totale += p.join().size() - 1;
+
+		// Fusione ordinata: righe corrette con la somma prefissa dei ritorni a capo
+		InternPool simboli = new InternPool();
+		TokenBuffer tb = new TokenBuffer(source, simboli, totale);
+		int righePrecedenti = 0;
+		for (Pezzo p : pezzi) {
+			if (p.errore != null) {
+				// rianalizza il pezzo partendo dalla riga giusta per riprodurre lo stesso messaggio
+				ByteBuffer b = source.duplicate().limit(p.fine).position(p.inizio);
+				new DfaScanner(b, new InternPool(), 1 + righePrecedenti).lexAll();
+				throw p.errore;
+			}
+			TokenBuffer parte = p.join();
+			InternPool locale = parte.pool();
+			int[] rinumera = new int[locale.size()];
+			for (int id = 0; id < rinumera.length; id++)
+				rinumera[id] = simboli.intern(locale.name(id));
+			int n = parte.size() - 1;
+			for (int i = 0; i < n; i++) {
+				int sym = parte.sym(i);
+				tb.add(parte.type(i), parte.riga(i) + righePrecedenti, parte.offset(i), parte.length(i),
+						sym >= 0 ? rinumera[sym] : parte.valore(i), parte.scala(i));
+			}
+			// la riga dell'EOF di un pezzo e' 1 + i ritorni a capo che contiene
+			righePrecedenti += parte.riga(n) - 1;
+		}
+		tb.add(TokenType.EOF, 1 + righePrecedenti, limit, 0, -1);
+		return tb;
+	}
+
+	/**
+	 * Trova il primo punto di taglio valido a partire da {@code da}: subito dopo un {@code ;}.
+	 */
+	private static int taglio(ByteBuffer source, int da, int limit) {
+		for (int i = da; i < limit; i++) {
+			if (source.get(i) == ';')
+				return i + 1;
+		}
+		return limit;
+	}
+
+	/** Analisi lessicale di un singolo pezzo [inizio, fine) del sorgente. */
+	private static class Pezzo extends RecursiveTask<TokenBuffer> {
+		private static final long serialVersionUID = 1L;
+		private final transient ByteBuffer source;
+		private final int inizio;
+		private final int fine;
+		private LexicalException errore;
+
+		Pezzo(ByteBuffer source, int inizio, int fine) {
+			this.source = source;
+			this.inizio = inizio;
+			this.fine = fine;
+		}
+
+		@Override
+		protected TokenBuffer compute() {
+			ByteBuffer b = source.duplicate().limit(fine).position(inizio);
+			try {
+				return new DfaScanner(b).lexAll();
+			} catch (LexicalException e) {
+				errore = e;
+				return new TokenBuffer(b, new InternPool(), 0);
+			}
+		}
+	}
+}
@@ -4,6 +4,8 @@ import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.IOException;
 import java.io.PushbackReader;
+import java.io.Reader;
+import java.util.Arrays;
 import java.util.Set;
 import java.util.Map;
 import java.util.HashMap;
@@ -15,7 +17,7 @@ import token.*;
  * Produce una sequenza di Token a partire da un file sorgente.
  * Supporta lookahead tramite peekToken().
  */
-public class Scanner {
+public class Scanner implements IScanner {
 	final char EOF = (char) -1;
 	private int riga;
 	private PushbackReader buffer;
@@ -27,6 +29,31 @@ public class Scanner {
 	private Map<Character, TokenType> delimTkType;
 	private Map<String, TokenType> keyWordsTkType;
 	private Token nextTk;
+	/** Pool in cui vengono internati gli identificatori riconosciuti. */
+	private InternPool pool = new InternPool();
+	/** Buffer riutilizzato per accumulare il lessema di un identificatore. */
+	private char[] idBuf = new char[32];
+	/** Buffer riutilizzato per accumulare il lessema di una costante numerica. */
+	private final StringBuilder numBuf = new StringBuilder();
+
+	/*
+	 * Tabelle lessicali: sono immutabili, quindi vengono costruite una sola volta
+	 * e condivise da tutti gli scanner invece di essere ricreate a ogni istanza.
+	 */
+	private static final Set<Character> SKIP_CHARS;
+	private static final Set<Character> LETTERS;
+	private static final Set<Character> DIGITS;
+	private static final Map<Character, TokenType> OPER_TK_TYPE;
+	private static final Map<Character, TokenType> DELIM_TK_TYPE;
+	private static final Map<String, TokenType> KEY_WORDS_TK_TYPE;
+	/** Destinazione degli errori lessicali in modalita' recupero, {@code null} in modalita' normale. */
+	private Diagnostics diagnostics;
+	/** Numero di caratteri consumati finora, cioe' l'offset del prossimo carattere. */
+	private int offset;
+	/** Offset del primo carattere della riga corrente, per ricavare la colonna dei token. */
+	private int inizioRiga;
+	/** Tabella in cui registrare l'inizio di ogni riga letta, {@code null} se non richiesta. */
+	private LineMap righe;
 
 	/**
      * Costruisce uno scanner associato a un file sorgente.
@@ -40,6 +67,20 @@ public class Scanner {
 		riga = 1;
 		initSetsAndMaps();
 	}
+	/**
+	 * Costruisce uno scanner su un sorgente qualsiasi, internando gli identificatori in un
+	 * pool fornito dal chiamante (es. condiviso fra piu' compilazioni, vedi
+	 * {@link compiler.CompilerContext}).
+	 *
+	 * @param source il sorgente da analizzare
+	 * @param pool il pool degli identificatori
+	 */
+	public Scanner(Reader source, InternPool pool) {
+		this.buffer = new PushbackReader(source);
+		this.pool = pool;
+		riga = 1;
+		initSetsAndMaps();
+	}
 	/**
 	 * Costruttore per test o inizializzazione manuale con parametri specifici.
 	 * * @param riga numero di riga iniziale
@@ -65,45 +106,63 @@ public class Scanner {
 		this.keyWordsTkType = keyWordsTkType;
 	}
 	/**
-	 * Inizializza le strutture dati necessarie al riconoscimento dei pattern.
+	 * Associa allo scanner le tabelle lessicali condivise.
+	 */
+	private void initSetsAndMaps() {
+		skipChars = SKIP_CHARS;
+		letters = LETTERS;
+		digits = DIGITS;
+		operTkType = OPER_TK_TYPE;
+		delimTkType = DELIM_TK_TYPE;
+		keyWordsTkType = KEY_WORDS_TK_TYPE;
+	}
+	/*
+	 * Costruisce le strutture dati necessarie al riconoscimento dei pattern.
 	 * Definisce i caratteri di skip, i set di caratteri validi per ID e costanti,
 	 * e popola le mappe delle parole riservate (int, float, print) e degli operatori.
 	 */
-	private void initSetsAndMaps() {
-		skipChars = new HashSet<>();
+	static {
+		Set<Character> skipChars = new HashSet<>();
 		skipChars.add(' ');
 		skipChars.add('\t');
 		skipChars.add('\r');
 		skipChars.add('\n');
 		
-		letters = new HashSet<>();
+		Set<Character> letters = new HashSet<>();
 		for (char c = 'a'; c <= 'z'; c++)
 			letters.add(c);
 		for (char c = 'A'; c <= 'Z'; c++)
 			letters.add(c);
 
 		
-		digits = new HashSet<>();
+		Set<Character> digits = new HashSet<>();
 		for (char c = '0'; c <= '9'; c++)
 			digits.add(c);
 
 		
-		operTkType = new HashMap<>();
+		Map<Character, TokenType> operTkType = new HashMap<>();
 		operTkType.put('+', TokenType.PLUS);
 		operTkType.put('-', TokenType.MINUS);
 		operTkType.put('*', TokenType.TIMES);
 		operTkType.put('/', TokenType.DIVIDE);
 
 		
-		delimTkType = new HashMap<>();
+		Map<Character, TokenType> delimTkType = new HashMap<>();
 		delimTkType.put('=', TokenType.ASSIGN);
 		delimTkType.put(';', TokenType.SEMI);
 
 		
-		keyWordsTkType = new HashMap<>();
+		Map<String, TokenType> keyWordsTkType = new HashMap<>();
 		keyWordsTkType.put("int", TokenType.TYINT);
 		keyWordsTkType.put("float", TokenType.TYFLOAT);
 		keyWordsTkType.put("print", TokenType.PRINT);
+
+		SKIP_CHARS = Set.copyOf(skipChars);
+		LETTERS = Set.copyOf(letters);
+		DIGITS = Set.copyOf(digits);
+		OPER_TK_TYPE = Map.copyOf(operTkType);
+		DELIM_TK_TYPE = Map.copyOf(delimTkType);
+		KEY_WORDS_TK_TYPE = Map.copyOf(keyWordsTkType);
 	}
 
 	/**
@@ -112,6 +171,7 @@ public class Scanner {
      * @return prossimo Token riconosciuto
      * @throws LexicalException in caso di errore lessicale
      */
+	@Override
 	public Token nextToken() throws LexicalException {
 		char nextChar;
 		if (nextTk != null) {
@@ -134,6 +194,15 @@ public class Scanner {
 				throw new LexicalException("Errore di I/O durante lo skip dei caratteri alla riga: " + riga + e);
 			}
 		}
+		int inizio = offset;
+		Token tk = scanToken(nextChar);
+		tk.setSpan(Span.of(inizio, riga, inizio - inizioRiga + 1));
+		return tk;
+	}
+	/**
+	 * Riconosce il token che inizia con il carattere indicato, gia' ispezionato ma non consumato.
+	 */
+	private Token scanToken(char nextChar) throws LexicalException {
 		if (nextChar == EOF) {
 			return new Token(TokenType.EOF, riga, "EOF");
 		}
@@ -149,7 +218,59 @@ public class Scanner {
 			return scanNumber();
 		}
 
-		throw new LexicalException("Carattere illegale '" + nextChar + "' alla riga " + riga);
+		String messaggio = "Carattere illegale '" + nextChar + "' alla riga " + riga;
+		if (diagnostics == null) {
+			throw new LexicalException(messaggio);
+		}
+		try {
+			readChar();
+		} catch (IOException e) {
+			throw new LexicalException("Errore alla riga: " + riga + e);
+		}
+		return errore(messaggio, String.valueOf(nextChar));
+	}
+	/**
+	 * Fa registrare allo scanner l'inizio di ogni riga letta da qui in avanti, per ricavare
+	 * riga e colonna dall'offset di uno {@link Span}. Per costruire gli span basta l'inizio
+	 * della riga corrente, quindi senza una tabella la memoria non cresce con il sorgente.
+	 *
+	 * @param righe la tabella da riempire, che deve iniziare dalla riga corrente;
+	 *        {@code null} per non registrare piu' le righe
+	 */
+	public void setLineMap(LineMap righe) {
+		this.righe = righe;
+	}
+	/**
+	 * @return la tabella impostata con {@link #setLineMap(LineMap)}, o {@code null}
+	 */
+	public LineMap getLineMap() {
+		return righe;
+	}
+	/**
+	 * Attiva la modalita' recupero: invece di sollevare {@link LexicalException},
+	 * ogni errore lessicale viene registrato in {@code diagnostics} e il lessema
+	 * errato viene restituito come token {@link TokenType#ERROR}.
+	 *
+	 * @param diagnostics dove registrare gli errori, {@code null} per tornare alla modalita' normale
+	 */
+	public void setDiagnostics(Diagnostics diagnostics) {
+		this.diagnostics = diagnostics;
+	}
+	/**
+	 * Segnala un errore lessicale: in modalita' normale solleva l'eccezione,
+	 * in modalita' recupero lo registra e restituisce un token ERROR.
+	 *
+	 * @param messaggio descrizione dell'errore
+	 * @param lessema il testo errato gia' consumato
+	 * @return il token ERROR che copre il lessema errato
+	 * @throws LexicalException in modalita' normale
+	 */
+	private Token errore(String messaggio, String lessema) throws LexicalException {
+		if (diagnostics == null) {
+			throw new LexicalException(messaggio);
+		}
+		diagnostics.lessicale(riga, messaggio);
+		return new Token(TokenType.ERROR, riga, lessema);
 	}
 	/**
      * Ispeziona il prossimo token senza consumare l'input.
@@ -162,6 +283,7 @@ public class Scanner {
      * @throws LexicalException Se la lettura del prossimo token causa un errore lessicale.
      */
 
+	@Override
 	public Token peekToken() throws LexicalException {
 		if (nextTk == null) {
 			nextTk = nextToken();
@@ -171,7 +293,8 @@ public class Scanner {
 
 	/**
      * Metodo privato per il riconoscimento degli identificatori e delle parole chiave.
-     * Dopo aver accumulato il lessema, controlla se corrisponde a una parola riservata 
+     * Dopo aver accumulato il lessema, lo interna nel pool (senza creare stringhe se
+     * gia' visto) e controlla se corrisponde a una parola riservata 
      * (es. 'print', 'int', 'float').
      * 
      * @return Un Token di tipo ID o una parola chiave specifica.
@@ -179,30 +302,33 @@ public class Scanner {
      */
 	
 	private Token ScanId() throws LexicalException {
-		StringBuilder sb = new StringBuilder();
+		int len = 0;
 		try {
 			char c = readChar(); 
 			
-			sb.append(c);
+			idBuf[len++] = c;
 
 			char next = peekChar(); 
 			
 			while (letters.contains(next) || digits.contains(next)) { 
 				c = readChar();
-				sb.append(c);
+				if (len == idBuf.length)
+					idBuf = Arrays.copyOf(idBuf, len * 2);
+				idBuf[len++] = c;
 				next = peekChar();
 			}
 		} catch (IOException e) {
 			throw new LexicalException("Errore di I/O leggendo un identificatore alla riga " + riga + e);
 		}
-		String lexeme = sb.toString(); 
+		int sym = pool.intern(idBuf, len);
+		String lexeme = pool.name(sym); 
 		
 		TokenType kwType = keyWordsTkType.get(lexeme);
 		if (kwType != null) {
 			return new Token(kwType, riga, lexeme);
 		}
 
-		return new Token(TokenType.ID, riga, lexeme);
+		return new Token(TokenType.ID, riga, lexeme, sym);
 	}
 
 	/**
@@ -256,21 +382,26 @@ public class Scanner {
      * @throws LexicalException Se il numero è malformato o supera i limiti di precisione.
      */
 	private Token scanNumber() throws LexicalException {
-		StringBuilder sb = new StringBuilder();
+		StringBuilder sb = numBuf;
+		sb.setLength(0);
 		char c;
 		int contDec = 0;
+		// il valore viene accumulato cifra per cifra mentre si legge il lessema
+		long valore;
 		try {
 			c = readChar();
 			sb.append(c);
+			valore = c - '0';
 			char next = peekChar();
 			while (digits.contains(next)) {
 				c = readChar();
 				sb.append(c);
+				valore = Literals.accumula(valore, c - '0');
 				next = peekChar();
 			}
 			if (next != '.') {
 				String lexeme = sb.toString();
-				return new Token(TokenType.INT, riga, lexeme);
+				return new Token(TokenType.INT, riga, lexeme, valore, 0);
 			}
 
 			
@@ -279,18 +410,24 @@ public class Scanner {
 
 			next = peekChar();
 			if (!digits.contains(next)) {
-				throw new LexicalException("Numero non valido alla riga " + riga + ": manca la parte decimale");
+				return errore("Numero non valido alla riga " + riga + ": manca la parte decimale", sb.toString());
 			}
 			while (digits.contains(next)) {
 				c = readChar();
 				sb.append(c);
+				valore = Literals.accumula(valore, c - '0');
 				contDec++;
 				if (contDec > 5) {
-					throw new LexicalException("Numero reale con piu' di 5 cifre decimali alla riga " + riga);
+					if (diagnostics != null) {
+						// in modalita' recupero il token ERROR copre tutte le cifre decimali
+						while (digits.contains(peekChar()))
+							sb.append(readChar());
+					}
+					return errore("Numero reale con piu' di 5 cifre decimali alla riga " + riga, sb.toString());
 				}
 				next = peekChar();
 			}
-			return new Token(TokenType.FLOAT, riga, sb.toString());
+			return new Token(TokenType.FLOAT, riga, sb.toString(), valore, contDec);
 		} catch (IOException e) {
 			throw new LexicalException("Errore di I/O leggendo un numero alla riga " + riga + e);
 		}
@@ -305,6 +442,7 @@ public class Scanner {
 		super();
 		this.riga = riga;
 		this.buffer = buffer;
+		initSetsAndMaps();
 	}
 	/**
 	 * Legge il carattere successivo dal buffer di input.
@@ -312,7 +450,16 @@ public class Scanner {
 	 * @throws IOException in caso di problemi di lettura fisica del file
 	 */
 	private char readChar() throws IOException {
-		return ((char) this.buffer.read());
+		int c = this.buffer.read();
+		if (c != -1) {
+			offset++;
+			if (c == '\n') {
+				inizioRiga = offset;
+				if (righe != null)
+					righe.aCapo(offset);
+			}
+		}
+		return (char) c;
 	}
 	/**
 	 * Legge il carattere successivo dal buffer senza consumarlo.
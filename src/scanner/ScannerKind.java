@@ -0,0 +1,55 @@
+package scanner;
+
+import java.io.IOException;
+/**
+ * Elenca i backend lessicali disponibili, cosi' da poterli scegliere
+ * (e confrontare) senza modificare il resto della pipeline.
+ */
+public enum ScannerKind {
+	/** {@link Scanner} classico basato su {@code PushbackReader}. */
+	READER {
+		@Override
+		public IScanner open(String fileName) throws IOException {
+			return new Scanner(fileName);
+		}
+	},
+	/** {@link MappedScanner}: file mappato in memoria e cursore sui byte. */
+	MAPPED {
+		@Override
+		public IScanner open(String fileName) throws IOException {
+			return new MappedScanner(fileName);
+		}
+	},
+	/** {@link StreamScanner}: lettura a blocchi dal canale del file, con buffer riutilizzato. */
+	STREAM {
+		@Override
+		public IScanner open(String fileName) throws IOException {
+			return new StreamScanner(fileName);
+		}
+	},
+	/** {@link DfaScanner}: automa guidato da tabelle sul file mappato. */
+	DFA {
+		@Override
+		public IScanner open(String fileName) throws IOException {
+			return new DfaScanner(fileName);
+		}
+	},
+	/** {@link DfaScanner} con i percorsi veloci {@link Swar} attivi. */
+	DFA_SWAR {
+		@Override
+		public IScanner open(String fileName) throws IOException {
+			DfaScanner sc = new DfaScanner(fileName);
+			sc.setSwar(true);
+			return sc;
+		}
+	};
+
+	/**
+	 * Crea uno scanner di questo tipo sul file indicato.
+	 *
+	 * @param fileName percorso del file sorgente
+	 * @return lo scanner associato al file
+	 * @throws IOException se il file non esiste o non e' leggibile
+	 */
+	public abstract IScanner open(String fileName) throws IOException;
+}
@@ -0,0 +1,334 @@
+package scanner;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Arrays;
+import token.*;
+/**
+ * Analizzatore lessicale per il linguaggio ac che legge da un flusso qualsiasi
+ * ({@link ReadableByteChannel} o {@link InputStream}), ad esempio stdin o una pipe.
+ *
+ * <p>Il sorgente viene letto a blocchi in un unico buffer di byte riutilizzato,
+ * ricaricato quando il cursore ne raggiunge la fine; i caratteri ASCII sono
+ * decodificati direttamente, senza passare da un {@code Reader}. Il lessema in
+ * corso di riconoscimento viene conservato all'inizio del buffer durante la
+ * ricarica, quindi non serve nessun file temporaneo. La sequenza di Token
+ * prodotta e' la stessa dello {@link Scanner}.</p>
+ *
+ * <p>Il canale aperto dallo scanner stesso ({@link #StreamScanner(String)}) viene chiuso
+ * appena il flusso termina; un canale ricevuto dal chiamante resta aperto fino a {@link #close()}.</p>
+ */
+public class StreamScanner implements IScanner, AutoCloseable {
+	/** Dimensione predefinita del buffer di lettura. */
+	public static final int DIMENSIONE_BUFFER = 1 << 16;
+
+	private final ReadableByteChannel channel;
+	/** {@code true} se il canale e' stato aperto dallo scanner, che lo chiude a fine input. */
+	private boolean proprio;
+	private byte[] buf;
+	/** Vista su {@link #buf} usata per internare gli identificatori. */
+	private ByteBuffer vista;
+	private int pos;
+	private int lim;
+	/** Inizio del lessema in corso, da conservare nella ricarica; -1 se nessuno. */
+	private int inizio = -1;
+	private boolean fine;
+	private int riga;
+	/** Offset nel flusso del primo byte di {@code buf}: un flusso puo' superare i 2 GiB. */
+	private long base;
+	/** Offset nel flusso del primo byte della riga corrente, per ricavare la colonna dei token. */
+	private long inizioRiga;
+	/** Tabella in cui registrare l'inizio di ogni riga letta, {@code null} se non richiesta. */
+	private LineMap righe;
+	private Token nextTk;
+	/** Pool in cui vengono internati gli identificatori riconosciuti. */
+	private final InternPool pool = new InternPool();
+
+	/**
+	 * Costruisce uno scanner che legge da un canale.
+	 *
+	 * @param channel il canale da cui leggere il sorgente
+	 */
+	public StreamScanner(ReadableByteChannel channel) {
+		this(channel, DIMENSIONE_BUFFER);
+	}
+	/**
+	 * Costruisce uno scanner che legge da un canale con un buffer della dimensione indicata.
+	 *
+	 * @param channel il canale da cui leggere il sorgente
+	 * @param dimensione dimensione iniziale del buffer di lettura
+	 */
+	public StreamScanner(ReadableByteChannel channel, int dimensione) {
+		this.channel = channel;
+		this.buf = new byte[Math.max(dimensione, 16)];
+		this.vista = ByteBuffer.wrap(buf);
+		this.riga = 1;
+	}
+	/**
+	 * Costruisce uno scanner che legge un file, chiuso quando se ne raggiunge la fine.
+	 *
+	 * @param fileName percorso del file da analizzare
+	 * @throws IOException se il file non esiste o non e' leggibile
+	 */
+	public StreamScanner(String fileName) throws IOException {
+		this(FileChannel.open(Path.of(fileName)));
+		this.proprio = true;
+	}
+	/**
+	 * Costruisce uno scanner che legge da uno stream (es. {@code System.in}).
+	 *
+	 * @param in lo stream da cui leggere il sorgente
+	 */
+	public StreamScanner(InputStream in) {
+		this(Channels.newChannel(in));
+	}
+
+	@Override
+	public Token nextToken() throws LexicalException {
+		if (nextTk != null) {
+			Token t = nextTk;
+			nextTk = null;
+			return t;
+		}
+		int c = peekChar();
+		while (c == ' ' || c == '\t' || c == '\r' || c == '\n') {
+			if (c == '\n') {
+				riga++;
+				inizioRiga = base + pos + 1;
+				if (righe != null)
+					righe.aCapo((int) Math.min(inizioRiga, Integer.MAX_VALUE));
+			}
+			pos++;
+			c = peekChar();
+		}
+		long offset = base + pos;
+		Token tk = scanToken(c);
+		// Span satura offset e colonna, ma la colonna va limitata prima della conversione a int
+		tk.setSpan(Span.of(offset, riga, (int) Math.min(offset - inizioRiga + 1, Integer.MAX_VALUE)));
+		return tk;
+	}
+
+	/**
+	 * Fa registrare allo scanner l'inizio di ogni riga letta da qui in avanti (vedi
+	 * {@link Scanner#setLineMap(LineMap)}): su un flusso senza fine la tabella cresce
+	 * con il numero di righe, e le righe che iniziano oltre i 2 GiB vi sono registrate
+	 * all'offset {@link Integer#MAX_VALUE}.
+	 *
+	 * @param righe la tabella da riempire, {@code null} per non registrare piu' le righe
+	 */
+	public void setLineMap(LineMap righe) {
+		this.righe = righe;
+	}
+
+	/**
+	 * @return la tabella impostata con {@link #setLineMap(LineMap)}, o {@code null}
+	 */
+	public LineMap getLineMap() {
+		return righe;
+	}
+
+	private Token scanToken(int c) throws LexicalException {
+		if (c == -1) {
+			return new Token(TokenType.EOF, riga, "EOF");
+		}
+		if (isLetter(c)) {
+			return scanId();
+		}
+		if (c == '+' || c == '-' || c == '*' || c == '/' || c == '=' || c == ';') {
+			return scanOperator();
+		}
+		if (isDigit(c)) {
+			return scanNumber();
+		}
+		throw new LexicalException("Carattere illegale '" + (char) c + "' alla riga " + riga);
+	}
+
+	@Override
+	public Token peekToken() throws LexicalException {
+		if (nextTk == null) {
+			nextTk = nextToken();
+		}
+		return nextTk;
+	}
+
+	/**
+     * Riconosce identificatori e parole chiave a partire dal cursore corrente.
+     *
+     * @return Un Token di tipo ID o una parola chiave specifica.
+     * @throws LexicalException In caso di errori di I/O durante la lettura.
+     */
+	private Token scanId() throws LexicalException {
+		inizio = pos++;
+		while (isLetter(peekChar()) || isDigit(peekChar())) {
+			pos++;
+		}
+		int sym = pool.intern(vista, inizio, pos - inizio);
+		inizio = -1;
+		String lexeme = pool.name(sym);
+		switch (lexeme) {
+		case "int":
+			return new Token(TokenType.TYINT, riga, lexeme);
+		case "float":
+			return new Token(TokenType.TYFLOAT, riga, lexeme);
+		case "print":
+			return new Token(TokenType.PRINT, riga, lexeme);
+		default:
+			return new Token(TokenType.ID, riga, lexeme, sym);
+		}
+	}
+
+	/**
+	 * Riconosce operatori, operatori di assegnamento composto e delimitatori.
+	 *
+	 * @return Un Token corrispondente all'operatore o al delimitatore riconosciuto.
+	 * @throws LexicalException In caso di errori di I/O durante la lettura.
+	 */
+	private Token scanOperator() throws LexicalException {
+		int first = buf[pos++];
+		switch (first) {
+		case '=':
+			return new Token(TokenType.ASSIGN, riga, "=");
+		case ';':
+			return new Token(TokenType.SEMI, riga, ";");
+		default:
+			break;
+		}
+		if (peekChar() == '=') {
+			pos++;
+			return new Token(TokenType.OP_ASSIGN, riga, (char) first + "=");
+		}
+		switch (first) {
+		case '+':
+			return new Token(TokenType.PLUS, riga, "+");
+		case '-':
+			return new Token(TokenType.MINUS, riga, "-");
+		case '*':
+			return new Token(TokenType.TIMES, riga, "*");
+		default:
+			return new Token(TokenType.DIVIDE, riga, "/");
+		}
+	}
+
+	/**
+     * Riconosce le costanti numeriche (Interi e Float), con al massimo 5 cifre decimali.
+     *
+     * @return Un Token di tipo INT o FLOAT.
+     * @throws LexicalException Se il numero e' malformato o supera i limiti di precisione.
+     */
+	private Token scanNumber() throws LexicalException {
+		inizio = pos;
+		long valore = buf[pos++] - '0';
+		int c;
+		while (isDigit(c = peekChar())) {
+			valore = Literals.accumula(valore, c - '0');
+			pos++;
+		}
+		if (c != '.') {
+			return new Token(TokenType.INT, riga, lessema(), valore, 0);
+		}
+		pos++;
+		if (!isDigit(peekChar())) {
+			inizio = -1;
+			throw new LexicalException("Numero non valido alla riga " + riga + ": manca la parte decimale");
+		}
+		int contDec = 0;
+		while (isDigit(c = peekChar())) {
+			valore = Literals.accumula(valore, c - '0');
+			pos++;
+			contDec++;
+			if (contDec > 5) {
+				inizio = -1;
+				throw new LexicalException("Numero reale con piu' di 5 cifre decimali alla riga " + riga);
+			}
+		}
+		return new Token(TokenType.FLOAT, riga, lessema(), valore, contDec);
+	}
+
+	/**
+	 * Restituisce il lessema in corso come stringa e lo chiude.
+	 */
+	private String lessema() {
+		String s = new String(buf, inizio, pos - inizio, StandardCharsets.ISO_8859_1);
+		inizio = -1;
+		return s;
+	}
+
+	/**
+	 * Restituisce il byte sotto il cursore senza consumarlo, ricaricando il buffer se necessario.
+	 *
+	 * @return il carattere corrente, o -1 a fine input
+	 * @throws LexicalException in caso di errore di I/O
+	 */
+	private int peekChar() throws LexicalException {
+		if (pos == lim && !ricarica()) {
+			return -1;
+		}
+		return buf[pos] & 0xFF;
+	}
+
+	/**
+	 * Ricarica il buffer dal canale, conservando il lessema in corso.
+	 *
+	 * @return {@code false} se il flusso e' terminato
+	 * @throws LexicalException in caso di errore di I/O
+	 */
+	private boolean ricarica() throws LexicalException {
+		if (fine) {
+			return false;
+		}
+		int conserva = inizio >= 0 ? inizio : pos;
+		int n = lim - conserva;
+		if (conserva == 0 && n == buf.length) {
+			// lessema lungo quanto tutto il buffer: lo raddoppio
+			buf = Arrays.copyOf(buf, buf.length * 2);
+			vista = ByteBuffer.wrap(buf);
+		} else {
+			System.arraycopy(buf, conserva, buf, 0, n);
+		}
+		if (inizio >= 0)
+			inizio -= conserva;
+		pos -= conserva;
+		base += conserva;
+		lim = n;
+		try {
+			int letti;
+			do {
+				letti = channel.read(ByteBuffer.wrap(buf, lim, buf.length - lim));
+			} while (letti == 0);
+			if (letti < 0) {
+				fine = true;
+				if (proprio)
+					channel.close();
+				return false;
+			}
+			lim += letti;
+			return true;
+		} catch (IOException e) {
+			throw new LexicalException("Errore di I/O alla riga " + riga + e);
+		}
+	}
+
+	/**
+	 * Chiude il canale da cui legge lo scanner.
+	 *
+	 * @throws IOException se la chiusura fallisce
+	 */
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+
+	private static boolean isLetter(int c) {
+		return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+	}
+
+	private static boolean isDigit(int c) {
+		return c >= '0' && c <= '9';
+	}
+}
@@ -0,0 +1,163 @@
+package scanner;
+
+import java.nio.ByteBuffer;
+import token.LineMap;
+/**
+ * Classificazione dei caratteri del sorgente 8 byte alla volta (SWAR, SIMD within a register).
+ *
+ * <p>Ogni metodo legge il sorgente a parole di 8 byte con {@link ByteBuffer#getLong(int)}
+ * e calcola con poche operazioni aritmetiche e logiche una maschera che ha il bit alto
+ * acceso in corrispondenza dei byte che soddisfano la condizione; la posizione del primo
+ * byte che interrompe una sequenza si ottiene poi con {@link Long#numberOfTrailingZeros}.
+ * I buffer devono essere in ordine {@link java.nio.ByteOrder#LITTLE_ENDIAN}, cosi' che il
+ * primo byte della parola sia quello meno significativo. Gli ultimi byte (meno di 8)
+ * vengono esaminati uno alla volta.</p>
+ *
+ * <p>Le maschere sono esatte per ogni byte (nessun riporto fra byte vicini) e trattano
+ * i byte non ASCII come caratteri che non appartengono a nessuna classe.</p>
+ */
+final class Swar {
+	private static final long UNI = 0x0101010101010101L;
+	private static final long ALTI = 0x8080808080808080L;
+	private static final long BASSI = 0x7F7F7F7F7F7F7F7FL;
+
+	private Swar() {
+	}
+
+	/**
+	 * @return maschera dei byte di {@code x} uguali a {@code c}
+	 */
+	private static long uguali(long x, int c) {
+		long y = x ^ (UNI * c);
+		// bit alto acceso solo dove il byte di y e' zero
+		return ~(((y & BASSI) + BASSI) | y | BASSI);
+	}
+
+	/**
+	 * @return maschera dei byte ASCII di {@code x} maggiori o uguali a {@code n} (n <= 128)
+	 */
+	private static long almeno(long x, int n) {
+		return ((x | ALTI) - UNI * n) & ~x & ALTI;
+	}
+
+	/**
+	 * @return maschera dei byte ASCII di {@code x} compresi tra {@code da} e {@code a}
+	 */
+	private static long tra(long x, int da, int a) {
+		return almeno(x, da) & ~almeno(x, a + 1);
+	}
+
+	private static long spazi(long x) {
+		return uguali(x, ' ') | uguali(x, '\t') | uguali(x, '\r') | uguali(x, '\n');
+	}
+
+	private static long cifre(long x) {
+		return tra(x, '0', '9');
+	}
+
+	private static long alfanumerici(long x) {
+		return tra(x, 'a', 'z') | tra(x, 'A', 'Z') | cifre(x);
+	}
+
+	/**
+	 * Salta gli spazi (spazio, tab, CR, LF).
+	 *
+	 * @param b il sorgente, in ordine little endian
+	 * @param p posizione da cui partire
+	 * @param limit fine del sorgente
+	 * @return la posizione del primo byte che non e' uno spazio, o {@code limit}
+	 */
+	static int fineSpazi(ByteBuffer b, int p, int limit) {
+		for (; p + 8 <= limit; p += 8) {
+			long altri = ~spazi(b.getLong(p)) & ALTI;
+			if (altri != 0)
+				return p + (Long.numberOfTrailingZeros(altri) >>> 3);
+		}
+		while (p < limit && isSpazio(b.get(p)))
+			p++;
+		return p;
+	}
+
+	/**
+	 * Trova la fine di una sequenza di lettere e cifre (il resto di un identificatore).
+	 *
+	 * @param b il sorgente, in ordine little endian
+	 * @param p posizione da cui partire
+	 * @param limit fine del sorgente
+	 * @return la posizione del primo byte che non e' una lettera o una cifra, o {@code limit}
+	 */
+	static int fineIdentificatore(ByteBuffer b, int p, int limit) {
+		for (; p + 8 <= limit; p += 8) {
+			long altri = ~alfanumerici(b.getLong(p)) & ALTI;
+			if (altri != 0)
+				return p + (Long.numberOfTrailingZeros(altri) >>> 3);
+		}
+		while (p < limit && (isCifra(b.get(p)) || isLettera(b.get(p))))
+			p++;
+		return p;
+	}
+
+	/**
+	 * Trova la fine di una sequenza di cifre.
+	 *
+	 * @param b il sorgente, in ordine little endian
+	 * @param p posizione da cui partire
+	 * @param limit fine del sorgente
+	 * @return la posizione del primo byte che non e' una cifra, o {@code limit}
+	 */
+	static int fineCifre(ByteBuffer b, int p, int limit) {
+		for (; p + 8 <= limit; p += 8) {
+			long altri = ~cifre(b.getLong(p)) & ALTI;
+			if (altri != 0)
+				return p + (Long.numberOfTrailingZeros(altri) >>> 3);
+		}
+		while (p < limit && isCifra(b.get(p)))
+			p++;
+		return p;
+	}
+
+	/**
+	 * Conta i ritorni a capo compresi tra {@code da} e {@code a} e registra l'inizio
+	 * di ogni nuova riga nella tabella delle righe.
+	 *
+	 * @param b il sorgente, in ordine little endian
+	 * @param da primo byte esaminato
+	 * @param a byte successivo all'ultimo esaminato
+	 * @param righe la tabella in cui registrare le righe, {@code null} per contarle soltanto
+	 * @return il numero di {@code '\n'}
+	 */
+	static int contaRighe(ByteBuffer b, int da, int a, LineMap righe) {
+		int n = 0;
+		for (; da + 8 <= a; da += 8) {
+			long acapo = uguali(b.getLong(da), '\n');
+			if (righe == null) {
+				n += Long.bitCount(acapo);
+				continue;
+			}
+			while (acapo != 0) {
+				righe.aCapo(da + (Long.numberOfTrailingZeros(acapo) >>> 3) + 1);
+				acapo &= acapo - 1;
+				n++;
+			}
+		}
+		for (; da < a; da++)
+			if (b.get(da) == '\n') {
+				if (righe != null)
+					righe.aCapo(da + 1);
+				n++;
+			}
+		return n;
+	}
+
+	private static boolean isSpazio(byte c) {
+		return c == ' ' || c == '\t' || c == '\r' || c == '\n';
+	}
+
+	private static boolean isLettera(byte c) {
+		return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+	}
+
+	private static boolean isCifra(byte c) {
+		return c >= '0' && c <= '9';
+	}
+}
@@ -1,12 +1,31 @@
 package symbolTable;
 import ast.LangType;
-import java.util.HashMap;
+import java.util.Arrays;
 /**
  * La classe {@code SymbolTable} rappresenta la tabella dei simboli utilizzata dal compilatore
  * per gestire le dichiarazioni delle variabili durante le fasi di type-checking e 
  * generazione del codice.
  * <p>
- * Implementa una tabella statica  che associa il nome di un identificatore ai suoi attributi (tipo e registro).
+ * Ogni istanza e' la tabella di una compilazione: associa il nome di un identificatore ai suoi
+ * attributi (tipo e registro). Gli identificatori internati in fase lessicale sono inoltre
+ * indicizzati per numero ({@link ast.NodeId#getSym()}), cosi' che le ricerche ripetute non
+ * calcolino hash di stringhe. Il {@link visitor.TypeCheckingVisitor} e il
+ * {@link visitor.CodeGeneration} ricevono la tabella nel costruttore, quindi compilazioni
+ * con tabelle diverse possono procedere in parallelo su thread diversi.
+ * </p>
+ * <p>
+ * La tabella e' a indirizzamento aperto con scansione lineare, senza un oggetto per entry:
+ * nome, hash, tipo e registro di ogni variabile stanno in array paralleli indicizzati dallo
+ * <em>slot</em> (l'ordine di dichiarazione), e le celle della tabella hash contengono solo
+ * slot. I visitor possono lavorare direttamente sugli slot ({@link #add(int, String, LangType, char)},
+ * {@link #slot(int, String)}, {@link #getTipo(int)}, {@link #getRegistro(int)}); l'API con
+ * {@link Attributes} resta disponibile e crea l'oggetto solo quando viene richiesto.
+ * </p>
+ * <p>
+ * I metodi statici ({@link #init()}, {@link #enter(String, Attributes)},
+ * {@link #lookup(String)}, ...) sono mantenuti per compatibilita': operano sulla tabella
+ * corrente del thread chiamante ({@link #corrente()}), usata anche dai visitor costruiti
+ * senza una tabella esplicita. Una singola istanza non e' thread-safe.
  * </p>
  * *
  */
@@ -44,13 +63,184 @@ public class SymbolTable {
 		
 	}
 	
-	private static HashMap<String,Attributes> table = new HashMap();
+	/** Tabella corrente di ogni thread, su cui operano i metodi statici. */
+	private static final ThreadLocal<SymbolTable> CORRENTE = ThreadLocal.withInitial(SymbolTable::new);
+	private static final LangType[] TIPI = LangType.values();
+
+	/*
+	 * Array paralleli indicizzati per slot: il nome, il suo hash, il numero nel pool (-1 se
+	 * non internato), l'ordinale del tipo, il registro e, se gia' richiesto, l'oggetto Attributes.
+	 */
+	private String[] nomi = new String[64];
+	private int[] hashes = new int[64];
+	private int[] simboli = new int[64];
+	private byte[] tipi = new byte[64];
+	private char[] registri = new char[64];
+	private Attributes[] attributi = new Attributes[64];
+	private int size;
+	/** Tabella hash: contiene slot + 1, 0 indica una cella vuota. */
+	private int[] celle = new int[128];
+	/** Slot + 1 indicizzato per numero dell'identificatore nel pool, 0 se non dichiarato. */
+	private int[] perSimbolo = new int[64];
+
 	/**
-     * Inizializza o svuota la Symbol Table. 
-     * Da invocare all'inizio di ogni nuova compilazione.
+     * Restituisce la tabella su cui operano i metodi statici nel thread corrente.
+     * * @return la tabella del thread, creata al primo utilizzo.
      */
-	public static void init() {
-		table.clear();
+	public static SymbolTable corrente() {
+		return CORRENTE.get();
+	}
+	/**
+     * Svuota la tabella, conservando la capacita' gia' allocata.
+     * Da invocare all'inizio di ogni nuova compilazione che riusa la tabella.
+     * Vengono azzerate solo le celle occupate, quindi il costo dipende dal numero di
+     * variabili e non dalla capacita' lasciata da una compilazione piu' grande.
+     */
+	public void clear() {
+		int mask = celle.length - 1;
+		for(int slot = 0; slot < size; slot++) {
+			// ogni slot occupa una sola cella, nella sequenza che parte dal suo hash
+			int i = mix(hashes[slot]) & mask;
+			while(celle[i] != slot + 1) {
+				i = (i + 1) & mask;
+			}
+			celle[i] = 0;
+			if(simboli[slot] >= 0) {
+				perSimbolo[simboli[slot]] = 0;
+			}
+		}
+		Arrays.fill(nomi, 0, size, null);
+		Arrays.fill(attributi, 0, size, null);
+		size = 0;
+	}
+	/**
+     * Dichiara una variabile senza creare oggetti per l'entry.
+     * * @param sym Il numero dell'identificatore, o -1 se non internato.
+     * @param id Il nome dell'identificatore.
+     * @param tipo Il tipo della variabile.
+     * @param registro Il registro dc assegnato, {@code '\0'} se non disponibile.
+     * @return lo slot della variabile, o -1 se l'identificatore e' gia' presente
+     * (errore di doppia dichiarazione).
+     */
+	public int add(int sym, String id, LangType tipo, char registro) {
+		if(sym >= 0 && sym < perSimbolo.length && perSimbolo[sym] != 0 && nomi[perSimbolo[sym] - 1] == id) {
+			return -1;
+		}
+		int h = id.hashCode();
+		int mask = celle.length - 1;
+		int i = mix(h) & mask;
+		for(int c; (c = celle[i]) != 0; i = (i + 1) & mask) {
+			if(hashes[c - 1] == h && id.equals(nomi[c - 1])) {
+				return -1;
+			}
+		}
+		int slot = size++;
+		if(slot == nomi.length) {
+			int n = slot * 2;
+			nomi = Arrays.copyOf(nomi, n);
+			hashes = Arrays.copyOf(hashes, n);
+			simboli = Arrays.copyOf(simboli, n);
+			tipi = Arrays.copyOf(tipi, n);
+			registri = Arrays.copyOf(registri, n);
+			attributi = Arrays.copyOf(attributi, n);
+		}
+		nomi[slot] = id;
+		hashes[slot] = h;
+		simboli[slot] = sym;
+		tipi[slot] = (byte) tipo.ordinal();
+		registri[slot] = registro;
+		celle[i] = slot + 1;
+		if(sym >= 0) {
+			if(sym >= perSimbolo.length) {
+				perSimbolo = Arrays.copyOf(perSimbolo, Math.max(sym + 1, perSimbolo.length * 2));
+			}
+			perSimbolo[sym] = slot + 1;
+		}
+		if(size * 2 > celle.length) {
+			rehash();
+		}
+		return slot;
+	}
+	/**
+     * Cerca lo slot di un identificatore: per numero, senza calcolare l'hash del nome,
+     * se il numero e' noto, altrimenti per nome. Il numero viene usato solo se lo slot
+     * trovato ha proprio quel nome: un numero di un altro pool ricade sulla ricerca per nome.
+     * * @param sym Il numero dell'identificatore, o -1 se non internato.
+     * @param id Il nome della variabile da cercare.
+     * @return lo slot della variabile, o -1 se non dichiarata.
+     */
+	public int slot(int sym, String id) {
+		if(sym >= 0 && sym < perSimbolo.length && perSimbolo[sym] != 0) {
+			int s = perSimbolo[sym] - 1;
+			if(nomi[s] == id) {
+				return s;
+			}
+		}
+		return slot(id);
+	}
+	/**
+     * Cerca lo slot di un identificatore per nome.
+     * * @param id Il nome della variabile da cercare.
+     * @return lo slot della variabile, o -1 se non dichiarata.
+     */
+	public int slot(String id) {
+		int h = id.hashCode();
+		int mask = celle.length - 1;
+		for(int i = mix(h) & mask, c; (c = celle[i]) != 0; i = (i + 1) & mask) {
+			// i nomi arrivano dal pool degli identificatori: di solito basta il confronto dei riferimenti
+			String nome = nomi[c - 1];
+			if(nome == id || (hashes[c - 1] == h && id.equals(nome))) {
+				return c - 1;
+			}
+		}
+		return -1;
+	}
+	/**
+     * Controlla uno slot ottenuto altrove, ad esempio il legame di un {@link ast.NodeId}
+     * impostato dal controllo dei tipi, che potrebbe riferirsi a un'altra tabella.
+     * * @param slot lo slot da controllare.
+     * @param id Il nome che lo slot deve avere.
+     * @return {@code true} se in questa tabella lo slot esiste e appartiene alla variabile {@code id}.
+     */
+	public boolean contiene(int slot, String id) {
+		if(slot < 0 || slot >= size) {
+			return false;
+		}
+		String nome = nomi[slot];
+		return nome == id || nome.equals(id);
+	}
+	/**
+     * @param slot lo slot di una variabile.
+     * @return il nome della variabile.
+     */
+	public String getNome(int slot) {
+		return nomi[slot];
+	}
+	/**
+     * @param slot lo slot di una variabile.
+     * @return il tipo della variabile.
+     */
+	public LangType getTipo(int slot) {
+		return TIPI[tipi[slot]];
+	}
+	/**
+     * @param slot lo slot di una variabile.
+     * @return il registro della variabile, {@code '\0'} se non assegnato.
+     */
+	public char getRegistro(int slot) {
+		return registri[slot];
+	}
+	/**
+     * Restituisce gli attributi di uno slot, creandoli alla prima richiesta.
+     * * @param slot lo slot di una variabile.
+     * @return l'oggetto {@link Attributes} della variabile.
+     */
+	public Attributes getAttributes(int slot) {
+		Attributes attr = attributi[slot];
+		if(attr == null) {
+			attr = attributi[slot] = new Attributes(getTipo(slot), registri[slot]);
+		}
+		return attr;
 	}
 	/**
      * Inserisce una nuova associazione nella tabella dei simboli.
@@ -59,12 +249,8 @@ public class SymbolTable {
      * @return {@code true} se l'inserimento ha successo; {@code false} se l'identificatore 
      * è già presente (errore di doppia dichiarazione).
      */
-	public static boolean enter(String id, Attributes entry) {
-		if(table.containsKey(id)) {
-			return false;
-		}
-		table.put(id, entry);
-		return true;
+	public boolean put(String id, Attributes entry) {
+		return put(-1, id, entry);
 	}
 	/**
      * Cerca un identificatore nella tabella e ne restituisce gli attributi.
@@ -72,30 +258,126 @@ public class SymbolTable {
      * @return L'oggetto {@link Attributes} associato, o {@code null} se l'identificatore 
      * non è stato dichiarato.
      */
-	public static Attributes lookup(String id) {
-		return table.get(id);
+	public Attributes get(String id) {
+		return get(-1, id);
+	}
+	/**
+     * Inserisce un identificatore noto anche per numero (vedi {@link token.InternPool}).
+     * * @param sym Il numero dell'identificatore, o -1 se non internato.
+     * @param id Il nome dell'identificatore.
+     * @param entry L'oggetto {@link Attributes} contenente tipo e registro.
+     * @return {@code true} se l'inserimento ha successo; {@code false} se l'identificatore 
+     * è già presente.
+     */
+	public boolean put(int sym, String id, Attributes entry) {
+		int slot = add(sym, id, entry.getTipo(), entry.getRegistro());
+		if(slot < 0) {
+			return false;
+		}
+		attributi[slot] = entry;
+		return true;
 	}
 	/**
-     * Restituisce una rappresentazione testuale dello stato attuale della Symbol Table.
-     * Utilizzato principalmente per scopi di debug.
+     * Cerca un identificatore per numero, senza calcolare l'hash del nome.
+     * Se il numero non e' noto ricade sulla ricerca per nome.
+     * * @param sym Il numero dell'identificatore, o -1 se non internato.
+     * @param id Il nome della variabile da cercare.
+     * @return L'oggetto {@link Attributes} associato, o {@code null} se non dichiarato.
+     */
+	public Attributes get(int sym, String id) {
+		int slot = slot(sym, id);
+		return slot < 0 ? null : getAttributes(slot);
+	}
+	/**
+     * Restituisce il numero di variabili memorizzate nella tabella.
+     * * @return il numero di entry presenti, che sono anche gli slot 0 .. count() - 1.
+     */
+	public int count() {
+		return size;
+	}
+	/**
+     * Restituisce una rappresentazione testuale dello stato attuale della tabella,
+     * in ordine di dichiarazione. Utilizzato principalmente per scopi di debug.
      * * @return Una stringa formattata contenente tutti gli ID e i relativi tipi.
      */
-	public static String toStr() {
+	@Override
+	public String toString() {
 		StringBuilder sb = new StringBuilder();
 		sb.append("--- SYMBOL TABLE ---\n");
 		
-		for(String id: table.keySet()) {
-			Attributes attr = table.get(id);
-			sb.append("ID: ").append(id).append(" | Tipo: ").append(attr.getTipo()).append("\n");
+		for(int slot = 0; slot < size; slot++) {
+			sb.append("ID: ").append(nomi[slot]).append(" | Tipo: ").append(getTipo(slot)).append("\n");
 		}
 		sb.append("--------------------");
 	    return sb.toString();
 	}
+
+	private void rehash() {
+		celle = new int[celle.length * 2];
+		int mask = celle.length - 1;
+		for(int slot = 0; slot < size; slot++) {
+			int i = mix(hashes[slot]) & mask;
+			while(celle[i] != 0) {
+				i = (i + 1) & mask;
+			}
+			celle[i] = slot + 1;
+		}
+	}
+
+	/**
+	 * Disperde l'hash prima di sceglierne la cella: i nomi generati in serie (v1, v2, ...)
+	 * hanno hash consecutivi, che con la scansione lineare formerebbero lunghe sequenze di celle piene.
+	 */
+	private static int mix(int h) {
+		h *= 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+
+	/*
+	 * Facciata statica: gli stessi metodi, sulla tabella corrente del thread.
+	 */
+
+	/**
+     * Inizializza o svuota la tabella corrente del thread.
+     * Da invocare all'inizio di ogni nuova compilazione.
+     */
+	public static void init() {
+		corrente().clear();
+	}
+	/**
+     * @see #put(String, Attributes)
+     */
+	public static boolean enter(String id, Attributes entry) {
+		return corrente().put(id, entry);
+	}
+	/**
+     * @see #get(String)
+     */
+	public static Attributes lookup(String id) {
+		return corrente().get(id);
+	}
+	/**
+     * @see #put(int, String, Attributes)
+     */
+	public static boolean enter(int sym, String id, Attributes entry) {
+		return corrente().put(sym, id, entry);
+	}
+	/**
+     * @see #get(int, String)
+     */
+	public static Attributes lookup(int sym, String id) {
+		return corrente().get(sym, id);
+	}
+	/**
+     * @see #toString()
+     */
+	public static String toStr() {
+		return corrente().toString();
+	}
 	/**
-     * Restituisce il numero di variabili attualmente memorizzate nella tabella.
-     * * @return il numero di entry presenti.
+     * @see #count()
      */
 	public static int size() {
-		return table.size();
+		return corrente().count();
 	}
 }
\ No newline at end of file
@@ -3,14 +3,24 @@ package test;
 import static org.junit.jupiter.api.Assertions.*;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
 import scanner.Scanner;
 import parser.Parser;
-import ast.NodeProgram;
+import ast.*;
 import visitor.TypeCheckingVisitor;
+import visitor.TypeCheckingCodeGeneration;
 import visitor.CodeGeneration;
 import visitor.TypeDescriptor;
 import visitor.TipoTD;
 import symbolTable.SymbolTable;
+import compiler.StreamingCompiler;
+import compiler.CompilerContext;
+import ast.AstArena;
+import visitor.ArenaTypeChecking;
+import visitor.ArenaCodeGeneration;
+import visitor.PatternTypeChecking;
+import visitor.PatternCodeGeneration;
 
 class TestCodeGenerator {
 
@@ -19,6 +29,19 @@ class TestCodeGenerator {
         SymbolTable.init(); // Reset della tabella prima di ogni test 
     }
 
+    /**
+     * Programmi corretti su cui ogni variante del compilatore deve produrre lo stesso
+     * codice di {@link #runPipeline}.
+     */
+    private static final String[] CORRETTI = { "src/test/data/CodeGenerator/1_assign.txt",
+            "src/test/data/CodeGenerator/2_divsioni.txt", "src/test/data/CodeGenerator/3_generale.txt",
+            "src/test/data/CheckingVisitor/5_corretto.txt", "src/test/data/CheckingVisitor/6_corretto.txt",
+            "src/test/data/CheckingVisitor/7_corretto.txt" };
+
+    static String[] programmiCorretti() {
+        return CORRETTI;
+    }
+
     private CodeGeneration runPipeline(String fileRelativePath) throws Exception {
         Scanner sc = new Scanner(fileRelativePath);
         Parser p = new Parser(sc);
@@ -68,6 +91,298 @@ class TestCodeGenerator {
         System.out.println("Test 3_generale.txt: " + code);
     }
 
+    /**
+     * La compilazione uno statement alla volta deve produrre lo stesso codice
+     * della compilazione in due passate sull'AST completo.
+     */
+    @ParameterizedTest
+    @MethodSource("programmiCorretti")
+    void testStreamingStessoCodice(String path) throws Exception {
+        String atteso = runPipeline(path).getCodice();
+        StringBuilder out = new StringBuilder();
+        StreamingCompiler sc = new StreamingCompiler(out);
+        assertTrue(sc.compile(new Scanner(path)), sc.getErrori().toString());
+        assertEquals(atteso, out.toString());
+    }
+
+    @Test
+    void testStreamingErrori() throws Exception {
+        // errore semantico: il controllo dei tipi prosegue e riporta tutti gli errori
+        StreamingCompiler sc = new StreamingCompiler(new StringBuilder());
+        assertFalse(sc.compile(new Scanner("src/test/data/CheckingVisitor/4_tipoNonCompatibile.txt")));
+        assertEquals(1, sc.getErrori().size());
+        assertEquals(2, sc.getStatement());
+    }
+
+    /**
+     * Un contesto riutilizzato per piu' compilazioni deve dare lo stesso codice di una
+     * compilazione da zero, anche dopo un programma con errori.
+     */
+    @Test
+    void testContestoRiutilizzato() throws Exception {
+        CompilerContext ctx = new CompilerContext();
+        for (int giro = 0; giro < 2; giro++) {
+            for (String path : CORRETTI) {
+                String atteso = runPipeline(path).getCodice();
+                String sorgente = java.nio.file.Files.readString(java.nio.file.Path.of(path));
+                assertTrue(ctx.compile(sorgente), path + ": " + ctx.getErrori());
+                assertEquals(atteso, ctx.getCodice().toString(), path);
+            }
+            assertFalse(ctx.compile("int a; b = a;"));
+            assertEquals(1, ctx.getErrori().size());
+            assertEquals("", ctx.getCodice().toString());
+        }
+        int simboli = ctx.getPool().size();
+        assertTrue(ctx.compile("int a = 1; print a;"));
+        assertEquals(simboli, ctx.getPool().size(), "gli identificatori gia' visti restano nel pool");
+        assertEquals(" 1 sa la p P", ctx.getCodice().toString());
+    }
+
+    /**
+     * Compilazioni su thread diversi non devono interferire: ogni contesto ha la propria
+     * tabella dei simboli, e la facciata statica usa una tabella per thread.
+     */
+    @Test
+    void testCompilazioniConcorrenti() throws Exception {
+        String[] files = CORRETTI;
+        String[] sorgenti = new String[files.length];
+        String[] attesi = new String[files.length];
+        for (int i = 0; i < files.length; i++) {
+            sorgenti[i] = java.nio.file.Files.readString(java.nio.file.Path.of(files[i]));
+            attesi[i] = runPipeline(files[i]).getCodice();
+        }
+        int thread = 8;
+        java.util.concurrent.ExecutorService pool = java.util.concurrent.Executors.newFixedThreadPool(thread);
+        try {
+            java.util.List<java.util.concurrent.Callable<Void>> compiti = new java.util.ArrayList<>();
+            for (int t = 0; t < thread; t++) {
+                int primo = t;
+                compiti.add(() -> {
+                    CompilerContext ctx = new CompilerContext();
+                    for (int giro = 0; giro < 200; giro++) {
+                        int i = (primo + giro) % files.length;
+                        assertTrue(ctx.compile(sorgenti[i]), files[i] + ": " + ctx.getErrori());
+                        assertEquals(attesi[i], ctx.getCodice().toString(), files[i]);
+                        // la facciata statica lavora sulla tabella del thread
+                        if (giro % 20 == 0)
+                            assertEquals(attesi[i], runPipeline(files[i]).getCodice(), files[i]);
+                    }
+                    return null;
+                });
+            }
+            for (java.util.concurrent.Future<Void> f : pool.invokeAll(compiti))
+                f.get();
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("programmiCorretti")
+    void testArenaStessoCodice(String path) throws Exception {
+        String atteso = runPipeline(path).getCodice();
+
+        NodeProgram nP = new Parser(new Scanner(path)).parse();
+        AstArena arena = AstArena.from(nP);
+        // andata e ritorno: l'AST ricostruito stampa come l'originale
+        assertEquals(nP.toString(), arena.toProgram().toString());
+
+        ArenaTypeChecking tc = new ArenaTypeChecking(arena);
+        assertTrue(tc.check(), tc.getErrori().toString());
+        ArenaCodeGeneration cg = new ArenaCodeGeneration(arena, tc);
+        cg.genera();
+        assertEquals("", cg.getLog());
+        assertEquals(atteso, cg.getCodice());
+    }
+
+    @Test
+    void testArenaStessiErrori() throws Exception {
+        // stessi errori, uno per statement, del controllo dei tipi sull'AST a oggetti
+        String[] errati = { "1_dicRipetute.txt", "2_idNonDec.txt", "4_tipoNonCompatibile.txt" };
+        for (String f : errati) {
+            String path = "src/test/data/CheckingVisitor/" + f;
+            SymbolTable.init();
+            StreamingCompiler sc = new StreamingCompiler(new StringBuilder());
+            sc.compile(new Scanner(path));
+            ArenaTypeChecking tc = new ArenaTypeChecking(AstArena.from(new Parser(new Scanner(path)).parse()));
+            assertFalse(tc.check(), f);
+            assertEquals(sc.getErrori(), tc.getErrori(), f);
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("programmiCorretti")
+    void testPatternStessoCodice(String path) throws Exception {
+        String atteso = runPipeline(path).getCodice();
+
+        NodeProgram nP = new Parser(new Scanner(path)).parse();
+        PatternTypeChecking tc = new PatternTypeChecking();
+        assertFalse(tc.check(nP).isError(), tc.getErrori().toString());
+        PatternCodeGeneration cg = new PatternCodeGeneration();
+        assertTrue(cg.genera(nP));
+        assertEquals(atteso, cg.getCodice());
+    }
+
+    @Test
+    void testPatternStessiErrori() throws Exception {
+        String[] errati = { "1_dicRipetute.txt", "2_idNonDec.txt", "4_tipoNonCompatibile.txt" };
+        for (String f : errati) {
+            String path = "src/test/data/CheckingVisitor/" + f;
+            StreamingCompiler sc = new StreamingCompiler(new StringBuilder());
+            sc.compile(new Scanner(path));
+            PatternTypeChecking tc = new PatternTypeChecking();
+            tc.check(new Parser(new Scanner(path)).parse());
+            assertEquals(sc.getErrori(), tc.getErrori(), f);
+        }
+    }
+
+    @Test
+    void testEspressioniProfonde() throws Exception {
+        // catene lunghe a sinistra (dal parser) e a destra (costruite a mano)
+        int n = 200_000;
+        StringBuilder sb = new StringBuilder("int a = 1;\nfloat f = 2.5;\na = a");
+        for (int i = 0; i < n; i++)
+            sb.append(i % 2 == 0 ? " + a * 2" : " - 3");
+        sb.append(";\nf = f");
+        for (int i = 0; i < n; i++)
+            sb.append(" / 2");
+        sb.append(";\nprint f;");
+        NodeProgram nP = new Parser(new scanner.DfaScanner(java.nio.ByteBuffer.wrap(sb.toString().getBytes())).lexAll()).parse();
+        NodeExpr destra = new NodeCost("1", LangType.INT);
+        for (int i = 0; i < n; i++)
+            destra = new NodeBinOp(LangOper.MINUS, new NodeDeref(new NodeId("a")), destra);
+        nP.getDecSts().add(new NodeAssign(new NodeId("a"), destra));
+
+        TypeDescriptor td = new TypeDescriptor(TipoTD.OK);
+        nP.accept(new TypeCheckingVisitor(td));
+        CodeGeneration cg = new CodeGeneration();
+        nP.accept(cg);
+        assertEquals("", cg.getLog());
+        String codice = cg.getCodice();
+        assertTrue(codice.startsWith(" 1 sa 2.5 sb la la 2 * + 3 -"), codice.substring(0, 40));
+        assertTrue(codice.contains("lb 2 5 k / 0 k 2 5 k / 0 k"));
+        assertTrue(codice.endsWith(" lb p P" + " la".repeat(n) + " 1" + " -".repeat(n) + " sa"));
+
+        assertFalse(new PatternTypeChecking().check(nP).isError());
+        PatternCodeGeneration pcg = new PatternCodeGeneration();
+        assertTrue(pcg.genera(nP));
+        assertEquals(codice, pcg.getCodice());
+
+        // un errore in fondo a una catena profonda viene trovato senza ricorsione
+        SymbolTable.init();
+        NodeExpr errata = new NodeDeref(new NodeId("z"));
+        for (int i = 0; i < n; i++)
+            errata = new NodeBinOp(LangOper.PLUS, errata, new NodeCost("1", LangType.INT));
+        java.util.ArrayList<ast.NodeDecSt> decSts = new java.util.ArrayList<>();
+        decSts.add(new NodeDecl(LangType.INT, new NodeId("b"), errata));
+        TypeCheckingVisitor tc = new TypeCheckingVisitor(new TypeDescriptor(TipoTD.OK));
+        new NodeProgram(decSts).accept(tc);
+        assertEquals("Errore semantico: variabile 'z' non dichiarata", tc.getResType().getmsg());
+    }
+
+    @ParameterizedTest
+    @MethodSource("programmiCorretti")
+    void testPassataUnica(String path) throws Exception {
+        String atteso = runPipeline(path).getCodice();
+
+        NodeProgram nP = new Parser(new Scanner(path)).parse();
+        TypeCheckingCodeGeneration tc = new TypeCheckingCodeGeneration();
+        nP.accept(tc);
+        assertEquals(java.util.List.of(), tc.getErrori());
+        assertEquals(atteso, tc.getCodice());
+        // l'AST resta decorato come dopo le due passate
+        CodeGeneration cg = new CodeGeneration(new StringBuilder(), tc.getSymbolTable());
+        nP.accept(cg);
+        assertEquals(atteso, cg.getCodice());
+    }
+
+    @Test
+    void testPassataUnicaErrori() throws Exception {
+        // gli errori sono tutti riportati, con gli stessi messaggi della compilazione statement per statement
+        String[] errati = { "1_dicRipetute.txt", "2_idNonDec.txt", "3_idNonDec", "4_tipoNonCompatibile.txt" };
+        for (String f : errati) {
+            String path = "src/test/data/CheckingVisitor/" + f;
+            StreamingCompiler sc = new StreamingCompiler(new StringBuilder());
+            sc.compile(new Scanner(path));
+            TypeCheckingCodeGeneration tc = new TypeCheckingCodeGeneration();
+            new Parser(new Scanner(path)).parse().accept(tc);
+            assertFalse(tc.getErrori().isEmpty(), f);
+            assertEquals(sc.getErrori(), tc.getErrori(), f);
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("programmiCorretti")
+    void testIdentificatoriLegati(String path) throws Exception {
+        String atteso = runPipeline(path).getCodice();
+
+        NodeProgram nP = new Parser(new Scanner(path)).parse();
+        SymbolTable simboli = new SymbolTable();
+        nP.accept(new TypeCheckingVisitor(new TypeDescriptor(TipoTD.OK), simboli));
+        java.util.ArrayList<NodeId> ids = new java.util.ArrayList<>();
+        for (NodeDecSt ds : nP.getDecSts())
+            raccogliId(ds, ids);
+        assertFalse(ids.isEmpty());
+        for (NodeId id : ids) {
+            assertTrue(id.getSlot() >= 0, id.getName());
+            assertEquals(id.getName(), simboli.getNome(id.getSlot()));
+            assertNotNull(id.getEntry(), id.getName());
+        }
+
+        CodeGeneration cg = new CodeGeneration(new StringBuilder(), simboli);
+        nP.accept(cg);
+        assertEquals("", cg.getLog());
+        assertEquals(atteso, cg.getCodice());
+        PatternCodeGeneration pcg = new PatternCodeGeneration(new StringBuilder(), simboli);
+        assertTrue(pcg.genera(nP));
+        assertEquals(atteso, pcg.getCodice());
+
+        // i legami valgono solo per la tabella con cui sono stati fatti: con un'altra tabella,
+        // vuota o con altre variabili negli stessi slot, le variabili non vengono trovate
+        SymbolTable altra = new SymbolTable();
+        for (int s = 0; s < simboli.count(); s++)
+            altra.add(-1, "altro" + s, LangType.INT, (char) ('a' + s));
+        for (SymbolTable t : new SymbolTable[] { new SymbolTable(), altra }) {
+            cg = new CodeGeneration(new StringBuilder(), t);
+            nP.accept(cg);
+            assertTrue(cg.getLog().contains("non assegnati"));
+            assertFalse(new PatternCodeGeneration(new StringBuilder(), t).genera(nP));
+        }
+    }
+
+    @Test
+    void testIdentificatoreNonDichiarato() throws Exception {
+        // un identificatore non dichiarato resta senza legame
+        NodeProgram nP = new Parser(new Scanner("src/test/data/CheckingVisitor/2_idNonDec.txt")).parse();
+        nP.accept(new TypeCheckingVisitor(new TypeDescriptor(TipoTD.OK), new SymbolTable()));
+        java.util.ArrayList<NodeId> ids = new java.util.ArrayList<>();
+        for (NodeDecSt ds : nP.getDecSts())
+            raccogliId(ds, ids);
+        assertTrue(ids.stream().anyMatch(id -> id.getSlot() == -1 && id.getEntry() == null));
+    }
+
+    private static void raccogliId(NodeAST n, java.util.List<NodeId> ids) {
+        switch (n) {
+        case NodeDecl d -> {
+            ids.add(d.getId());
+            if (d.getInit() != null)
+                raccogliId(d.getInit(), ids);
+        }
+        case NodeAssign a -> {
+            ids.add(a.getId());
+            raccogliId(a.getExpr(), ids);
+        }
+        case NodePrint p -> ids.add(p.getId());
+        case NodeDeref d -> ids.add(d.getId());
+        case NodeBinOp b -> {
+            raccogliId(b.getLeft(), ids);
+            raccogliId(b.getRight(), ids);
+        }
+        default -> {
+        }
+        }
+    }
+
     @Test
     void test4RegistriFiniti() throws Exception {
         CodeGeneration cg = runPipeline("src/test/data/CodeGenerator/4_registriFiniti.txt");
@@ -2,8 +2,15 @@ package test;
 
 import static org.junit.jupiter.api.Assertions.*;
 import org.junit.jupiter.api.Test;
+import parser.IncrementalParser;
+import parser.ParallelParser;
+import parser.Recognizer;
 import parser.Parser;
 import parser.SyntacticException;
+import scanner.DfaScanner;
+import scanner.Diagnostics;
+import scanner.LexicalException;
+import token.TokenBuffer;
 import scanner.Scanner;
 import java.io.FileNotFoundException;
 import ast.*;
@@ -12,6 +19,106 @@ class TestParser {
     
     private final String basePath = "src/test/data/";
 
+    /**
+     * Il riconoscitore deve accettare e rifiutare gli stessi programmi del parser,
+     * con lo stesso messaggio d'errore, sia leggendo dallo scanner sia dal buffer dei token.
+     */
+    @Test
+    void testRecognizerComeParser() throws Exception {
+        java.util.List<java.io.File> files = new java.util.ArrayList<>();
+        files.addAll(java.util.List.of(new java.io.File(basePath).listFiles(java.io.File::isFile)));
+        files.addAll(java.util.List.of(new java.io.File(basePath + "CodeGenerator").listFiles()));
+        files.addAll(java.util.List.of(new java.io.File(basePath + "CheckingVisitor").listFiles()));
+        files.addAll(java.util.List.of(new java.io.File(basePath + "testScanner").listFiles()));
+        int errati = 0;
+        for (java.io.File f : files) {
+            String atteso = null;
+            try {
+                new Parser(new Scanner(f.getPath())).parse();
+            } catch (SyntacticException e) {
+                atteso = e.getMessage();
+            }
+            Recognizer r = new Recognizer(new Scanner(f.getPath()));
+            assertEquals(atteso == null, r.recognize(), f.getName());
+            if (atteso != null) {
+                errati++;
+                assertTrue(r.getErrore().startsWith(atteso), f.getName() + ": " + r.getErrore());
+                continue;
+            }
+            assertNull(r.getErrore());
+            assertTrue(new Recognizer(new DfaScanner(f.getPath()).lexAll()).recognize(), f.getName());
+        }
+        assertTrue(errati > 5);
+
+        // la posizione riportata e' quella del token errato
+        Recognizer r = new Recognizer(new Scanner(basePath + "testParserEcc_0.txt"));
+        assertFalse(r.recognize());
+        assertEquals(1, r.getRiga());
+        assertEquals(1, token.Span.riga(r.getSpan()));
+        assertEquals(4, token.Span.colonna(r.getSpan()));
+    }
+
+    /**
+     * L'AST salvato nella cache binaria deve essere ricaricato identico (struttura, valori
+     * e posizioni); un file danneggiato deve essere rifiutato.
+     */
+    @Test
+    void testCacheAst() throws Exception {
+        java.util.List<java.io.File> files = new java.util.ArrayList<>();
+        files.addAll(java.util.List.of(new java.io.File(basePath).listFiles(java.io.File::isFile)));
+        files.addAll(java.util.List.of(new java.io.File(basePath + "CodeGenerator").listFiles()));
+        files.addAll(java.util.List.of(new java.io.File(basePath + "CheckingVisitor").listFiles()));
+        int salvati = 0;
+        for (java.io.File f : files) {
+            NodeProgram prog;
+            try {
+                prog = new Parser(new Scanner(f.getPath())).parse();
+            } catch (SyntacticException e) {
+                continue;
+            }
+            byte[] cache = AstCache.serializza(prog);
+            NodeProgram letto = AstCache.deserializza(cache);
+            assertEquals(prog.toString(), letto.toString(), f.getName());
+            NodeProgram arena = AstArena.from(prog).toProgram();
+            for (int i = 0; i < prog.getDecSts().size(); i++) {
+                assertEquals(prog.getDecSts().get(i).getSpan(), letto.getDecSts().get(i).getSpan(), f.getName());
+                if (prog.getDecSts().get(i) instanceof NodeDecl d) {
+                    // anche l'identificatore dichiarato conserva la sua posizione
+                    assertEquals(d.getId().getSpan(), ((NodeDecl) letto.getDecSts().get(i)).getId().getSpan(), f.getName());
+                    assertEquals(d.getId().getSpan(), ((NodeDecl) arena.getDecSts().get(i)).getId().getSpan(), f.getName());
+                }
+            }
+            // la posizione e' conservata in ogni nodo: la nuova codifica e' identica
+            assertArrayEquals(cache, AstCache.serializza(letto), f.getName());
+            salvati++;
+        }
+        assertTrue(salvati > 5);
+
+        NodeProgram prog = new Parser(new Scanner(basePath + "CodeGenerator/3_generale.txt")).parse();
+        java.nio.file.Path file = java.nio.file.Files.createTempFile("ast", ".bin");
+        AstCache.salva(prog, file.toString());
+        assertEquals(prog.toString(), AstCache.carica(file.toString()).toString());
+        java.nio.file.Files.delete(file);
+
+        byte[] cache = AstCache.serializza(prog);
+        byte[] corrotta = cache.clone();
+        corrotta[corrotta.length - 3] ^= 1;
+        assertThrows(java.io.IOException.class, () -> AstCache.deserializza(corrotta));
+        byte[] versione = cache.clone();
+        versione[4] = (byte) (AstCache.VERSIONE + 1);
+        assertThrows(java.io.IOException.class, () -> AstCache.deserializza(versione));
+        assertThrows(java.io.IOException.class,
+                () -> AstCache.deserializza(java.util.Arrays.copyOf(cache, cache.length - 1)));
+        assertThrows(java.io.IOException.class, () -> AstCache.deserializza("int a;".getBytes()));
+
+        // i nomi sono codificati in UTF-8, anche fuori dal Latin-1
+        java.util.ArrayList<NodeDecSt> decSts = new java.util.ArrayList<>();
+        decSts.add(new NodeDecl(LangType.INT, new NodeId("perch\u00e9\u20ac"), null));
+        decSts.add(new NodePrint(new NodeId("perch\u00e9\u20ac")));
+        NodeProgram nomi = new NodeProgram(decSts);
+        assertEquals(nomi.toString(), AstCache.deserializza(AstCache.serializza(nomi)).toString());
+    }
+
     /**
      * Test per programmi sintatticamente corretti.
      * Il parser non deve lanciare alcuna eccezione 
@@ -92,4 +199,219 @@ class TestParser {
         		("La struttura a cascata non e' stata costruita correttamente"));
         
     }
+
+    /**
+     * Programmi con moltissimi statement e catene di operatori molto lunghe:
+     * il parser deve costruire l'albero associativo a sinistra senza esaurire lo stack.
+     */
+    @Test
+    void testParserCateneLunghe() throws Exception {
+        int n = 200_000;
+        StringBuilder sb = new StringBuilder("int a;\n");
+        for (int i = 0; i < n; i++)
+            sb.append("a = 1;\n");
+        sb.append("a = a");
+        for (int i = 0; i < n; i++)
+            sb.append(i % 2 == 0 ? " + a * 2" : " - 3");
+        sb.append(";\n");
+        TokenBuffer tb = new DfaScanner(java.nio.ByteBuffer.wrap(sb.toString().getBytes())).lexAll();
+        NodeProgram prog = new Parser(tb).parse();
+        assertEquals(n + 2, prog.getDecSts().size());
+
+        NodeExpr e = ((NodeAssign) prog.getDecSts().get(n + 1)).getExpr();
+        for (int i = n - 1; i >= 0; i--) {
+            NodeBinOp op = assertInstanceOf(NodeBinOp.class, e);
+            if (i % 2 == 0) {
+                assertEquals(LangOper.PLUS, op.getOp());
+                NodeBinOp per = assertInstanceOf(NodeBinOp.class, op.getRight());
+                assertEquals(LangOper.TIMES, per.getOp());
+            } else {
+                assertEquals(LangOper.MINUS, op.getOp());
+                assertInstanceOf(NodeCost.class, op.getRight());
+            }
+            e = op.getLeft();
+        }
+        assertInstanceOf(NodeDeref.class, e);
+    }
+
+    /**
+     * Il parser parallelo, con pezzi piccolissimi, deve costruire lo stesso AST del parser
+     * sequenziale e segnalare lo stesso primo errore.
+     */
+    @Test
+    void testParserParallelo() throws Exception {
+        ParallelParser par = new ParallelParser(java.util.concurrent.ForkJoinPool.commonPool(), 3);
+        for (java.io.File f : new java.io.File(basePath).listFiles(java.io.File::isFile)) {
+            TokenBuffer tb;
+            try {
+                tb = new DfaScanner(f.getPath()).lexAll();
+            } catch (LexicalException e) {
+                continue;
+            }
+            NodeProgram atteso;
+            try {
+                atteso = new Parser(tb).parse();
+            } catch (SyntacticException e) {
+                SyntacticException e2 = assertThrows(SyntacticException.class, () -> par.parse(tb), f.getName());
+                assertEquals(e.getMessage(), e2.getMessage(), f.getName());
+                continue;
+            }
+            assertEquals(atteso.toString(), par.parse(tb).toString(), f.getName());
+        }
+        // due errori in pezzi diversi: viene segnalato il primo nell'ordine del sorgente
+        StringBuilder sb = new StringBuilder("int a;\n");
+        for (int i = 0; i < 100; i++)
+            sb.append(i == 40 || i == 80 ? "a = a + ;\n" : "a = a * 2;\n");
+        TokenBuffer tb = new DfaScanner(java.nio.ByteBuffer.wrap(sb.toString().getBytes())).lexAll();
+        SyntacticException e = assertThrows(SyntacticException.class, () -> new Parser(tb).parse());
+        SyntacticException e2 = assertThrows(SyntacticException.class, () -> par.parse(tb));
+        assertEquals(e.getMessage(), e2.getMessage());
+        assertTrue(e2.getMessage().contains("42"), e2.getMessage());
+    }
+
+    /**
+     * Il parser alimentato da un TokenBuffer (lexing batch) deve costruire lo stesso AST
+     * del parser alimentato dallo Scanner.
+     */
+    @Test
+    void testParserDaTokenBuffer() throws Exception {
+        String[] files = { "testAST.txt", "testParserCorretto1.txt", "testParserCorretto2.txt",
+                "testSoloDich.txt", "testSoloDichPrint.txt", "CodeGenerator/3_generale.txt" };
+        for (String f : files) {
+            String atteso = new Parser(new Scanner(basePath + f)).parse().toString();
+            String reale = new Parser(new DfaScanner(basePath + f).lexAll()).parse().toString();
+            assertEquals(atteso, reale, f);
+        }
+        assertThrows(SyntacticException.class, () ->
+            new Parser(new DfaScanner(basePath + "testParserEcc_1.txt").lexAll()).parse());
+    }
+
+    /**
+     * In modalita' recupero scanner e parser riportano tutti gli errori lessicali e sintattici,
+     * ognuno con la sua riga, e l'AST conserva gli statement corretti; il lexing batch deve
+     * dare gli stessi errori e lo stesso AST.
+     */
+    @Test
+    void testParserRecupero() throws Exception {
+        String file = basePath + "testParserRecupero.txt";
+        // in modalita' normale si ferma al primo errore
+        SyntacticException e = assertThrows(SyntacticException.class, () -> new Parser(new Scanner(file)).parse());
+        String primo = e.getCause().getMessage();
+
+        Diagnostics diag = new Diagnostics();
+        Scanner sc = new Scanner(file);
+        sc.setDiagnostics(diag);
+        Parser p = new Parser(sc);
+        p.setDiagnostics(diag);
+        NodeProgram prog = p.parse();
+
+        java.util.List<Diagnostics.Diagnostic> errori = diag.getDiagnostics();
+        assertEquals(5, errori.size(), errori.toString());
+        assertEquals(primo, errori.get(0).messaggio());
+        int[] righe = { 2, 3, 4, 5, 7 };
+        Diagnostics.Fase[] fasi = { Diagnostics.Fase.LESSICALE, Diagnostics.Fase.SINTATTICA,
+                Diagnostics.Fase.LESSICALE, Diagnostics.Fase.LESSICALE, Diagnostics.Fase.SINTATTICA };
+        for (int i = 0; i < righe.length; i++) {
+            assertEquals(righe[i], errori.get(i).riga(), errori.get(i).messaggio());
+            assertEquals(fasi[i], errori.get(i).fase(), errori.get(i).messaggio());
+        }
+        // restano gli statement corretti: int a; print a; print c;
+        assertEquals(3, prog.getDecSts().size());
+
+        // stesso risultato in modalita' batch
+        Diagnostics diagBatch = new Diagnostics();
+        DfaScanner dfa = new DfaScanner(file);
+        dfa.setDiagnostics(diagBatch);
+        TokenBuffer tb = dfa.lexAll();
+        Parser pb = new Parser(tb);
+        pb.setDiagnostics(diagBatch);
+        assertEquals(prog.toString(), pb.parse().toString());
+        assertEquals(errori, diagBatch.getDiagnostics());
+
+        // senza diagnostica lo scanner in modalita' batch si ferma al primo errore
+        LexicalException le = assertThrows(LexicalException.class, () -> new DfaScanner(file).lexAll());
+        assertEquals(primo, le.getMessage());
+    }
+
+    /**
+     * Dopo ogni modifica del testo, la rianalisi incrementale deve produrre gli stessi token
+     * e lo stesso AST, con le stesse posizioni, di una rianalisi completa; se la modifica rende
+     * il programma errato deve sollevare un'eccezione lasciando invariato lo stato. L'AST viene
+     * controllato dopo ogni modifica: gli spostamenti in sospeso si accumulano comunque, perche'
+     * leggerlo non li applica.
+     */
+    @Test
+    void testParserIncrementale() throws Exception {
+        String testo = new String(java.nio.file.Files.readAllBytes(
+                java.nio.file.Path.of(basePath + "CodeGenerator/3_generale.txt")));
+        IncrementalParser inc = new IncrementalParser(testo.getBytes());
+        String[] inserti = { "", "x", " ", ";", "\n", "int q;", "1", " + 2", "print i;", "=" };
+        java.util.Random r = new java.util.Random(7);
+        for (int k = 0; k < 500; k++) {
+            int offset = r.nextInt(testo.length() + 1);
+            int rimossi = Math.min(r.nextInt(4), testo.length() - offset);
+            String ins = inserti[r.nextInt(inserti.length)];
+            String nuovo = testo.substring(0, offset) + ins + testo.substring(offset + rimossi);
+
+            String atteso;
+            TokenBuffer tokAttesi;
+            try {
+                tokAttesi = new DfaScanner(java.nio.ByteBuffer.wrap(nuovo.getBytes())).lexAll();
+                atteso = new Parser(tokAttesi).parse().toString();
+            } catch (Exception e) {
+                assertThrows(Exception.class, () -> inc.edit(offset, rimossi, ins), nuovo);
+                assertEquals(testo, new String(inc.getSource()));
+                continue;
+            }
+            inc.edit(offset, rimossi, ins);
+            testo = nuovo;
+            TokenBuffer tok = inc.getTokens();
+            assertEquals(tokAttesi.size(), tok.size(), nuovo);
+            for (int i = 0; i < tok.size(); i++) {
+                assertEquals(tokAttesi.type(i), tok.type(i), nuovo);
+                assertEquals(tokAttesi.riga(i), tok.riga(i), nuovo);
+                assertEquals(tokAttesi.offset(i), tok.offset(i), nuovo);
+                assertEquals(tokAttesi.span(i), tok.span(i), nuovo);
+                assertEquals(tokAttesi.lexeme(i), tok.lexeme(i), nuovo);
+            }
+            NodeProgram aggiornato = inc.getProgram();
+            assertEquals(atteso, aggiornato.toString(), nuovo);
+            java.util.List<NodeDecSt> attesi = new Parser(tokAttesi).parse().getDecSts();
+            for (int s = 0; s < attesi.size(); s++)
+                assertEquals(posizioni(attesi.get(s)), posizioni(aggiornato.getDecSts().get(s)), nuovo);
+        }
+    }
+
+    /**
+     * Le posizioni degli statement che seguono la regione modificata devono spostarsi con il
+     * testo: gli errori semantici trovati dopo una modifica riportano la riga e la colonna attuali.
+     */
+    @Test
+    void testParserIncrementalePosizioni() throws Exception {
+        IncrementalParser inc = new IncrementalParser("int a;\nprint b;\n".getBytes());
+        inc.edit(0, 0, "int x;\nint y;\n");
+        visitor.TypeCheckingVisitor tc = new visitor.TypeCheckingVisitor(visitor.TypeDescriptor.OK, new symbolTable.SymbolTable());
+        for (NodeDecSt ds : inc.getProgram().getDecSts())
+            ds.accept(tc);
+        assertEquals("Errore semantico: variabile 'b' non dichiarata alla riga 4, colonna 7", tc.getResType().getmsg());
+
+        // stessa riga: cambia solo la colonna
+        inc = new IncrementalParser("int a; print b;".getBytes());
+        inc.edit(4, 1, "abc");
+        NodePrint print = (NodePrint) inc.getProgram().getDecSts().get(1);
+        assertEquals(token.Span.of(9, 1, 10), print.getSpan());
+        assertEquals(token.Span.of(15, 1, 16), print.getId().getSpan());
+    }
+
+    /** Le posizioni di tutti i nodi di uno statement, in ordine di visita. */
+    private static String posizioni(NodeAST n) {
+        return switch (n) {
+        case NodeDecl d -> d.getSpan() + " " + posizioni(d.getId()) + (d.getInit() == null ? "" : " " + posizioni(d.getInit()));
+        case NodeAssign a -> a.getSpan() + " " + posizioni(a.getId()) + " " + posizioni(a.getExpr());
+        case NodePrint p -> p.getSpan() + " " + posizioni(p.getId());
+        case NodeBinOp b -> b.getSpan() + " " + posizioni(b.getLeft()) + " " + posizioni(b.getRight());
+        case NodeDeref d -> d.getSpan() + " " + posizioni(d.getId());
+        default -> String.valueOf(n.getSpan());
+        };
+    }
 }
\ No newline at end of file
@@ -4,6 +4,7 @@ import scanner.*;
 import token.*;
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.io.File;
 import java.io.FileNotFoundException;
 
 import org.junit.jupiter.api.Test;
@@ -54,4 +55,267 @@ class TestScanner {
 		assertEquals(TokenType.FLOAT, s.nextToken().getType());
 	}
 
+	@Test
+	void testMappedScannerStessiToken() throws Exception {
+		for (File f : new File("src/test/data/testScanner").listFiles()) {
+			assertStessiToken(new Scanner(f.getPath()), new MappedScanner(f.getPath()), f.getName());
+		}
+		assertStessiToken(new Scanner("src/test/data/testAST.txt"), new MappedScanner("src/test/data/testAST.txt"), "testAST.txt");
+	}
+
+	@Test
+	void testDfaScannerStessiToken() throws Exception {
+		for (File f : new File("src/test/data/testScanner").listFiles()) {
+			assertStessiToken(new Scanner(f.getPath()), ScannerKind.DFA.open(f.getPath()), f.getName());
+		}
+		for (File f : new File("src/test/data").listFiles(File::isFile)) {
+			assertStessiToken(new Scanner(f.getPath()), ScannerKind.DFA.open(f.getPath()), f.getName());
+		}
+	}
+
+	@Test
+	void testSwarStessiToken() throws Exception {
+		for (File f : new File("src/test/data/testScanner").listFiles()) {
+			assertStessiToken(new Scanner(f.getPath()), ScannerKind.DFA_SWAR.open(f.getPath()), f.getName());
+		}
+		for (File f : new File("src/test/data").listFiles(File::isFile)) {
+			assertStessiToken(new Scanner(f.getPath()), ScannerKind.DFA_SWAR.open(f.getPath()), f.getName());
+		}
+		// sequenze lunghe che attraversano piu' parole di 8 byte, a ogni allineamento
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < 40; i++) {
+			sb.append(" \t\r\n".repeat(i % 7)).append("int identificatoreLungo").append(i).append(" = ")
+					.append("1234567890".repeat(i % 3 + 1)).append(i % 2 == 0 ? ".5;\n" : ";\n")
+					.append("\n".repeat(i % 9)).append("print identificatoreLungo").append(i).append(";");
+		}
+		java.nio.ByteBuffer sorgente = java.nio.ByteBuffer.wrap(sb.toString().getBytes());
+		TokenBuffer atteso = new DfaScanner(sorgente).lexAll();
+		DfaScanner swar = new DfaScanner(sorgente);
+		swar.setSwar(true);
+		TokenBuffer reale = swar.lexAll();
+		assertEquals(atteso.size(), reale.size());
+		for (int i = 0; i < atteso.size(); i++) {
+			assertEquals(atteso.type(i), reale.type(i));
+			assertEquals(atteso.riga(i), reale.riga(i));
+			assertEquals(atteso.offset(i), reale.offset(i));
+			assertEquals(atteso.length(i), reale.length(i));
+			assertEquals(atteso.span(i), reale.span(i));
+		}
+	}
+
+	@Test
+	void testPosizioni() throws Exception {
+		String src = "int a;\n  float bb = 3.5;\n\n\tprint bb;";
+		java.nio.file.Path file = java.nio.file.Files.createTempFile("posizioni", ".txt");
+		java.nio.file.Files.writeString(file, src);
+		Scanner sc = new Scanner(file.toString());
+		// la tabella completa delle righe si ottiene solo su richiesta
+		assertNull(sc.getLineMap());
+		sc.setLineMap(new LineMap());
+		DfaScanner dfa = new DfaScanner(java.nio.ByteBuffer.wrap(src.getBytes()));
+		DfaScanner swar = new DfaScanner(java.nio.ByteBuffer.wrap(src.getBytes()));
+		swar.setSwar(true);
+		MappedScanner mapped = new MappedScanner(file.toString());
+		StreamScanner stream = new StreamScanner(new java.io.ByteArrayInputStream(src.getBytes()));
+		// tipo, riga, colonna e offset attesi per ogni token
+		Object[][] attesi = { { TokenType.TYINT, 1, 1, 0 }, { TokenType.ID, 1, 5, 4 }, { TokenType.SEMI, 1, 6, 5 },
+				{ TokenType.TYFLOAT, 2, 3, 9 }, { TokenType.ID, 2, 9, 15 }, { TokenType.ASSIGN, 2, 12, 18 },
+				{ TokenType.FLOAT, 2, 14, 20 }, { TokenType.SEMI, 2, 17, 23 }, { TokenType.PRINT, 4, 2, 27 },
+				{ TokenType.ID, 4, 8, 33 }, { TokenType.SEMI, 4, 10, 35 }, { TokenType.EOF, 4, 11, 36 } };
+		TokenBuffer tb = new DfaScanner(java.nio.ByteBuffer.wrap(src.getBytes())).lexAll();
+		for (int i = 0; i < attesi.length; i++) {
+			Token a = sc.nextToken();
+			Token b = dfa.nextToken();
+			long s = tb.span(i);
+			assertEquals(attesi[i][0], b.getType());
+			assertEquals(attesi[i][1], Span.riga(s), "riga del token " + i);
+			assertEquals(attesi[i][2], Span.colonna(s), "colonna del token " + i);
+			assertEquals((long) (int) attesi[i][3], Span.offset(s), "offset del token " + i);
+			assertEquals(s, b.getSpan());
+			assertEquals(s, tb.righe().span((int) Span.offset(s)));
+			assertEquals(s, a.getSpan());
+			assertEquals(s, swar.nextToken().getSpan());
+			assertEquals(s, mapped.nextToken().getSpan());
+			assertEquals(s, stream.nextToken().getSpan());
+		}
+		// la tabella delle righe dello scanner ricava riga e colonna dall'offset
+		assertEquals(4, sc.getLineMap().size());
+		assertEquals(2, sc.getLineMap().riga(15));
+		assertEquals(9, sc.getLineMap().colonna(15));
+		assertNull(dfa.getLineMap());
+		// i campi saturano invece di sporcare i vicini
+		long grande = Span.of(1L << 40, 1 << 21, 5000);
+		assertEquals(0xFFFFFFFFL, Span.offset(grande));
+		assertEquals((1 << 20) - 1, Span.riga(grande));
+		assertEquals((1 << 12) - 1, Span.colonna(grande));
+		assertEquals("", Span.descrivi(Span.NESSUNO));
+		java.nio.file.Files.delete(file);
+	}
+
+	@Test
+	void testStreamScannerStessiToken() throws Exception {
+		java.util.List<File> files = new java.util.ArrayList<>();
+		files.addAll(java.util.List.of(new File("src/test/data").listFiles(File::isFile)));
+		files.addAll(java.util.List.of(new File("src/test/data/testScanner").listFiles()));
+		for (File f : files) {
+			// buffer minimo per forzare ricariche a meta' dei lessemi
+			try (java.nio.channels.FileChannel ch = java.nio.channels.FileChannel.open(f.toPath())) {
+				assertStessiToken(new Scanner(f.getPath()), new StreamScanner(ch, 16), f.getName());
+			}
+			try (java.io.InputStream in = new java.io.FileInputStream(f)) {
+				assertStessiToken(new Scanner(f.getPath()), new StreamScanner(in), f.getName());
+			}
+		}
+	}
+
+	/**
+	 * Un canale ricevuto dal chiamante resta aperto a fine input e viene chiuso da
+	 * {@link StreamScanner#close()}, anche con try-with-resources.
+	 */
+	@Test
+	void testStreamScannerChiusura() throws Exception {
+		java.nio.channels.FileChannel ch = java.nio.channels.FileChannel.open(java.nio.file.Path.of("src/test/data/testSoloDich.txt"));
+		try (StreamScanner s = new StreamScanner(ch)) {
+			while (s.nextToken().getType() != TokenType.EOF)
+				;
+			assertTrue(ch.isOpen());
+		}
+		assertFalse(ch.isOpen());
+	}
+
+	@Test
+	void testInterningIdentificatori() throws Exception {
+		for (ScannerKind kind : ScannerKind.values()) {
+			IScanner s = kind.open("src/test/data/CodeGenerator/3_generale.txt");
+			java.util.Map<String, Token> visti = new java.util.HashMap<>();
+			for (Token t = s.nextToken(); t.getType() != TokenType.EOF; t = s.nextToken()) {
+				if (t.getType() != TokenType.ID)
+					continue;
+				assertTrue(t.getSym() >= 0, kind + ": " + t.getValore());
+				Token prec = visti.putIfAbsent(t.getValore(), t);
+				if (prec != null) {
+					// stesso identificatore: stesso numero e stessa istanza di String
+					assertEquals(prec.getSym(), t.getSym(), kind.toString());
+					assertSame(prec.getValore(), t.getValore(), kind.toString());
+				}
+			}
+			assertEquals(3, visti.size());
+			assertEquals(3, visti.values().stream().mapToInt(Token::getSym).distinct().count());
+		}
+	}
+
+	/**
+	 * Tutti gli scanner internano anche le parole chiave, quindi sullo stesso sorgente
+	 * riempiono il pool con gli stessi nomi e gli stessi numeri.
+	 */
+	@Test
+	void testInterningParoleChiave() throws Exception {
+		String file = "src/test/data/CodeGenerator/3_generale.txt";
+		InternPool atteso = new InternPool();
+		IScanner s = new Scanner(new java.io.FileReader(file), atteso);
+		while (s.nextToken().getType() != TokenType.EOF)
+			;
+		java.nio.ByteBuffer sorgente = java.nio.ByteBuffer.wrap(java.nio.file.Files.readAllBytes(java.nio.file.Path.of(file)));
+		InternPool dfa = new InternPool();
+		s = new DfaScanner(sorgente.duplicate(), dfa);
+		while (s.nextToken().getType() != TokenType.EOF)
+			;
+		InternPool batch = new InternPool();
+		new DfaScanner(sorgente.duplicate(), batch).lexAll();
+		for (InternPool p : new InternPool[] { dfa, batch }) {
+			assertEquals(atteso.size(), p.size());
+			for (int i = 0; i < p.size(); i++)
+				assertEquals(atteso.name(i), p.name(i));
+		}
+	}
+
+	@Test
+	void testValoriNumerici() throws Exception {
+		String file = "src/test/data/testScanner/testValoriNumerici.txt";
+		long[] numeri = { 50, 698, 314, 988095, Long.MAX_VALUE, Literals.FUORI_SCALA, Literals.FUORI_SCALA, 70, Long.MAX_VALUE };
+		int[] scale = { 0, 0, 2, 4, 0, 0, 5, 1, 1 };
+		java.math.BigInteger[] grandi = { null, null, null, null, null,
+				new java.math.BigInteger("9223372036854775808"),
+				new java.math.BigInteger("1234567890123456789012345"), null, null };
+		for (ScannerKind kind : ScannerKind.values()) {
+			IScanner s = kind.open(file);
+			for (int i = 0; i < numeri.length; i++) {
+				Token t = s.nextToken();
+				assertEquals(numeri[i], t.getNumero(), kind + ": " + t.getValore());
+				assertEquals(scale[i], t.getScala(), kind + ": " + t.getValore());
+				if (grandi[i] != null)
+					assertEquals(grandi[i], t.getNumeroGrande(), kind + ": " + t.getValore());
+			}
+			assertEquals(TokenType.EOF, s.nextToken().getType());
+		}
+		TokenBuffer tb = new DfaScanner(file).lexAll();
+		for (int i = 0; i < numeri.length; i++) {
+			assertEquals(scale[i], tb.scala(i), tb.lexeme(i));
+			assertEquals(tb.token(i).getNumeroGrande(), tb.numeroGrande(i), tb.lexeme(i));
+			if (grandi[i] == null)
+				assertEquals(numeri[i], tb.numero(i), tb.lexeme(i));
+		}
+	}
+
+	@Test
+	void testParallelLexerStessiToken() throws Exception {
+		// pezzi piccolissimi per forzare molti tagli
+		ParallelLexer par = new ParallelLexer(java.util.concurrent.ForkJoinPool.commonPool(), 8);
+		java.util.List<File> files = new java.util.ArrayList<>();
+		files.addAll(java.util.List.of(new File("src/test/data").listFiles(File::isFile)));
+		files.addAll(java.util.List.of(new File("src/test/data/testScanner").listFiles()));
+		for (File f : files) {
+			TokenBuffer atteso;
+			try {
+				atteso = new DfaScanner(f.getPath()).lexAll();
+			} catch (LexicalException e) {
+				LexicalException e2 = assertThrows(LexicalException.class, () -> par.lex(f.getPath()), f.getName());
+				assertEquals(e.getMessage(), e2.getMessage(), f.getName());
+				continue;
+			}
+			TokenBuffer reale = par.lex(f.getPath());
+			assertEquals(atteso.size(), reale.size(), f.getName());
+			for (int i = 0; i < atteso.size(); i++) {
+				assertEquals(atteso.type(i), reale.type(i), f.getName());
+				assertEquals(atteso.riga(i), reale.riga(i), f.getName());
+				assertEquals(atteso.offset(i), reale.offset(i), f.getName());
+				assertEquals(atteso.lexeme(i), reale.lexeme(i), f.getName());
+				assertEquals(atteso.sym(i), reale.sym(i), f.getName());
+				assertEquals(atteso.span(i), reale.span(i), f.getName());
+			}
+		}
+	}
+
+	/**
+	 * Confronta token per token (tipo, riga e valore) due scanner sullo stesso sorgente,
+	 * compresi gli eventuali errori lessicali.
+	 */
+	static void assertStessiToken(IScanner atteso, IScanner reale, String nome) {
+		while (true) {
+			Token a, b;
+			try {
+				a = atteso.nextToken();
+			} catch (LexicalException e) {
+				LexicalException e2 = assertThrows(LexicalException.class, reale::nextToken, nome);
+				assertEquals(e.getMessage(), e2.getMessage(), nome);
+				return;
+			}
+			try {
+				b = reale.nextToken();
+			} catch (LexicalException e) {
+				fail(nome + ": errore inatteso " + e.getMessage());
+				return;
+			}
+			assertEquals(a.getType(), b.getType(), nome);
+			assertEquals(a.getRiga(), b.getRiga(), nome);
+			assertEquals(a.getValore(), b.getValore(), nome);
+			assertEquals(a.getNumeroGrande(), b.getNumeroGrande(), nome);
+			assertEquals(a.getScala(), b.getScala(), nome);
+			assertEquals(Span.descrivi(a.getSpan()), Span.descrivi(b.getSpan()), nome);
+			assertEquals(Span.offset(a.getSpan()), Span.offset(b.getSpan()), nome);
+			if (a.getType() == TokenType.EOF)
+				return;
+		}
+	}
+
 }
@@ -7,9 +7,11 @@ import scanner.Scanner;
 import parser.Parser;
 import ast.NodeProgram;
 import visitor.TipoTD;
+import visitor.PatternTypeChecking;
 import visitor.TypeCheckingVisitor;
 import visitor.TypeDescriptor;
 import symbolTable.SymbolTable;
+import token.Span;
 import java.io.FileNotFoundException;
 
 class TestTypeChecking {
@@ -59,4 +61,116 @@ class TestTypeChecking {
         
         System.out.println("I file corretti sono stati validati con successo.");
     }
+
+    @Test
+    void testErroriConPosizione() throws Exception {
+        // 'b' e' usata alla riga 5, colonna 7 (dopo "print ")
+        TypeDescriptor res = runTest("2_idNonDec.txt");
+        assertEquals("Errore semantico: variabile 'b' non dichiarata alla riga 5, colonna 7", res.getmsg());
+
+        // ogni nodo porta offset, riga e colonna del suo primo token
+        NodeProgram nP = new Parser(new Scanner("src/test/data/CheckingVisitor/2_idNonDec.txt")).parse();
+        long print = nP.getDecSts().get(2).getSpan();
+        assertEquals(5, Span.riga(print));
+        assertEquals(1, Span.colonna(print));
+        assertEquals(24, Span.offset(print));
+        assertEquals(Span.NESSUNO, new NodeProgram(new java.util.ArrayList<>()).getSpan());
+    }
+
+    /**
+     * La tabella a indirizzamento aperto deve comportarsi come una mappa: ricerca per numero
+     * e per nome, doppie dichiarazioni rifiutate, crescita oltre la capacita' iniziale e svuotamento.
+     */
+    @Test
+    void testTabellaDeiSimboli() {
+        SymbolTable st = new SymbolTable();
+        int n = 100000;
+        for (int i = 0; i < n; i++) {
+            // meta' dei nomi con numero di pool, meta' senza
+            int sym = i % 2 == 0 ? i : -1;
+            assertEquals(i, st.add(sym, "v" + i, i % 3 == 0 ? ast.LangType.FLOAT : ast.LangType.INT, (char) i));
+        }
+        assertEquals(n, st.count());
+        for (int i = 0; i < n; i++) {
+            assertEquals(i, st.slot(i % 2 == 0 ? i : -1, "v" + i));
+            assertEquals(i, st.slot("v" + i));
+            assertEquals(i % 3 == 0 ? ast.LangType.FLOAT : ast.LangType.INT, st.getTipo(i));
+            assertEquals((char) i, st.getRegistro(i));
+        }
+        assertEquals(-1, st.slot("w1"));
+        assertEquals(-1, st.add(4, "v4", ast.LangType.INT, 'a'));
+        assertEquals(-1, st.add(-1, "v4", ast.LangType.INT, 'a'));
+        assertEquals(-1, st.add(7, "v8", ast.LangType.INT, 'a'), "nome gia' dichiarato");
+        // un numero di un altro pool non basta a trovare o a rifiutare una variabile
+        assertEquals(6, st.slot(4, "v6"));
+        assertEquals(-1, st.slot(4, "w4"));
+        assertEquals(n, st.add(4, "w4", ast.LangType.INT, 'a'));
+        assertEquals(n, st.slot(4, "w4"));
+        assertEquals(4, st.slot(4, "v4"));
+
+        // l'API con Attributes restituisce l'oggetto inserito, o lo crea una volta sola
+        SymbolTable.Attributes attr = new SymbolTable.Attributes(ast.LangType.INT, 'z');
+        assertTrue(st.put(-1, "nuova", attr));
+        assertSame(attr, st.get("nuova"));
+        assertFalse(st.put("nuova", attr));
+        assertSame(st.get(2, "v2"), st.get("v2"));
+        assertEquals(ast.LangType.FLOAT, st.get("v3").getTipo());
+
+        st.clear();
+        assertEquals(0, st.count());
+        assertNull(st.get(0, "v0"));
+        assertEquals(0, st.add(0, "v0", ast.LangType.INT, 'a'));
+
+        // dopo lo svuotamento non restano celle ne' numeri delle variabili precedenti
+        st.clear();
+        for (int i = 0; i < n; i += 3)
+            assertEquals(i / 3, st.add(i % 2 == 0 ? i : -1, "w" + i, ast.LangType.INT, 'a'));
+        for (int i = 0; i < n; i++) {
+            assertEquals(i % 3 == 0 ? i / 3 : -1, st.slot(i % 2 == 0 ? i : -1, "w" + i));
+            assertEquals(-1, st.slot("v" + i));
+        }
+    }
+
+    /**
+     * A regime il controllo dei tipi di un programma corretto non alloca nulla per nodo:
+     * restano solo gli attributi delle dichiarazioni, indipendenti dalla lunghezza del programma.
+     */
+    @Test
+    void testNessunaAllocazionePerNodo() throws Exception {
+        int statement = 20000;
+        StringBuilder sb = new StringBuilder("int a = 1;\nfloat b = 2.5;\n");
+        for (int i = 0; i < statement; i++)
+            sb.append("b = a + b * 3 - a / 2.0 + b;\nprint b;\n");
+        NodeProgram nP = new Parser(new scanner.DfaScanner(
+                java.nio.ByteBuffer.wrap(sb.toString().getBytes())).lexAll()).parse();
+        // per statement: assegnamento, 5 operazioni, 6 foglie con i loro id, stampa e id
+        long nodi = statement * 20L;
+
+        com.sun.management.ThreadMXBean mx =
+                (com.sun.management.ThreadMXBean) java.lang.management.ManagementFactory.getThreadMXBean();
+        TypeCheckingVisitor tc = new TypeCheckingVisitor(TypeDescriptor.OK);
+        for (int i = 0; i < 5; i++) {
+            tc.reset(TypeDescriptor.OK);
+            nP.accept(tc);
+        }
+        long prima = mx.getCurrentThreadAllocatedBytes();
+        tc.reset(TypeDescriptor.OK);
+        nP.accept(tc);
+        long allocati = mx.getCurrentThreadAllocatedBytes() - prima;
+
+        assertFalse(tc.getResType().isError());
+        assertTrue(allocati < 1024, allocati + " byte allocati per " + nodi + " nodi");
+
+        // lo stesso per il controllo dei tipi con lo switch sui nodi
+        SymbolTable simboli = new SymbolTable();
+        for (int i = 0; i < 5; i++)
+            new PatternTypeChecking(simboli).check(nP);
+        PatternTypeChecking ptc = new PatternTypeChecking(simboli);
+        prima = mx.getCurrentThreadAllocatedBytes();
+        TypeDescriptor td = ptc.check(nP);
+        allocati = mx.getCurrentThreadAllocatedBytes() - prima;
+
+        assertFalse(td.isError(), ptc.getErrori().toString());
+        assertTrue(allocati < 1024, allocati + " byte allocati per " + nodi + " nodi");
+    }
 }
@@ -0,0 +1,119 @@
+package token;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+/**
+ * Testo di un sorgente che viene modificato ripetutamente nello stesso punto, come in un editor.
+ *
+ * <p>I byte sono in un solo array con uno spazio libero (gap) nella posizione dell'ultima
+ * modifica: il testo che segue il gap e' tenuto in fondo all'array. Una modifica sposta il gap
+ * nel punto modificato e copia solo i byte che attraversa, quindi il costo dipende dalla distanza
+ * dalla modifica precedente e dalla lunghezza del testo inserito, non dalla lunghezza del sorgente.
+ * Gli offset con cui si legge il testo sono quelli del sorgente attuale.</p>
+ */
+public class EditableSource {
+	private byte[] testo;
+	/** Lunghezza del sorgente. */
+	private int lunghezza;
+	/** Offset del primo byte che segue il gap; i byte da qui in poi sono in fondo all'array. */
+	private int gap;
+
+	/**
+	 * Costruisce il testo sull'array indicato, che non viene copiato.
+	 *
+	 * @param source il sorgente
+	 */
+	public EditableSource(byte[] source) {
+		this.testo = source;
+		this.lunghezza = source.length;
+		this.gap = lunghezza;
+	}
+
+	/**
+	 * Costruisce il testo copiando i byte compresi tra 0 e limit del buffer.
+	 *
+	 * @param source il sorgente
+	 */
+	public EditableSource(ByteBuffer source) {
+		this(copia(source));
+	}
+
+	private static byte[] copia(ByteBuffer source) {
+		byte[] b = new byte[source.limit()];
+		source.get(0, b);
+		return b;
+	}
+
+	/** @return la lunghezza del sorgente in byte */
+	public int length() {
+		return lunghezza;
+	}
+
+	/**
+	 * @param i offset nel sorgente
+	 * @return il byte all'offset indicato
+	 */
+	public byte get(int i) {
+		return testo[i < gap ? i : i + testo.length - lunghezza];
+	}
+
+	/**
+	 * Copia i byte [da, da + len) del sorgente.
+	 *
+	 * @param da primo byte da copiare
+	 * @param dst array di destinazione
+	 * @param dstOff posizione in dst del primo byte
+	 * @param len numero di byte
+	 */
+	public void get(int da, byte[] dst, int dstOff, int len) {
+		int prima = Math.max(0, Math.min(len, gap - da));
+		System.arraycopy(testo, da, dst, dstOff, prima);
+		System.arraycopy(testo, da + prima + testo.length - lunghezza, dst, dstOff + prima, len - prima);
+	}
+
+	/**
+	 * Sostituisce i byte [offset, offset + rimossi) con {@code inserito}.
+	 *
+	 * @param offset primo byte sostituito
+	 * @param rimossi numero di byte rimossi
+	 * @param inserito i byte inseriti al loro posto
+	 */
+	public void replace(int offset, int rimossi, byte[] inserito) {
+		spostaGap(offset);
+		lunghezza -= rimossi;
+		if (testo.length - lunghezza < inserito.length) {
+			int coda = lunghezza - gap;
+			byte[] nuovo = new byte[Math.max(testo.length * 2, lunghezza + inserito.length + 64)];
+			System.arraycopy(testo, 0, nuovo, 0, gap);
+			System.arraycopy(testo, testo.length - coda, nuovo, nuovo.length - coda, coda);
+			testo = nuovo;
+		}
+		System.arraycopy(inserito, 0, testo, gap, inserito.length);
+		gap += inserito.length;
+		lunghezza += inserito.length;
+	}
+
+	private void spostaGap(int k) {
+		int g = testo.length - lunghezza;
+		if (k < gap) {
+			System.arraycopy(testo, k, testo, k + g, gap - k);
+		} else if (k > gap) {
+			System.arraycopy(testo, gap + g, testo, gap, k - gap);
+		}
+		gap = k;
+	}
+
+	/**
+	 * Copia il sorgente in un nuovo array; costa quanto la lunghezza del sorgente.
+	 *
+	 * @return i byte del sorgente
+	 */
+	public byte[] toArray() {
+		if (gap == lunghezza) {
+			return Arrays.copyOf(testo, lunghezza);
+		}
+		byte[] b = new byte[lunghezza];
+		get(0, b, 0, lunghezza);
+		return b;
+	}
+}
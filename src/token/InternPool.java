@@ -0,0 +1,162 @@
+package token;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+/**
+ * Tabella di interning degli identificatori.
+ *
+ * <p>Assegna a ogni identificatore distinto un numero intero denso (0, 1, 2, ...)
+ * al momento dell'analisi lessicale, e ne conserva un'unica istanza {@link String}.
+ * Gli scanner cercano il lessema direttamente nel proprio buffer (byte o char)
+ * senza creare stringhe: la stringa viene allocata solo la prima volta che
+ * l'identificatore compare.</p>
+ *
+ * <p>La tabella e' a indirizzamento aperto con scansione lineare; l'hash coincide
+ * con {@link String#hashCode()}.</p>
+ */
+public class InternPool {
+	private String[] nomi = new String[64];
+	private int[] hashes = new int[64];
+	private int size;
+	/** Tabella hash: contiene id + 1, 0 indica una cella vuota. */
+	private int[] celle = new int[128];
+
+	/**
+	 * @param id il numero dell'identificatore
+	 * @return il nome associato al numero
+	 */
+	public String name(int id) {
+		return nomi[id];
+	}
+
+	/**
+	 * @return il numero di identificatori distinti registrati
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Dimentica tutti gli identificatori, conservando la capacita' delle tabelle
+	 * cosi' che il pool possa essere riutilizzato senza nuove allocazioni.
+	 */
+	public void clear() {
+		Arrays.fill(nomi, 0, size, null);
+		Arrays.fill(celle, 0);
+		size = 0;
+	}
+
+	/**
+	 * Restituisce il numero associato alla stringa, registrandola se nuova.
+	 *
+	 * @param s l'identificatore
+	 * @return il numero dell'identificatore
+	 */
+	public int intern(String s) {
+		int h = s.hashCode();
+		int mask = celle.length - 1;
+		for (int i = mix(h) & mask;; i = (i + 1) & mask) {
+			int c = celle[i];
+			if (c == 0)
+				return aggiungi(s, h, i);
+			if (hashes[c - 1] == h && nomi[c - 1].equals(s))
+				return c - 1;
+		}
+	}
+
+	/**
+	 * Restituisce il numero associato ai primi {@code len} caratteri di {@code buf},
+	 * registrandoli se nuovi. Non alloca nulla se l'identificatore e' gia' presente.
+	 *
+	 * @param buf buffer di caratteri
+	 * @param len lunghezza del lessema
+	 * @return il numero dell'identificatore
+	 */
+	public int intern(char[] buf, int len) {
+		int h = 0;
+		for (int k = 0; k < len; k++)
+			h = 31 * h + buf[k];
+		int mask = celle.length - 1;
+		for (int i = mix(h) & mask;; i = (i + 1) & mask) {
+			int c = celle[i];
+			if (c == 0)
+				return aggiungi(new String(buf, 0, len), h, i);
+			if (hashes[c - 1] == h && uguale(nomi[c - 1], buf, len))
+				return c - 1;
+		}
+	}
+
+	/**
+	 * Restituisce il numero associato ai byte ASCII [off, off + len) del sorgente,
+	 * registrandoli se nuovi. Non alloca nulla se l'identificatore e' gia' presente.
+	 *
+	 * @param src il sorgente
+	 * @param off posizione del primo byte
+	 * @param len lunghezza del lessema
+	 * @return il numero dell'identificatore
+	 */
+	public int intern(ByteBuffer src, int off, int len) {
+		int h = 0;
+		for (int k = 0; k < len; k++)
+			h = 31 * h + (src.get(off + k) & 0xFF);
+		int mask = celle.length - 1;
+		for (int i = mix(h) & mask;; i = (i + 1) & mask) {
+			int c = celle[i];
+			if (c == 0) {
+				char[] buf = new char[len];
+				for (int k = 0; k < len; k++)
+					buf[k] = (char) (src.get(off + k) & 0xFF);
+				return aggiungi(new String(buf), h, i);
+			}
+			if (hashes[c - 1] == h && uguale(nomi[c - 1], src, off, len))
+				return c - 1;
+		}
+	}
+
+	private int aggiungi(String s, int h, int cella) {
+		int id = size++;
+		if (id == nomi.length) {
+			nomi = Arrays.copyOf(nomi, id * 2);
+			hashes = Arrays.copyOf(hashes, id * 2);
+		}
+		nomi[id] = s;
+		hashes[id] = h;
+		celle[cella] = id + 1;
+		if (size * 2 > celle.length)
+			rehash();
+		return id;
+	}
+
+	private void rehash() {
+		celle = new int[celle.length * 2];
+		int mask = celle.length - 1;
+		for (int id = 0; id < size; id++) {
+			int i = mix(hashes[id]) & mask;
+			while (celle[i] != 0)
+				i = (i + 1) & mask;
+			celle[i] = id + 1;
+		}
+	}
+
+	private static int mix(int h) {
+		return h ^ (h >>> 16);
+	}
+
+	private static boolean uguale(String s, char[] buf, int len) {
+		if (s.length() != len)
+			return false;
+		for (int k = 0; k < len; k++)
+			if (s.charAt(k) != buf[k])
+				return false;
+		return true;
+	}
+
+	private static boolean uguale(String s, ByteBuffer src, int off, int len) {
+		if (s.length() != len)
+			return false;
+		for (int k = 0; k < len; k++)
+			if (s.charAt(k) != (src.get(off + k) & 0xFF))
+				return false;
+		return true;
+	}
+}
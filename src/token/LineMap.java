@@ -0,0 +1,183 @@
+package token;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+/**
+ * Tabella che associa gli offset del sorgente alle righe.
+ *
+ * <p>Contiene solo l'offset di inizio di ogni riga, in un array di {@code int}: lo scanner
+ * la riempie mentre legge i ritorni a capo, e da un offset si ricavano riga e colonna
+ * con una ricerca binaria. Cosi' i token e i nodi dell'AST portano solo un {@link Span}
+ * impacchettato e la posizione esatta si ricostruisce solo quando serve.</p>
+ *
+ * <p>Dopo una rianalisi incrementale ({@link #replace}) la tabella viene corretta sul posto:
+ * come in {@link EditableSource} c'e' uno spazio libero nel punto dell'ultima modifica, le righe
+ * che lo seguono sono in fondo all'array e il loro spostamento in byte viene sommato solo
+ * quando si leggono.</p>
+ */
+public class LineMap {
+	/** Inizi delle righe, la k-esima e' la riga primaRiga + k (vedi {@link #inizio(int)}). */
+	private int[] inizi = new int[64];
+	private int righe = 1;
+	private final int primaRiga;
+	/** Indice della prima riga che segue lo spazio libero; vale {@code righe} se non ce ne sono. */
+	private int gap = 1;
+	/** Spostamento in byte, non ancora applicato, delle righe che seguono lo spazio libero. */
+	private int spostamento;
+
+	/**
+	 * Costruisce la tabella di un sorgente che inizia alla riga 1, offset 0.
+	 */
+	public LineMap() {
+		this(1, 0);
+	}
+
+	/**
+	 * Costruisce la tabella di una porzione di sorgente che inizia dalla riga indicata.
+	 *
+	 * @param primaRiga numero della prima riga
+	 * @param inizio offset del primo byte della prima riga
+	 */
+	public LineMap(int primaRiga, int inizio) {
+		this.primaRiga = primaRiga;
+		this.inizi[0] = inizio;
+	}
+
+	/**
+	 * Costruisce la tabella di un intero sorgente in memoria.
+	 *
+	 * @param source il sorgente
+	 * @return la tabella delle sue righe
+	 */
+	public static LineMap of(ByteBuffer source) {
+		LineMap righe = new LineMap();
+		for (int i = 0, n = source.limit(); i < n; i++) {
+			if (source.get(i) == '\n')
+				righe.aCapo(i + 1);
+		}
+		return righe;
+	}
+
+	/**
+	 * Registra l'inizio di una nuova riga.
+	 *
+	 * @param offset offset del byte successivo al ritorno a capo
+	 */
+	public void aCapo(int offset) {
+		if (gap != righe)
+			spostaGap(righe);
+		if (righe == inizi.length)
+			inizi = Arrays.copyOf(inizi, righe * 2);
+		inizi[righe++] = offset;
+		gap = righe;
+	}
+
+	/**
+	 * @param offset un offset del sorgente
+	 * @return la riga che contiene l'offset
+	 */
+	public int riga(int offset) {
+		return primaRiga + indice(offset);
+	}
+
+	/**
+	 * @param offset un offset del sorgente
+	 * @return la colonna dell'offset nella sua riga, a partire da 1
+	 */
+	public int colonna(int offset) {
+		return offset - inizio(indice(offset)) + 1;
+	}
+
+	/**
+	 * @param offset un offset del sorgente
+	 * @return l'offset del primo byte della riga che contiene l'offset
+	 */
+	public int inizioRiga(int offset) {
+		return inizio(indice(offset));
+	}
+
+	/**
+	 * Calcola la posizione impacchettata di un offset. Per un offset sull'ultima riga
+	 * registrata (il caso dello scanner, che procede in avanti) non serve la ricerca.
+	 *
+	 * @param offset un offset del sorgente
+	 * @return lo {@link Span} corrispondente
+	 */
+	public long span(int offset) {
+		int k = indice(offset);
+		return Span.of(offset, primaRiga + k, offset - inizio(k) + 1);
+	}
+
+	/**
+	 * Aggiorna la tabella dopo la sostituzione dei byte [inizio, fine) con una regione rianalizzata:
+	 * le righe che iniziano dentro la regione vengono prese da {@code regione}, quelle che iniziano
+	 * dopo vengono spostate di {@code delta} byte. Vengono copiate solo le righe della regione e
+	 * quelle comprese tra questa modifica e la precedente.
+	 *
+	 * @param inizio offset del primo byte sostituito
+	 * @param fine offset del primo byte conservato dopo la regione
+	 * @param regione la tabella della regione, che inizia dalla riga che contiene {@code inizio}
+	 * @param base offset nel sorgente dell'offset 0 di {@code regione}
+	 * @param delta differenza di lunghezza tra il nuovo e il vecchio sorgente
+	 */
+	public void replace(int inizio, int fine, LineMap regione, int base, int delta) {
+		int da = indice(inizio) + 1;
+		int a = indice(fine) + 1;
+		int nuove = regione.righe - 1;
+		spostaGap(da);
+		righe -= a - da;
+		if (inizi.length - righe < nuove) {
+			int coda = righe - gap;
+			int[] nuovo = new int[Math.max(inizi.length * 2, righe + nuove + 64)];
+			System.arraycopy(inizi, 0, nuovo, 0, gap);
+			System.arraycopy(inizi, inizi.length - coda, nuovo, nuovo.length - coda, coda);
+			inizi = nuovo;
+		}
+		for (int k = 1; k <= nuove; k++)
+			inizi[gap++] = regione.inizio(k) + base;
+		righe += nuove;
+		spostamento = gap == righe ? 0 : spostamento + delta;
+	}
+
+	/** @return l'offset di inizio della riga di indice k */
+	private int inizio(int k) {
+		return k < gap ? inizi[k] : inizi[k + inizi.length - righe] + spostamento;
+	}
+
+	/**
+	 * Sposta lo spazio libero prima della riga di indice k, applicando o togliendo lo spostamento
+	 * alle righe che lo attraversano.
+	 */
+	private void spostaGap(int k) {
+		int g = inizi.length - righe;
+		if (k < gap) {
+			System.arraycopy(inizi, k, inizi, k + g, gap - k);
+			for (int j = k + g; j < gap + g; j++)
+				inizi[j] -= spostamento;
+		} else if (k > gap) {
+			System.arraycopy(inizi, gap + g, inizi, gap, k - gap);
+			for (int j = gap; j < k; j++)
+				inizi[j] += spostamento;
+		}
+		gap = k;
+		if (gap == righe)
+			spostamento = 0;
+	}
+
+	/** @return il numero di righe registrate */
+	public int size() {
+		return righe;
+	}
+
+	private int indice(int offset) {
+		if (offset >= inizio(righe - 1))
+			return righe - 1;
+		if (gap == righe || offset < inizio(gap)) {
+			int k = Arrays.binarySearch(inizi, 0, gap, offset);
+			return k >= 0 ? k : -k - 2;
+		}
+		int g = inizi.length - righe;
+		int k = Arrays.binarySearch(inizi, gap + g, righe + g, offset - spostamento);
+		return (k >= 0 ? k : -k - 2) - g;
+	}
+}
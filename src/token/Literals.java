@@ -0,0 +1,97 @@
+package token;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+/**
+ * Conversione dei letterali numerici del linguaggio ac nel loro valore,
+ * eseguita una sola volta durante l'analisi lessicale.
+ *
+ * <p>Un INT e' rappresentato da un {@code long}; un FLOAT in virgola fissa, come
+ * intero non scalato piu' il numero di cifre decimali (scala, al massimo 5):
+ * {@code 3.14} diventa (314, 2). Poiche' i letterali di ac non hanno segno, il valore
+ * {@link #FUORI_SCALA} indica che le cifre non stanno in un {@code long}: in quel
+ * caso il valore esatto si ricava con {@link #grande(CharSequence)}.</p>
+ */
+public final class Literals {
+	/** Valore non scalato di un letterale le cui cifre non stanno in un long. */
+	public static final long FUORI_SCALA = -1;
+
+	private Literals() {
+	}
+
+	/**
+	 * Aggiunge una cifra decimale in coda al valore accumulato finora.
+	 *
+	 * @param valore il valore accumulato, o {@link #FUORI_SCALA}
+	 * @param cifra la cifra da aggiungere (0-9)
+	 * @return {@code valore * 10 + cifra}, o {@link #FUORI_SCALA} in caso di overflow
+	 */
+	public static long accumula(long valore, int cifra) {
+		if (valore < 0 || valore > (Long.MAX_VALUE - cifra) / 10) {
+			return FUORI_SCALA;
+		}
+		return valore * 10 + cifra;
+	}
+
+	/**
+	 * Calcola il valore non scalato di un lessema numerico, ignorando il punto decimale.
+	 *
+	 * @param lessema il lessema di un INT o di un FLOAT
+	 * @return il valore non scalato, o {@link #FUORI_SCALA}
+	 */
+	public static long nonScalato(CharSequence lessema) {
+		long v = 0;
+		for (int i = 0; i < lessema.length(); i++) {
+			char c = lessema.charAt(i);
+			if (c != '.')
+				v = accumula(v, c - '0');
+		}
+		return v;
+	}
+
+	/**
+	 * Calcola il valore non scalato di un lessema numerico contenuto in un buffer.
+	 *
+	 * @param source il sorgente
+	 * @param off posizione del primo byte del lessema
+	 * @param len lunghezza del lessema
+	 * @return il valore non scalato, o {@link #FUORI_SCALA}
+	 */
+	public static long nonScalato(ByteBuffer source, int off, int len) {
+		long v = 0;
+		for (int i = off; i < off + len; i++) {
+			byte c = source.get(i);
+			if (c != '.')
+				v = accumula(v, c - '0');
+		}
+		return v;
+	}
+
+	/**
+	 * @param lessema il lessema di un INT o di un FLOAT
+	 * @return il numero di cifre dopo il punto decimale (0 per gli INT)
+	 */
+	public static int scala(CharSequence lessema) {
+		for (int i = 0; i < lessema.length(); i++) {
+			if (lessema.charAt(i) == '.')
+				return lessema.length() - i - 1;
+		}
+		return 0;
+	}
+
+	/**
+	 * Valore esatto non scalato di un lessema numerico, usato quando le cifre non stanno in un long.
+	 *
+	 * @param lessema il lessema di un INT o di un FLOAT
+	 * @return il valore non scalato
+	 */
+	public static BigInteger grande(CharSequence lessema) {
+		StringBuilder sb = new StringBuilder(lessema.length());
+		for (int i = 0; i < lessema.length(); i++) {
+			char c = lessema.charAt(i);
+			if (c != '.')
+				sb.append(c);
+		}
+		return new BigInteger(sb.toString());
+	}
+}
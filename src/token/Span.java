@@ -0,0 +1,80 @@
+package token;
+/**
+ * Posizione di un token o di un nodo dell'AST nel sorgente, impacchettata in un solo {@code long}.
+ *
+ * <p>I 32 bit alti contengono l'offset in byte (senza segno), i 20 bit successivi la riga e
+ * i 12 bit bassi la colonna, entrambe a partire da 1. Ogni campo satura al suo valore
+ * massimo invece di traboccare nei vicini: per righe oltre la milionesima la riga esatta
+ * si ricava dall'offset con la {@link LineMap} prodotta dallo scanner. Il valore
+ * {@link #NESSUNO} (riga 0) indica che la posizione non e' nota, ad esempio per i nodi
+ * costruiti a mano.</p>
+ */
+public final class Span {
+	/** Posizione sconosciuta. */
+	public static final long NESSUNO = 0L;
+
+	private static final long MAX_OFFSET = 0xFFFFFFFFL;
+	private static final int MAX_RIGA = (1 << 20) - 1;
+	private static final int MAX_COLONNA = (1 << 12) - 1;
+
+	private Span() {
+	}
+
+	/**
+	 * Impacchetta una posizione, saturando i campi troppo grandi.
+	 *
+	 * @param offset offset in byte dall'inizio del sorgente
+	 * @param riga riga, a partire da 1
+	 * @param colonna colonna, a partire da 1
+	 * @return la posizione impacchettata
+	 */
+	public static long of(long offset, int riga, int colonna) {
+		return Math.min(offset, MAX_OFFSET) << 32 | (long) Math.min(riga, MAX_RIGA) << 12 | Math.min(colonna, MAX_COLONNA);
+	}
+
+	/**
+	 * Sposta una posizione nota di {@code dOff} byte e {@code dRighe} righe, lasciando invariata
+	 * la colonna. Offset e riga sono sommati modulo la dimensione del loro campo invece di
+	 * saturare: uno spostamento seguito dal suo opposto restituisce la posizione di partenza
+	 * anche se il valore intermedio e' negativo. La colonna di una posizione nota vale almeno 1,
+	 * quindi il risultato non coincide mai con {@link #NESSUNO}.
+	 *
+	 * @param span la posizione, diversa da {@link #NESSUNO}
+	 * @param dOff byte da sommare all'offset
+	 * @param dRighe righe da sommare alla riga
+	 * @return la posizione spostata
+	 */
+	public static long sposta(long span, int dOff, int dRighe) {
+		long offset = (offset(span) + dOff) & MAX_OFFSET;
+		long riga = (riga(span) + dRighe) & MAX_RIGA;
+		return offset << 32 | riga << 12 | colonna(span);
+	}
+
+	/** @return l'offset in byte della posizione */
+	public static long offset(long span) {
+		return span >>> 32;
+	}
+
+	/** @return la riga della posizione, 0 se sconosciuta */
+	public static int riga(long span) {
+		return (int) (span >>> 12) & MAX_RIGA;
+	}
+
+	/** @return la colonna della posizione */
+	public static int colonna(long span) {
+		return (int) span & MAX_COLONNA;
+	}
+
+	/**
+	 * Descrive la posizione da accodare a un messaggio di errore.
+	 *
+	 * @param span la posizione
+	 * @return {@code " alla riga R, colonna C"}, o la stringa vuota se la posizione e' sconosciuta
+	 */
+	public static String descrivi(long span) {
+		if (riga(span) == 0) {
+			return "";
+		}
+		return " alla riga " + riga(span) + ", colonna " + colonna(span);
+	}
+}
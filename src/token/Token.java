@@ -1,4 +1,6 @@
 package token;
+
+import java.math.BigInteger;
 /**
  * Rappresenta un token prodotto dall'analisi lessicale del linguaggio ac.
  * 
@@ -12,6 +14,15 @@ public class Token {
 	private int riga;
 	private TokenType type;
 	private String Valore;
+	private int sym = -1;
+	/** Valore non scalato dei letterali INT e FLOAT (vedi {@link Literals}). */
+	private long numero;
+	/** Cifre decimali dei letterali FLOAT, 0 per gli INT. */
+	private int scala;
+	/** Valore esatto non scalato, solo se le cifre non stanno in un long. */
+	private BigInteger grande;
+	/** Posizione del primo carattere del lessema (vedi {@link Span}). */
+	private long span = Span.NESSUNO;
 
 	/**
      * Costruisce un token con valore associato.
@@ -26,6 +37,35 @@ public class Token {
 		this.Valore = Valore;
 	}
 	/**
+     * Costruisce un token identificatore con il numero assegnato dall'{@link InternPool}.
+     *
+     * @param tipo tipo del token
+     * @param riga numero di riga
+     * @param Valore il nome dell'identificatore (istanza condivisa del pool)
+     * @param sym numero dell'identificatore nel pool
+     */
+	public Token(TokenType tipo, int riga, String Valore, int sym) {
+		this(tipo, riga, Valore);
+		this.sym = sym;
+	}
+	/**
+     * Costruisce un token per un letterale numerico, con il valore gia' calcolato dallo scanner.
+     *
+     * @param tipo INT o FLOAT
+     * @param riga numero di riga
+     * @param Valore il lessema del letterale
+     * @param numero valore non scalato, o {@link Literals#FUORI_SCALA} se non sta in un long
+     * @param scala numero di cifre decimali (0 per gli INT)
+     */
+	public Token(TokenType tipo, int riga, String Valore, long numero, int scala) {
+		this(tipo, riga, Valore);
+		this.numero = numero;
+		this.scala = scala;
+		if (numero == Literals.FUORI_SCALA) {
+			this.grande = Literals.grande(Valore);
+		}
+	}
+	/**
      * Costruisce un token senza valore associato.
      *
      * @param tipo tipo del token
@@ -46,6 +86,41 @@ public class Token {
 		return Valore;
 	}
 
+	/**
+     * Restituisce il numero dell'identificatore nell'{@link InternPool}.
+     *
+     * @return numero dell'identificatore, o -1 se il token non e' un ID internato
+     */
+	public int getSym() {
+		return sym;
+	}
+
+	/**
+     * Restituisce il valore non scalato di un letterale INT o FLOAT
+     * (per un FLOAT {@code 3.14} vale 314).
+     *
+     * @return il valore, o {@link Literals#FUORI_SCALA} se non sta in un long
+     */
+	public long getNumero() {
+		return numero;
+	}
+
+	/**
+     * @return il numero di cifre decimali di un letterale FLOAT, 0 altrimenti
+     */
+	public int getScala() {
+		return scala;
+	}
+
+	/**
+     * Restituisce il valore esatto non scalato di un letterale, anche oltre i limiti del long.
+     *
+     * @return il valore non scalato
+     */
+	public BigInteger getNumeroGrande() {
+		return grande != null ? grande : BigInteger.valueOf(numero);
+	}
+
 	/**
      * Restituisce il numero di riga.
      *
@@ -55,6 +130,24 @@ public class Token {
 		return riga;
 	}
 
+	/**
+     * Restituisce la posizione del token nel sorgente: offset, riga e colonna impacchettati.
+     *
+     * @return lo {@link Span} del token, {@link Span#NESSUNO} se sconosciuto
+     */
+	public long getSpan() {
+		return span;
+	}
+
+	/**
+     * Imposta la posizione del token; viene chiamato dallo scanner che lo ha riconosciuto.
+     *
+     * @param span lo {@link Span} del primo carattere del lessema
+     */
+	public void setSpan(long span) {
+		this.span = span;
+	}
+
 	/**
      * Restituisce il tipo del token.
      *
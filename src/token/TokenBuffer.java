@@ -0,0 +1,405 @@
+package token;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+/**
+ * Sequenza compatta di token prodotta dall'analisi lessicale in modalita' batch.
+ *
+ * <p>Invece di un oggetto {@link Token} per ogni lessema, i token sono memorizzati
+ * in array paralleli (struct-of-arrays): tipo ({@code byte}), riga, offset e lunghezza
+ * ({@code int}), un valore {@code long} che per gli identificatori e' il numero
+ * nell'{@link InternPool} e per i letterali numerici il valore calcolato dallo scanner,
+ * e la scala ({@code byte}) dei letterali FLOAT.
+ * I lessemi non vengono copiati ma restano sezioni del sorgente,
+ * da cui sono ricavati solo su richiesta. Il token di indice {@code i} si legge
+ * con i metodi {@link #type(int)}, {@link #riga(int)}, {@link #lexeme(int)}.</p>
+ *
+ * <p>Un buffer usato dalla rianalisi incrementale viene modificato sul posto con
+ * {@link #replace}: come in {@link EditableSource} gli array hanno uno spazio libero nel punto
+ * dell'ultima modifica, i token che lo seguono sono in fondo agli array e il loro spostamento
+ * in byte e in righe viene sommato solo quando si leggono.</p>
+ */
+public class TokenBuffer {
+	private static final TokenType[] TIPI = TokenType.values();
+
+	/** Sorgente dei token prodotti dallo scanner, {@code null} dopo la prima modifica. */
+	private ByteBuffer source;
+	/** Sorgente modificato dalla rianalisi incrementale, {@code null} prima della prima modifica. */
+	private EditableSource testo;
+	private final InternPool pool;
+	private byte[] type;
+	private int[] line;
+	private int[] offset;
+	private int[] length;
+	/**
+	 * Numero nel pool per i token ID; valore non scalato per gli INT e i FLOAT, come in
+	 * {@link Token#getNumero()}; -1 per gli altri token e per i letterali fuori scala.
+	 */
+	private long[] valore;
+	/** Cifre decimali dei FLOAT, 0 per gli altri token. */
+	private byte[] scala;
+	private int size;
+	/** Indice del primo token che segue lo spazio libero; vale {@code size} se non ce ne sono. */
+	private int gap;
+	/** Spostamento in byte e in righe, non ancora applicato, dei token che seguono lo spazio libero. */
+	private int deltaOffset;
+	private int deltaRighe;
+	/** Tabella delle righe del sorgente, costruita alla prima richiesta di una colonna. */
+	private volatile LineMap righe;
+
+	/**
+	 * Costruisce un buffer vuoto i cui lessemi si riferiscono al sorgente indicato.
+	 *
+	 * @param source il sorgente da cui sono stati estratti i token
+	 * @param pool il pool in cui sono internati gli identificatori
+	 */
+	public TokenBuffer(ByteBuffer source, InternPool pool) {
+		this(source, pool, 1024);
+	}
+	/**
+	 * Costruisce un buffer vuoto con una capacita' iniziale.
+	 *
+	 * @param source il sorgente da cui sono stati estratti i token
+	 * @param pool il pool in cui sono internati gli identificatori
+	 * @param capacity numero di token previsti
+	 */
+	public TokenBuffer(ByteBuffer source, InternPool pool, int capacity) {
+		this.source = source;
+		this.pool = pool;
+		capacity = Math.max(capacity, 16);
+		type = new byte[capacity];
+		line = new int[capacity];
+		offset = new int[capacity];
+		length = new int[capacity];
+		valore = new long[capacity];
+		scala = new byte[capacity];
+	}
+
+	/**
+	 * Accoda un token.
+	 *
+	 * @param tipo tipo del token
+	 * @param riga numero di riga
+	 * @param off posizione del primo byte del lessema nel sorgente
+	 * @param len lunghezza del lessema in byte
+	 * @param v numero dell'identificatore nel pool per gli ID, valore per gli INT, -1 per gli altri token
+	 */
+	public void add(TokenType tipo, int riga, int off, int len, long v) {
+		add(tipo, riga, off, len, v, 0);
+	}
+
+	/**
+	 * Accoda un token con la sua scala.
+	 *
+	 * @param tipo tipo del token
+	 * @param riga numero di riga
+	 * @param off posizione del primo byte del lessema nel sorgente
+	 * @param len lunghezza del lessema in byte
+	 * @param v come in {@link #add(TokenType, int, int, int, long)}; per i FLOAT il valore non scalato
+	 * @param s cifre decimali di un FLOAT, 0 per gli altri token
+	 */
+	public void add(TokenType tipo, int riga, int off, int len, long v, int s) {
+		if (gap != size)
+			spostaGap(size);
+		if (size == type.length) {
+			int cap = size * 2;
+			type = Arrays.copyOf(type, cap);
+			line = Arrays.copyOf(line, cap);
+			offset = Arrays.copyOf(offset, cap);
+			length = Arrays.copyOf(length, cap);
+			valore = Arrays.copyOf(valore, cap);
+			scala = Arrays.copyOf(scala, cap);
+		}
+		type[size] = (byte) tipo.ordinal();
+		line[size] = riga;
+		offset[size] = off;
+		length[size] = len;
+		valore[size] = v;
+		scala[size] = (byte) s;
+		size++;
+		gap = size;
+	}
+
+	/**
+	 * Sostituisce sul posto i token [da, a) con i primi {@code quanti} token di {@code nuovi};
+	 * i token successivi vengono spostati di {@code deltaOffset} byte e {@code deltaRighe} righe.
+	 * Vengono copiati solo i token inseriti e quelli compresi tra questa modifica e la precedente.
+	 *
+	 * @param da primo token sostituito
+	 * @param a primo token conservato dopo la sostituzione
+	 * @param nuovi i token che prendono il posto di [da, a), prodotti da uno scanner
+	 * @param quanti quanti token di {@code nuovi} inserire
+	 * @param base offset nel sorgente dell'offset 0 di {@code nuovi}
+	 * @param testo il sorgente gia' modificato, a cui si riferiscono tutti i token
+	 * @param deltaOffset spostamento in byte dei token successivi
+	 * @param deltaRighe spostamento in righe dei token successivi
+	 */
+	public void replace(int da, int a, TokenBuffer nuovi, int quanti, int base, EditableSource testo,
+			int deltaOffset, int deltaRighe) {
+		spostaGap(da);
+		size -= a - da;
+		if (type.length - size < quanti) {
+			int vecchia = type.length;
+			int cap = Math.max(vecchia * 2, size + quanti + 16);
+			byte[] t = new byte[cap], s = new byte[cap];
+			int[] l = new int[cap], o = new int[cap], n = new int[cap];
+			long[] v = new long[cap];
+			allarga(type, t, vecchia, cap);
+			allarga(line, l, vecchia, cap);
+			allarga(offset, o, vecchia, cap);
+			allarga(length, n, vecchia, cap);
+			allarga(valore, v, vecchia, cap);
+			allarga(scala, s, vecchia, cap);
+			type = t;
+			line = l;
+			offset = o;
+			length = n;
+			valore = v;
+			scala = s;
+		}
+		System.arraycopy(nuovi.type, 0, type, gap, quanti);
+		System.arraycopy(nuovi.line, 0, line, gap, quanti);
+		System.arraycopy(nuovi.offset, 0, offset, gap, quanti);
+		System.arraycopy(nuovi.length, 0, length, gap, quanti);
+		System.arraycopy(nuovi.valore, 0, valore, gap, quanti);
+		System.arraycopy(nuovi.scala, 0, scala, gap, quanti);
+		for (int i = gap; i < gap + quanti; i++)
+			offset[i] += base;
+		gap += quanti;
+		size += quanti;
+		if (gap == size) {
+			this.deltaOffset = this.deltaRighe = 0;
+		} else {
+			this.deltaOffset += deltaOffset;
+			this.deltaRighe += deltaRighe;
+		}
+		this.testo = testo;
+		this.source = null;
+	}
+
+	/** Copia i token che precedono e seguono lo spazio libero in una colonna piu' grande. */
+	private void allarga(Object da, Object a, int vecchia, int cap) {
+		int coda = size - gap;
+		System.arraycopy(da, 0, a, 0, gap);
+		System.arraycopy(da, vecchia - coda, a, cap - coda, coda);
+	}
+
+	/**
+	 * Sposta lo spazio libero prima del token di indice k, applicando o togliendo lo
+	 * spostamento ai token che lo attraversano.
+	 */
+	private void spostaGap(int k) {
+		int g = type.length - size;
+		int da, a, n;
+		if (k < gap) {
+			da = k;
+			a = k + g;
+			n = gap - k;
+		} else if (k > gap) {
+			da = gap + g;
+			a = gap;
+			n = k - gap;
+		} else {
+			return;
+		}
+		System.arraycopy(type, da, type, a, n);
+		System.arraycopy(line, da, line, a, n);
+		System.arraycopy(offset, da, offset, a, n);
+		System.arraycopy(length, da, length, a, n);
+		System.arraycopy(valore, da, valore, a, n);
+		System.arraycopy(scala, da, scala, a, n);
+		int segno = k < gap ? -1 : 1;
+		for (int j = a; j < a + n; j++) {
+			offset[j] += segno * deltaOffset;
+			line[j] += segno * deltaRighe;
+		}
+		gap = k;
+		if (gap == size)
+			deltaOffset = deltaRighe = 0;
+	}
+
+	/** @return la posizione negli array del token di indice i */
+	private int fisico(int i) {
+		return i < gap ? i : i + type.length - size;
+	}
+
+	/**
+	 * @return il numero di token memorizzati (EOF compreso)
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return il sorgente a cui si riferiscono offset e lunghezze; dopo una modifica
+	 *         ({@link #replace}) e' una copia del sorgente attuale
+	 */
+	public ByteBuffer source() {
+		return testo == null ? source : ByteBuffer.wrap(testo.toArray());
+	}
+
+	/**
+	 * @return il pool in cui sono internati gli identificatori
+	 */
+	public InternPool pool() {
+		return pool;
+	}
+
+	public TokenType type(int i) {
+		return TIPI[type[fisico(i)]];
+	}
+
+	public int riga(int i) {
+		return i < gap ? line[i] : line[fisico(i)] + deltaRighe;
+	}
+
+	public int offset(int i) {
+		return i < gap ? offset[i] : offset[fisico(i)] + deltaOffset;
+	}
+
+	/**
+	 * Posizione del token: la riga e' quella memorizzata, la colonna viene ricavata
+	 * dalla {@link #righe() tabella delle righe} del sorgente.
+	 *
+	 * @param i indice del token
+	 * @return lo {@link Span} del token
+	 */
+	public long span(int i) {
+		int off = offset(i);
+		return Span.of(off, riga(i), righe().colonna(off));
+	}
+
+	/**
+	 * Imposta la tabella delle righe gia' costruita dallo scanner che ha prodotto i token,
+	 * cosi' che non debba essere ricalcolata dal sorgente.
+	 *
+	 * @param righe una tabella che copre gli offset di tutti i token
+	 */
+	public void setRighe(LineMap righe) {
+		this.righe = righe;
+	}
+
+	/**
+	 * Restituisce la tabella delle righe del sorgente, costruendola alla prima chiamata.
+	 * Puo' essere chiamato da piu' thread (vedi {@code parser.ParallelParser}).
+	 *
+	 * @return la tabella delle righe
+	 */
+	public LineMap righe() {
+		LineMap r = righe;
+		if (r == null) {
+			synchronized (this) {
+				r = righe;
+				if (r == null)
+					righe = r = LineMap.of(source());
+			}
+		}
+		return r;
+	}
+
+	public int length(int i) {
+		return length[fisico(i)];
+	}
+
+	/**
+	 * @param i indice del token
+	 * @return il numero dell'identificatore nel pool, -1 se il token non e' un ID
+	 */
+	public int sym(int i) {
+		int f = fisico(i);
+		return type[f] == TokenType.ID.ordinal() ? (int) valore[f] : -1;
+	}
+
+	/**
+	 * @param i indice del token
+	 * @return il valore grezzo della colonna dei valori, come passato ad {@link #add}
+	 */
+	public long valore(int i) {
+		return valore[fisico(i)];
+	}
+
+	/**
+	 * Valore non scalato di un letterale INT o FLOAT (vedi {@link Token#getNumero()}).
+	 *
+	 * @param i indice del token
+	 * @return il valore, o {@link Literals#FUORI_SCALA} se non sta in un long
+	 */
+	public long numero(int i) {
+		return valore[fisico(i)];
+	}
+
+	/**
+	 * @param i indice del token
+	 * @return il numero di cifre decimali di un letterale FLOAT, 0 altrimenti
+	 */
+	public int scala(int i) {
+		return scala[fisico(i)];
+	}
+
+	/**
+	 * Valore esatto non scalato di un letterale; per i letterali fuori scala viene
+	 * ricalcolato dal lessema.
+	 *
+	 * @param i indice del token
+	 * @return il valore non scalato
+	 */
+	public BigInteger numeroGrande(int i) {
+		long n = numero(i);
+		return n != Literals.FUORI_SCALA ? BigInteger.valueOf(n) : Literals.grande(lexeme(i));
+	}
+
+	/**
+	 * Restituisce il primo byte del lessema, utile per distinguere gli operatori
+	 * senza materializzare stringhe.
+	 *
+	 * @param i indice del token
+	 * @return il primo carattere del lessema
+	 */
+	public char firstChar(int i) {
+		int off = offset(i);
+		return (char) ((testo == null ? source.get(off) : testo.get(off)) & 0xFF);
+	}
+
+	/**
+	 * Materializza il lessema del token come stringa (stesso valore di {@link Token#getValore()}).
+	 *
+	 * @param i indice del token
+	 * @return il lessema, o "EOF" per il token di fine input
+	 */
+	public String lexeme(int i) {
+		int f = fisico(i);
+		if (type[f] == TokenType.EOF.ordinal()) {
+			return "EOF";
+		}
+		if (type[f] == TokenType.ID.ordinal()) {
+			return pool.name((int) valore[f]);
+		}
+		byte[] b = new byte[length[f]];
+		if (testo == null) {
+			source.get(offset(i), b);
+		} else {
+			testo.get(offset(i), b, 0, b.length);
+		}
+		return new String(b, StandardCharsets.ISO_8859_1);
+	}
+
+	/**
+	 * Costruisce un {@link Token} equivalente al token di indice {@code i}.
+	 *
+	 * @param i indice del token
+	 * @return il token materializzato
+	 */
+	public Token token(int i) {
+		TokenType t = type(i);
+		Token tk;
+		if (t == TokenType.INT || t == TokenType.FLOAT) {
+			tk = new Token(t, riga(i), lexeme(i), numero(i), scala(i));
+		} else {
+			tk = new Token(t, riga(i), lexeme(i), sym(i));
+		}
+		tk.setSpan(span(i));
+		return tk;
+	}
+}
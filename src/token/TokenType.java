@@ -1,5 +1,5 @@
 package token;
 
 public enum TokenType {
-	PLUS, MINUS, DIVIDE, TIMES, INT, FLOAT, ID, TYINT, TYFLOAT, PRINT, OP_ASSIGN, ASSIGN, SEMI, EOF;
+	PLUS, MINUS, DIVIDE, TIMES, INT, FLOAT, ID, TYINT, TYFLOAT, PRINT, OP_ASSIGN, ASSIGN, SEMI, EOF, ERROR;
 }
@@ -0,0 +1,97 @@
+package visitor;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import ast.AstArena;
+/**
+ * Generazione del codice dc sull'AST compatto ({@link AstArena}): produce lo stesso codice
+ * e gli stessi messaggi di errore del {@link CodeGeneration}.
+ *
+ * <p>Poiche' nell'arena i figli precedono i genitori, la notazione polacca inversa si ottiene
+ * semplicemente emettendo i nodi nell'ordine degli indici, con una sola scansione lineare.
+ * I registri sono quelli assegnati da {@link ArenaTypeChecking}, che deve essere eseguito prima.</p>
+ */
+public class ArenaCodeGeneration {
+	private final AstArena arena;
+	private final ArenaTypeChecking tipi;
+	private final Appendable codiceDc;
+	private String log = "";
+
+	/**
+	 * @param arena l'AST gia' controllato
+	 * @param tipi l'analisi semantica eseguita sull'arena
+	 */
+	public ArenaCodeGeneration(AstArena arena, ArenaTypeChecking tipi) {
+		this(arena, tipi, new StringBuilder());
+	}
+
+	/**
+	 * @param arena l'AST gia' controllato
+	 * @param tipi l'analisi semantica eseguita sull'arena
+	 * @param out destinazione del codice dc
+	 */
+	public ArenaCodeGeneration(AstArena arena, ArenaTypeChecking tipi, Appendable out) {
+		this.arena = arena;
+		this.tipi = tipi;
+		this.codiceDc = out;
+	}
+
+	public String getCodice() {
+		return codiceDc.toString();
+	}
+
+	public String getLog() {
+		return log;
+	}
+
+	/**
+	 * Genera il codice dell'intero programma, fermandosi al primo errore.
+	 */
+	public void genera() {
+		for (int i = 0; i < arena.size() && log.isEmpty(); i++) {
+			switch (arena.kind(i)) {
+			case AstArena.COST_INT, AstArena.COST_FLOAT -> {
+				emetti(" ");
+				emetti(arena.lessema(arena.letteraleDi(i)));
+			}
+			case AstArena.DEREF -> registro(i, " l");
+			case AstArena.BINOP -> emetti(arena.op(i).dc());
+			case AstArena.DECL -> {
+				if (arena.init(i) >= 0)
+					registro(i, " s");
+			}
+			case AstArena.ASSIGN -> registro(i, " s");
+			case AstArena.PRINT -> {
+				if (registro(i, " l"))
+					emetti(" p P");
+			}
+			default -> throw new IllegalStateException("Nodo sconosciuto: " + arena.kind(i));
+			}
+		}
+	}
+
+	/**
+	 * Emette il comando seguito dal registro della variabile del nodo, o registra l'errore.
+	 *
+	 * @return {@code false} se la variabile non ha un registro
+	 */
+	private boolean registro(int i, String comando) {
+		int s = arena.simboloDi(i);
+		char reg = tipi.registro(s);
+		if (reg == '\0') {
+			log = "Errore: Registri esauriti o non assegnati per la variabile '" + arena.nome(s) + "'";
+			return false;
+		}
+		emetti(comando);
+		emetti(String.valueOf(reg));
+		return true;
+	}
+
+	private void emetti(String codice) {
+		try {
+			codiceDc.append(codice);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+}
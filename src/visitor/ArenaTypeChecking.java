@@ -0,0 +1,163 @@
+package visitor;
+
+import java.util.ArrayList;
+import java.util.List;
+import ast.AstArena;
+import ast.LangOper;
+import ast.LangType;
+import token.Span;
+/**
+ * Analisi semantica sull'AST compatto ({@link AstArena}), con le stesse regole e gli
+ * stessi messaggi del {@link TypeCheckingVisitor}.
+ *
+ * <p>Invece di visitare un albero di oggetti, scorre per indice i nodi di ogni statement:
+ * poiche' nell'arena i figli precedono i genitori, quando si arriva a un'operazione il
+ * tipo dei suoi operandi e' gia' noto. I tipi dei nodi e gli attributi delle variabili
+ * (tipo e registro) sono memorizzati in array indicizzati per nodo e per simbolo; la
+ * {@link symbolTable.SymbolTable} non viene usata. Come il visitor, specializza le
+ * divisioni tra float in {@link LangOper#DIV_FLOAT} direttamente nell'arena.</p>
+ */
+public class ArenaTypeChecking {
+	private static final TipoTD[] TIPI = TipoTD.values();
+
+	private final AstArena arena;
+	/** Tipo calcolato per ogni nodo espressione (ordinale di {@link TipoTD}). */
+	private final byte[] tipo;
+	/** Tipo dichiarato di ogni simbolo, {@code null} se non dichiarato. */
+	private final LangType[] dichiarato;
+	/** Registro dc assegnato a ogni simbolo, {@code '\0'} se non dichiarato. */
+	private final char[] registro;
+	private char prossimoRegistro = 'a';
+	private final ArrayList<String> errori = new ArrayList<>();
+
+	/**
+	 * @param arena l'AST da controllare
+	 */
+	public ArenaTypeChecking(AstArena arena) {
+		this.arena = arena;
+		this.tipo = new byte[arena.size()];
+		this.dichiarato = new LangType[arena.simboli()];
+		this.registro = new char[arena.simboli()];
+	}
+
+	/**
+	 * Controlla tutti gli statement del programma, registrando un errore per ogni statement errato.
+	 *
+	 * @return {@code true} se il programma non contiene errori semantici
+	 */
+	public boolean check() {
+		for (int k = 0; k < arena.statementCount(); k++) {
+			String errore = statement(k);
+			if (errore != null) {
+				errori.add(errore);
+			}
+		}
+		return errori.isEmpty();
+	}
+
+	/**
+	 * @return i messaggi di errore, uno per statement errato, nell'ordine del programma
+	 */
+	public List<String> getErrori() {
+		return errori;
+	}
+
+	/**
+	 * @param simbolo un simbolo dell'arena
+	 * @return il registro assegnato alla variabile, {@code '\0'} se non dichiarata
+	 */
+	public char registro(int simbolo) {
+		return registro[simbolo];
+	}
+
+	/**
+	 * Controlla lo statement k-esimo.
+	 *
+	 * @return il messaggio di errore, o {@code null} se lo statement e' corretto
+	 */
+	private String statement(int k) {
+		int radice = arena.statement(k);
+		int s = arena.simboloDi(radice);
+		switch (arena.kind(radice)) {
+		case AstArena.DECL -> {
+			// come il visitor: il registro viene consumato anche per una doppia dichiarazione
+			char reg = prossimoRegistro++;
+			if (dichiarato[s] != null) {
+				return "Errore: variabile gia' creata" + Span.descrivi(arena.span(radice));
+			}
+			dichiarato[s] = arena.tipoDichiarato(radice);
+			registro[s] = reg;
+			int init = arena.init(radice);
+			if (init < 0) {
+				return null;
+			}
+			String errore = espressioni(arena.inizioStatement(k), radice);
+			if (errore != null) {
+				return errore;
+			}
+			if (!compatibile(dichiarato[s], tipo[init])) {
+				return "Errore: Tipi incompatibili nell'inizializzazione di " + arena.nome(s) + Span.descrivi(arena.span(radice));
+			}
+			return null;
+		}
+		case AstArena.ASSIGN -> {
+			if (dichiarato[s] == null) {
+				return nonDichiarata(s, arena.span(radice));
+			}
+			String errore = espressioni(arena.inizioStatement(k), radice);
+			if (errore != null) {
+				return errore;
+			}
+			if (!compatibile(dichiarato[s], tipo[arena.espressione(radice)])) {
+				return "Errore tipi incompatibili" + Span.descrivi(arena.span(radice));
+			}
+			return null;
+		}
+		default -> {
+			return dichiarato[s] == null ? nonDichiarata(s, arena.spanId(radice)) : null;
+		}
+		}
+	}
+
+	/**
+	 * Calcola il tipo dei nodi [da, a), che formano un'espressione in ordine posticipato.
+	 *
+	 * @return il messaggio del primo errore, o {@code null}
+	 */
+	private String espressioni(int da, int a) {
+		for (int i = da; i < a; i++) {
+			switch (arena.kind(i)) {
+			case AstArena.COST_INT -> tipo[i] = (byte) TipoTD.INT.ordinal();
+			case AstArena.COST_FLOAT -> tipo[i] = (byte) TipoTD.FLOAT.ordinal();
+			case AstArena.DEREF -> {
+				int s = arena.simboloDi(i);
+				if (dichiarato[s] == null) {
+					return nonDichiarata(s, arena.span(i));
+				}
+				tipo[i] = (byte) (dichiarato[s] == LangType.INT ? TipoTD.INT : TipoTD.FLOAT).ordinal();
+			}
+			default -> {
+				if (TIPI[tipo[arena.sinistro(i)]] == TipoTD.FLOAT || TIPI[tipo[arena.destro(i)]] == TipoTD.FLOAT) {
+					tipo[i] = (byte) TipoTD.FLOAT.ordinal();
+					if (arena.op(i) == LangOper.DIVIDE) {
+						arena.setOp(i, LangOper.DIV_FLOAT);
+					}
+				} else {
+					tipo[i] = (byte) TipoTD.INT.ordinal();
+				}
+			}
+			}
+		}
+		return null;
+	}
+
+	private String nonDichiarata(int s, long span) {
+		return "Errore semantico: variabile '" + arena.nome(s) + "' non dichiarata" + Span.descrivi(span);
+	}
+
+	/** Stessa regola di {@link TypeDescriptor#compatible(TypeDescriptor)}: INT puo' essere usato come FLOAT. */
+	private static boolean compatibile(LangType dichiarato, byte tipoEspressione) {
+		TipoTD t = TIPI[tipoEspressione];
+		return dichiarato == LangType.FLOAT ? t == TipoTD.FLOAT || t == TipoTD.INT : t == TipoTD.INT;
+	}
+}
@@ -1,80 +1,138 @@
 package visitor;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import ast.NodeProgram;
 import ast.NodeDecl;
 import ast.NodeDeref;
 import ast.NodePrint;
 import ast.NodeAssign;
-import ast.LangOper;
 import ast.NodeBinOp;
 import ast.NodeDecSt;
+import ast.NodeExpr;
 import ast.NodeCost;
 import ast.NodeId;
+import ast.OrdinePosticipato;
 import symbolTable.SymbolTable;
-import symbolTable.SymbolTable.Attributes;
 /**
  * La classe {@code CodeGeneration} implementa la fase finale del compilatore: la generazione del codice.
  * <p>
  * Utilizza il pattern Visitor per attraversare l'AST e produrre codice dc.
+ * I costruttori senza tabella dei simboli usano quella corrente del thread ({@link SymbolTable#corrente()}).
  *  Il codice generato si basa sulla notazione 
  * polacca inversa (RPN) e utilizza i registri di {@code dc} per memorizzare le variabili.
  * </p>
  * * 
  */
 public class CodeGeneration implements IVisitor {
-	/** Stringa che accumula il codice dc generato durante la visita. */
-	private String codiceDc = "";
+	/** Destinazione del codice dc generato durante la visita. */
+	private final Appendable codiceDc;
 	/** Stringa utilizzata per loggare errori fatali durante la generazione (es. esaurimento registri). */
 	private String log = "";
+	/** Visita di {@link #visit(NodeBinOp)}, riutilizzata da un'espressione all'altra. */
+	private final OrdinePosticipato ordine = new OrdinePosticipato();
+	/** Tabella dei simboli riempita dal controllo dei tipi, da cui si leggono i registri. */
+	private final SymbolTable simboli;
+
+	/**
+	 * Costruisce un generatore che accumula il codice in memoria (vedi {@link #getCodice()}).
+	 */
+	public CodeGeneration() {
+		this(new StringBuilder());
+	}
+
+	/**
+	 * Costruisce un generatore che scrive il codice direttamente su una destinazione
+	 * (es. un {@link java.io.Writer}), senza accumularlo in memoria.
+	 * Gli errori di scrittura vengono rilanciati come {@link UncheckedIOException}.
+	 * @param out la destinazione del codice dc.
+	 */
+	public CodeGeneration(Appendable out) {
+		this(out, SymbolTable.corrente());
+	}
+
+	/**
+	 * Costruisce un generatore che legge i registri dalla tabella dei simboli indicata,
+	 * quella riempita dal {@link TypeCheckingVisitor} della stessa compilazione.
+	 * @param out la destinazione del codice dc.
+	 * @param simboli la tabella dei simboli della compilazione.
+	 */
+	public CodeGeneration(Appendable out, SymbolTable simboli) {
+		this.codiceDc = out;
+		this.simboli = simboli;
+	}
 
 	/**
 	 * Restituisce il codice dc finale generato.
-	 * @return La stringa contenente le istruzioni dc.
+	 * @return La stringa contenente le istruzioni dc (il {@code toString()} della destinazione).
 	 */
 	public String getCodice() {
-		return codiceDc;
+		return codiceDc.toString();
 	}
 
 	/**
-	 * Restituisce i log di errore riscontrati durante la generazione.
-	 * @return Una stringa di errore, o una stringa vuota se la generazione ha avuto successo.
+	 * Accoda un frammento di codice dc.
+	 * @param codice il frammento da accodare.
 	 */
-	public String getLog() {
-		return log;
+	private void emetti(String codice) {
+		try {
+			codiceDc.append(codice);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
 	}
 
 	/**
-	 * Mappa gli operatori definiti nel linguaggio ({@link LangOper}) nei corrispondenti 
-	 * simboli operatore di {@code dc}.
-	 * @param op L'operatore AST da mappare.
-	 * @return Una stringa contenente l'operatore dc equivalente.
+	 * Accoda un comando dc seguito dal registro su cui opera.
+	 * @param comando il comando (es. {@code " s"}).
+	 * @param reg il registro.
 	 */
-	private String mapOp(LangOper op) {
-		switch (op) {
-			case PLUS:   return "+";
-			case MINUS:  return "-";
-			case TIMES:  return "*";
-			case DIVIDE: return "/";
-			default:     return "";
+	private void emetti(String comando, char reg) {
+		try {
+			codiceDc.append(comando).append(reg);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
 		}
 	}
 
+	/**
+	 * Prepara il generatore per una nuova compilazione, cancellando il log degli errori.
+	 * La destinazione non viene toccata: se e' un buffer va svuotata dal chiamante.
+	 */
+	public void reset() {
+		log = "";
+	}
+
+	/**
+	 * Restituisce i log di errore riscontrati durante la generazione.
+	 * @return Una stringa di errore, o una stringa vuota se la generazione ha avuto successo.
+	 */
+	public String getLog() {
+		return log;
+	}
+
 	/**
 	 * Metodo helper che recupera l'attributo registro dalla {@link SymbolTable} per un dato ID.
+	 * Lo slot legato dal controllo dei tipi ({@link NodeId#getSlot()}) evita la ricerca, ma viene
+	 * usato solo se in questa tabella appartiene alla stessa variabile; altrimenti (AST non
+	 * controllato o controllato con un'altra tabella) la variabile viene cercata per nome.
 	 * Se il registro non è stato assegnato o la variabile non esiste, popola il log di errore.
-	 * @param id Il nome dell'identificatore.
+	 * @param id Il nodo dell'identificatore.
 	 * @return Il carattere del registro dc associato, o {@code null} in caso di errore.
 	 */
-	private Character getAndCheckRegistro(String id) {
-		Attributes attr = SymbolTable.lookup(id);
-		// Assumiamo che se il registro è '\0' o null, i registri sono finiti
-		if (attr == null || attr.getRegistro() == '\0') {
+	private Character getAndCheckRegistro(NodeId id) {
+		int slot = id.getSlot();
+		if (!simboli.contiene(slot, id.getName())) {
+			slot = simboli.slot(id.getSym(), id.getName());
+		}
+		// Assumiamo che se il registro è '\0' o la variabile manca, i registri sono finiti
+		if (slot < 0 || simboli.getRegistro(slot) == '\0') {
 			if (log.isEmpty()) {
-				log = "Errore: Registri esauriti o non assegnati per la variabile '" + id + "'";
+				log = "Errore: Registri esauriti o non assegnati per la variabile '" + id.getName() + "'";
 			}
 			return null;
 		}
-		return attr.getRegistro();
+		return simboli.getRegistro(slot);
 	}
 
 	/**
@@ -106,9 +164,9 @@ public class CodeGeneration implements IVisitor {
 			node.getInit().accept(this);
 			
 			if (log.isEmpty()) {
-				Character reg = getAndCheckRegistro(node.getId().getName());
+				Character reg = getAndCheckRegistro(node.getId());
 				if (reg != null) {
-					codiceDc += " s" + reg;
+					emetti(" s", reg);
 				}
 			}
 		}
@@ -126,9 +184,9 @@ public class CodeGeneration implements IVisitor {
 		node.getExpr().accept(this);
 		
 		if (log.isEmpty()) {
-			Character reg = getAndCheckRegistro(node.getId().getName());
+			Character reg = getAndCheckRegistro(node.getId());
 			if (reg != null) {
-				codiceDc += " s" + reg;
+				emetti(" s", reg);
 			}
 		}
 	}
@@ -136,22 +194,22 @@ public class CodeGeneration implements IVisitor {
 	/**
 	 * Genera il codice per un'operazione binaria in notazione postfissa.
 	 * Gestisce in modo speciale la divisione tra float impostando la precisione di {@code dc} a 5 decimali.
+	 * L'albero viene percorso con {@link OrdinePosticipato}, cosi' che la
+	 * profondita' delle espressioni non sia limitata dallo stack.
 	 * @param node Il nodo dell'operazione binaria.
 	 */
 	@Override
 	public void visit(NodeBinOp node) {
 		if (!log.isEmpty()) return;
 
-		node.getLeft().accept(this);
-		if (!log.isEmpty()) return;
-
-		node.getRight().accept(this);
-		if (!log.isEmpty()) return;
-
-		if (node.getOp() == LangOper.DIV_FLOAT) {
-			codiceDc += " 5 k / 0 k";
-		} else {
-			codiceDc += " " + mapOp(node.getOp());
+		ordine.inizia(node);
+		for (NodeExpr e; (e = ordine.prossimo()) != null;) {
+			if (e instanceof NodeBinOp op) {
+				emetti(op.getOp().dc());
+			} else {
+				e.accept(this);
+				if (!log.isEmpty()) return;
+			}
 		}
 	}
 
@@ -164,9 +222,10 @@ public class CodeGeneration implements IVisitor {
 	public void visit(NodePrint node) {
 		if (!log.isEmpty()) return;
 
-		Character reg = getAndCheckRegistro(node.getId().getName());
+		Character reg = getAndCheckRegistro(node.getId());
 		if (reg != null) {
-			codiceDc += " l" + reg + " p P";
+			emetti(" l", reg);
+			emetti(" p P");
 		}
 	}
 
@@ -179,9 +238,9 @@ public class CodeGeneration implements IVisitor {
 	public void visit(NodeDeref node) {
 		if (!log.isEmpty()) return;
 
-		Character reg = getAndCheckRegistro(node.getId().getName());
+		Character reg = getAndCheckRegistro(node.getId());
 		if (reg != null) {
-			codiceDc += " l" + reg;
+			emetti(" l", reg);
 		}
 	}
 	/**
@@ -191,7 +250,8 @@ public class CodeGeneration implements IVisitor {
 	@Override
 	public void visit(NodeCost node) {
 		if (!log.isEmpty()) return;
-		codiceDc += " " + node.getValue();
+		emetti(" ");
+		emetti(node.getValue());
 	}
 
 	/**
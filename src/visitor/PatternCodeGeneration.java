@@ -0,0 +1,128 @@
+package visitor;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import ast.*;
+import symbolTable.SymbolTable;
+/**
+ * Generazione del codice dc con lo stesso output del {@link CodeGeneration}, scritta come uno
+ * {@code switch} esaustivo sulla gerarchia sigillata dei nodi invece che con {@link IVisitor}.
+ *
+ * <p>Ogni chiamata restituisce {@code false} se la generazione si e' fermata per un errore
+ * (vedi {@link #getLog()}): la propagazione dell'errore passa per il valore di ritorno invece
+ * che per un controllo del log all'inizio di ogni visita.</p>
+ */
+public class PatternCodeGeneration {
+	/** Destinazione del codice dc generato. */
+	private final Appendable codiceDc;
+	/** Primo errore fatale incontrato durante la generazione. */
+	private String log = "";
+	/** Visita di {@link #operazione(NodeBinOp)}, riutilizzata da un'espressione all'altra. */
+	private final OrdinePosticipato ordine = new OrdinePosticipato();
+	/** Tabella dei simboli da cui si leggono i registri. */
+	private final SymbolTable simboli;
+
+	/**
+	 * Costruisce un generatore che accumula il codice in memoria (vedi {@link #getCodice()}).
+	 */
+	public PatternCodeGeneration() {
+		this(new StringBuilder());
+	}
+
+	/**
+	 * @param out la destinazione del codice dc.
+	 */
+	public PatternCodeGeneration(Appendable out) {
+		this(out, SymbolTable.corrente());
+	}
+
+	/**
+	 * @param out la destinazione del codice dc.
+	 * @param simboli la tabella riempita dal {@link PatternTypeChecking} della stessa compilazione.
+	 */
+	public PatternCodeGeneration(Appendable out, SymbolTable simboli) {
+		this.codiceDc = out;
+		this.simboli = simboli;
+	}
+
+	public String getCodice() {
+		return codiceDc.toString();
+	}
+
+	public String getLog() {
+		return log;
+	}
+
+	/**
+	 * Genera il codice di un nodo e dei suoi figli; richiede che il controllo dei tipi
+	 * abbia gia' assegnato i registri.
+	 * @param node il nodo da tradurre.
+	 * @return {@code true} se il codice e' stato generato, {@code false} al primo errore.
+	 */
+	public boolean genera(NodeAST node) {
+		return switch (node) {
+		case NodeProgram p -> {
+			for (NodeDecSt ds : p.getDecSts()) {
+				if (!genera(ds))
+					yield false;
+			}
+			yield true;
+		}
+		case NodeDecl d -> d.getInit() == null || (genera(d.getInit()) && registro(d.getId(), " s"));
+		case NodeAssign a -> genera(a.getExpr()) && registro(a.getId(), " s");
+		case NodePrint p -> registro(p.getId(), " l") && emetti(" p P");
+		case NodeDeref d -> registro(d.getId(), " l");
+		case NodeCost c -> emetti(" ") && emetti(c.getValue());
+		case NodeBinOp b -> operazione(b);
+		case NodeId id -> true;
+		};
+	}
+
+	/**
+	 * Genera un albero di operazioni in ordine posticipato ({@link OrdinePosticipato}):
+	 * la profondita' dell'espressione non e' limitata dallo stack.
+	 */
+	private boolean operazione(NodeBinOp node) {
+		ordine.inizia(node);
+		for (NodeExpr e; (e = ordine.prossimo()) != null;) {
+			if (e instanceof NodeBinOp op) {
+				emetti(op.getOp().dc());
+			} else if (!genera(e)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Emette il comando seguito dal registro della variabile, o registra l'errore.
+	 * Lo slot legato al nodo evita la ricerca solo se in questa tabella appartiene alla stessa variabile.
+	 * @return {@code false} se la variabile non ha un registro.
+	 */
+	private boolean registro(NodeId id, String comando) {
+		int slot = id.getSlot();
+		if (!simboli.contiene(slot, id.getName())) {
+			slot = simboli.slot(id.getSym(), id.getName());
+		}
+		if (slot < 0 || simboli.getRegistro(slot) == '\0') {
+			log = "Errore: Registri esauriti o non assegnati per la variabile '" + id.getName() + "'";
+			return false;
+		}
+		try {
+			codiceDc.append(comando).append(simboli.getRegistro(slot));
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return true;
+	}
+
+	/** @return sempre {@code true}, per comporre le emissioni con {@code &&} */
+	private boolean emetti(String codice) {
+		try {
+			codiceDc.append(codice);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return true;
+	}
+}
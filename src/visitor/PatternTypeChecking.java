@@ -0,0 +1,163 @@
+package visitor;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import ast.*;
+import symbolTable.SymbolTable;
+import token.Span;
+/**
+ * Analisi semantica con le stesse regole e gli stessi messaggi del {@link TypeCheckingVisitor},
+ * scritta come uno {@code switch} sui tipi di nodo invece che con il doppio dispatch di {@link IVisitor}.
+ *
+ * <p>Poiche' la gerarchia di {@link NodeAST} e' sigillata, lo {@code switch} e' esaustivo senza
+ * ramo di default: aggiungere un nodo senza gestirlo e' un errore di compilazione. Ogni metodo
+ * restituisce il {@link TypeDescriptor} calcolato invece di depositarlo in un campo condiviso,
+ * cosi' i risultati intermedi restano variabili locali.</p>
+ */
+public class PatternTypeChecking {
+	/** Contatore utilizzato per assegnare un registro univoco a ogni variabile dichiarata. */
+	private char prossimoRegistro = 'a';
+	/** Errori trovati visitando un {@link NodeProgram}, uno per statement errato. */
+	private final ArrayList<String> errori = new ArrayList<>();
+	/** Visita di {@link #operazione(NodeBinOp)} e pila dei tipi dei suoi operandi, riutilizzate da un'espressione all'altra. */
+	private final OrdinePosticipato ordine = new OrdinePosticipato();
+	private final ArrayDeque<TypeDescriptor> tipi = new ArrayDeque<>();
+	/** Tabella dei simboli della compilazione. */
+	private final SymbolTable simboli;
+
+	/**
+	 * Costruisce il controllo dei tipi sulla tabella corrente del thread, svuotandola per una nuova analisi.
+	 */
+	public PatternTypeChecking() {
+		this(SymbolTable.corrente());
+	}
+
+	/**
+	 * Costruisce il controllo dei tipi su una tabella propria della compilazione, svuotandola.
+	 * @param simboli la tabella da riempire, da passare poi al {@link PatternCodeGeneration}.
+	 */
+	public PatternTypeChecking(SymbolTable simboli) {
+		this.simboli = simboli;
+		simboli.clear();
+	}
+
+	/**
+	 * @return i messaggi di errore degli statement controllati con {@link #check(NodeAST)} su un programma
+	 */
+	public List<String> getErrori() {
+		return errori;
+	}
+
+	/**
+	 * Controlla un nodo e i suoi figli.
+	 * @param node il nodo da controllare.
+	 * @return il tipo di un'espressione, OK per uno statement corretto, ERROR con il messaggio altrimenti;
+	 * per un programma, il risultato dell'ultimo statement.
+	 */
+	public TypeDescriptor check(NodeAST node) {
+		return switch (node) {
+		case NodeProgram p -> programma(p);
+		case NodeDecl d -> dichiarazione(d);
+		case NodeAssign a -> assegnamento(a);
+		case NodePrint p -> {
+			TypeDescriptor id = check(p.getId());
+			yield id.isError() ? id : TypeDescriptor.OK;
+		}
+		case NodeId id -> identificatore(id);
+		case NodeCost c -> TypeDescriptor.of(c.getType());
+		case NodeDeref d -> check(d.getId());
+		case NodeBinOp b -> operazione(b);
+		};
+	}
+
+	private TypeDescriptor programma(NodeProgram node) {
+		TypeDescriptor ultimo = TypeDescriptor.OK;
+		for (NodeDecSt ds : node.getDecSts()) {
+			ultimo = check(ds);
+			if (ultimo.isError())
+				errori.add(ultimo.getmsg());
+		}
+		return ultimo;
+	}
+
+	private TypeDescriptor identificatore(NodeId node) {
+		int slot = simboli.slot(node.getSym(), node.getName());
+		if (slot < 0) {
+			node.bind(-1, null);
+			return new TypeDescriptor(TipoTD.ERROR, "Errore semantico: variabile '" + node.getName() + "' non dichiarata" + Span.descrivi(node.getSpan()));
+		}
+		node.bind(slot, simboli.getAttributes(slot));
+		return TypeDescriptor.of(simboli.getTipo(slot));
+	}
+
+	private TypeDescriptor dichiarazione(NodeDecl node) {
+		NodeId id = node.getId();
+		int slot = simboli.add(id.getSym(), id.getName(), node.getType(), prossimoRegistro++);
+		if (slot < 0) {
+			id.bind(-1, null);
+			return new TypeDescriptor(TipoTD.ERROR, "Errore: variabile gia' creata" + Span.descrivi(node.getSpan()));
+		}
+		id.bind(slot, simboli.getAttributes(slot));
+		if (node.getInit() == null) {
+			return TypeDescriptor.OK;
+		}
+		TypeDescriptor initType = check(node.getInit());
+		if (initType.isError()) {
+			return initType;
+		}
+		TypeDescriptor declType = TypeDescriptor.of(node.getType());
+		if (!declType.compatible(initType)) {
+			return new TypeDescriptor(TipoTD.ERROR, "Errore: Tipi incompatibili nell'inizializzazione di " + node.getId().getName() + Span.descrivi(node.getSpan()));
+		}
+		return TypeDescriptor.OK;
+	}
+
+	private TypeDescriptor assegnamento(NodeAssign node) {
+		TypeDescriptor idType = check(node.getId());
+		if (idType.isError()) {
+			return idType;
+		}
+		TypeDescriptor expType = check(node.getExpr());
+		if (expType.isError()) {
+			return expType;
+		}
+		if (idType.compatible(expType)) {
+			return TypeDescriptor.OK;
+		}
+		return new TypeDescriptor(TipoTD.ERROR, "Errore tipi incompatibili" + Span.descrivi(node.getSpan()));
+	}
+
+	/**
+	 * Controlla un albero di operazioni in ordine posticipato ({@link OrdinePosticipato}):
+	 * la profondita' dell'espressione non e' limitata dallo stack.
+	 */
+	private TypeDescriptor operazione(NodeBinOp node) {
+		// dopo un errore la pila dei tipi puo' essere rimasta piena
+		tipi.clear();
+		ordine.inizia(node);
+		for (NodeExpr e; (e = ordine.prossimo()) != null;) {
+			if (e instanceof NodeBinOp op) {
+				TypeDescriptor rightTD = tipi.pop();
+				TypeDescriptor leftTD = tipi.pop();
+				tipi.push(combina(op, leftTD, rightTD));
+			} else {
+				TypeDescriptor foglia = check(e);
+				if (foglia.isError())
+					return foglia;
+				tipi.push(foglia);
+			}
+		}
+		return tipi.pop();
+	}
+
+	private static TypeDescriptor combina(NodeBinOp node, TypeDescriptor leftTD, TypeDescriptor rightTD) {
+		if (leftTD.getTipo() == TipoTD.FLOAT || rightTD.getTipo() == TipoTD.FLOAT) {
+			if (node.getOp() == LangOper.DIVIDE) {
+				node.setOp(LangOper.DIV_FLOAT);
+			}
+			return TypeDescriptor.FLOAT;
+		}
+		return TypeDescriptor.INT;
+	}
+}
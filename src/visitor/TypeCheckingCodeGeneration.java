@@ -0,0 +1,278 @@
+package visitor;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import ast.*;
+import symbolTable.SymbolTable;
+import token.Span;
+/**
+ * Controllo dei tipi e generazione del codice dc in una sola visita dell'AST.
+ * <p>
+ * Poiche' in ac ogni variabile va dichiarata prima dell'uso, quando si visita uno statement
+ * tutte le variabili che usa hanno gia' tipo e registro: si possono quindi controllare i tipi,
+ * specializzare {@code DIVIDE} in {@code DIV_FLOAT}, assegnare i registri ed emettere il codice
+ * insieme, invece di percorrere l'AST una volta con il {@link TypeCheckingVisitor} e una con il
+ * {@link CodeGeneration}. Per un programma corretto il codice e' identico, byte per byte, a
+ * quello delle due passate, e anche i messaggi di errore sono gli stessi.
+ * </p>
+ * <p>
+ * Dopo il primo errore (di tipo o di registri esauriti) il codice non viene piu' emesso,
+ * mentre il controllo dei tipi prosegue per riportare tutti gli errori (vedi {@link #getErrori()});
+ * il codice gia' emesso in quel caso e' incompleto e va scartato.
+ * Come nel {@link TypeCheckingVisitor}, ogni identificatore viene legato al suo slot nella tabella.
+ * </p>
+ */
+public class TypeCheckingCodeGeneration implements IVisitor {
+	/** Contatore utilizzato per assegnare un registro univoco (carattere) a ogni variabile dichiarata. */
+	private char prossimoRegistro = 'a';
+	/** Tipo dell'ultimo nodo visitato. */
+	private TypeDescriptor resType = TypeDescriptor.OK;
+	/** Destinazione del codice dc generato durante la visita. */
+	private final Appendable codiceDc;
+	/** Tabella dei simboli della compilazione. */
+	private final SymbolTable simboli;
+	/** Errori della compilazione, nell'ordine degli statement. */
+	private final ArrayList<String> errori = new ArrayList<>();
+	/** Diventa {@code false} al primo errore: da li' in poi si controllano solo i tipi. */
+	private boolean genera = true;
+	/** Visita di {@link #visit(NodeBinOp)} e pila dei tipi dei suoi operandi, riutilizzate da un'espressione all'altra. */
+	private final OrdinePosticipato ordine = new OrdinePosticipato();
+	private final ArrayDeque<TypeDescriptor> tipi = new ArrayDeque<>();
+
+	/**
+	 * Costruisce un compilatore che accumula il codice in memoria (vedi {@link #getCodice()}),
+	 * con una {@link SymbolTable} propria.
+	 */
+	public TypeCheckingCodeGeneration() {
+		this(new StringBuilder(), new SymbolTable());
+	}
+
+	/**
+	 * @param out la destinazione del codice dc.
+	 * @param simboli la tabella dei simboli della compilazione, che viene svuotata.
+	 */
+	public TypeCheckingCodeGeneration(Appendable out, SymbolTable simboli) {
+		this.codiceDc = out;
+		this.simboli = simboli;
+		simboli.clear();
+	}
+
+	/**
+	 * @return il codice dc generato (il {@code toString()} della destinazione).
+	 */
+	public String getCodice() {
+		return codiceDc.toString();
+	}
+
+	/**
+	 * @return i messaggi di errore, vuota se il programma e' corretto.
+	 */
+	public List<String> getErrori() {
+		return errori;
+	}
+
+	/**
+	 * @return il tipo dell'ultimo statement o espressione visitati.
+	 */
+	public TypeDescriptor getResType() {
+		return resType;
+	}
+
+	/**
+	 * @return la tabella dei simboli riempita durante la visita.
+	 */
+	public SymbolTable getSymbolTable() {
+		return simboli;
+	}
+
+	/**
+	 * Compila tutti gli statement del programma, registrando gli errori di ognuno.
+	 * @param node Il nodo radice del programma.
+	 */
+	@Override
+	public void visit(NodeProgram node) {
+		for (NodeDecSt ds : node.getDecSts()) {
+			ds.accept(this);
+			if (resType.isError()) {
+				errore(resType.getmsg());
+			}
+		}
+	}
+
+	/**
+	 * Registra un errore e ferma la generazione del codice.
+	 */
+	private void errore(String msg) {
+		errori.add(msg);
+		genera = false;
+	}
+
+	private void emetti(String codice) {
+		if (!genera) return;
+		try {
+			codiceDc.append(codice);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Emette un comando dc seguito dal registro della variabile, gia' legata dal controllo dei tipi.
+	 * Se il registro non e' assegnato registra l'errore, con lo stesso messaggio del {@link CodeGeneration}.
+	 */
+	private void emetti(String comando, NodeId id) {
+		if (!genera) return;
+		char reg = simboli.getRegistro(id.getSlot());
+		if (reg == '\0') {
+			errore("Errore: Registri esauriti o non assegnati per la variabile '" + id.getName() + "'");
+			return;
+		}
+		try {
+			codiceDc.append(comando).append(reg);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Controlla che l'identificatore sia dichiarato e lo lega al suo slot.
+	 * @param node Il nodo che rappresenta l'identificatore.
+	 */
+	@Override
+	public void visit(NodeId node) {
+		int slot = simboli.slot(node.getSym(), node.getName());
+		if (slot >= 0) {
+			node.bind(slot, simboli.getAttributes(slot));
+			resType = TypeDescriptor.of(simboli.getTipo(slot));
+		} else {
+			node.bind(-1, null);
+			resType = new TypeDescriptor(TipoTD.ERROR, "Errore semantico: variabile '" + node.getName() + "' non dichiarata" + Span.descrivi(node.getSpan()));
+		}
+	}
+
+	/**
+	 * Dichiara la variabile assegnandole un registro, poi controlla ed emette
+	 * l'inizializzazione seguita dal comando {@code s}.
+	 * @param node Il nodo di dichiarazione.
+	 */
+	@Override
+	public void visit(NodeDecl node) {
+		NodeId id = node.getId();
+		int slot = simboli.add(id.getSym(), id.getName(), node.getType(), prossimoRegistro++);
+		if (slot < 0) {
+			id.bind(-1, null);
+			resType = new TypeDescriptor(TipoTD.ERROR, "Errore: variabile gia' creata" + Span.descrivi(node.getSpan()));
+			return;
+		}
+		id.bind(slot, simboli.getAttributes(slot));
+		if (node.getInit() == null) {
+			resType = TypeDescriptor.OK;
+			return;
+		}
+		node.getInit().accept(this);
+		if (resType.isError()) {
+			return;
+		}
+		if (!TypeDescriptor.of(node.getType()).compatible(resType)) {
+			resType = new TypeDescriptor(TipoTD.ERROR, "Errore: Tipi incompatibili nell'inizializzazione di " + id.getName() + Span.descrivi(node.getSpan()));
+			return;
+		}
+		emetti(" s", id);
+		resType = TypeDescriptor.OK;
+	}
+
+	/**
+	 * Controlla la variabile ed emette {@code l} seguito da {@code p P}.
+	 * @param node Il nodo print.
+	 */
+	@Override
+	public void visit(NodePrint node) {
+		node.getId().accept(this);
+		if (resType.isError()) {
+			return;
+		}
+		emetti(" l", node.getId());
+		emetti(" p P");
+		resType = TypeDescriptor.OK;
+	}
+
+	/**
+	 * Controlla variabile ed espressione, poi emette il salvataggio nel registro.
+	 * @param node Il nodo di assegnamento.
+	 */
+	@Override
+	public void visit(NodeAssign node) {
+		node.getId().accept(this);
+		TypeDescriptor idType = resType;
+		if (idType.isError()) {
+			return;
+		}
+		node.getExpr().accept(this);
+		if (resType.isError()) {
+			return;
+		}
+		if (!idType.compatible(resType)) {
+			resType = new TypeDescriptor(TipoTD.ERROR, "Errore tipi incompatibili" + Span.descrivi(node.getSpan()));
+			return;
+		}
+		emetti(" s", node.getId());
+		resType = TypeDescriptor.OK;
+	}
+
+	/**
+	 * @param node Il nodo costante.
+	 */
+	@Override
+	public void visit(NodeCost node) {
+		resType = TypeDescriptor.of(node.getType());
+		emetti(" ");
+		emetti(node.getValue());
+	}
+
+	/**
+	 * @param node Il nodo deref.
+	 */
+	@Override
+	public void visit(NodeDeref node) {
+		node.getId().accept(this);
+		if (!resType.isError()) {
+			emetti(" l", node.getId());
+		}
+	}
+
+	/**
+	 * Visita l'operazione in ordine posticipato con {@link OrdinePosticipato}, come il
+	 * {@link TypeCheckingVisitor}: quando i tipi dei due operandi sono noti l'operatore viene
+	 * specializzato ed emesso subito dopo il codice degli operandi.
+	 * Il primo errore, da sinistra a destra, interrompe la visita.
+	 * @param node Il nodo dell'operazione binaria.
+	 */
+	@Override
+	public void visit(NodeBinOp node) {
+		tipi.clear();
+		ordine.inizia(node);
+		for (NodeExpr e; (e = ordine.prossimo()) != null;) {
+			if (e instanceof NodeBinOp op) {
+				TypeDescriptor rightTD = tipi.pop();
+				TypeDescriptor leftTD = tipi.pop();
+				if (leftTD.getTipo() == TipoTD.FLOAT || rightTD.getTipo() == TipoTD.FLOAT) {
+					resType = TypeDescriptor.FLOAT;
+					if (op.getOp() == LangOper.DIVIDE) {
+						op.setOp(LangOper.DIV_FLOAT);
+					}
+				} else {
+					resType = TypeDescriptor.INT;
+				}
+				emetti(op.getOp().dc());
+			} else {
+				e.accept(this);
+				if (resType.isError())
+					return;
+			}
+			tipi.push(resType);
+		}
+	}
+}
@@ -1,7 +1,9 @@
 package visitor;
+import java.util.ArrayDeque;
 import ast.*;
 import symbolTable.SymbolTable;
 import symbolTable.SymbolTable.Attributes;
+import token.Span;
 /**
  * La classe {@code TypeCheckingVisitor} implementa l'analisi semantica del compilatore 
  * utilizzando il pattern Visitor.
@@ -13,6 +15,7 @@ import symbolTable.SymbolTable.Attributes;
  * <li>Effettuare la promozione di tipo (coercizione) da INT a FLOAT dove necessario.</li>
  * <li>Assegnare i registri alle variabili per la successiva fase di generazione del codice.</li>
  * </ul>
+ * I messaggi di errore riportano la riga e la colonna del nodo, se note (vedi {@link Span}).
  * </p>
  * * 
  */
@@ -21,15 +24,49 @@ public class TypeCheckingVisitor implements IVisitor {
 	private char prossimoRegistro = 'a'; 
 	/** Descrittore di tipo utilizzato per memorizzare e propagare il risultato dell'analisi durante la visita dei nodi. */
 	private TypeDescriptor resType;
+	/** Visita di {@link #visit(NodeBinOp)} e pila dei tipi dei suoi operandi, riutilizzate da un'espressione all'altra. */
+	private final OrdinePosticipato ordine = new OrdinePosticipato();
+	private final ArrayDeque<TypeDescriptor> tipi = new ArrayDeque<>();
+	/** Tabella dei simboli della compilazione, condivisa con la generazione del codice. */
+	private final SymbolTable simboli;
 
 	/**
-     * Costruisce un nuovo TypeCheckingVisitor.
-     * Inizializza la {@link SymbolTable} per una nuova sessione di analisi.
+     * Costruisce un nuovo TypeCheckingVisitor sulla tabella corrente del thread
+     * ({@link SymbolTable#corrente()}), che viene svuotata per una nuova sessione di analisi.
      * * @param resType Il descrittore di tipo iniziale.
      */
 	public TypeCheckingVisitor(TypeDescriptor resType) {
+		this(resType, SymbolTable.corrente());
+	}
+
+	/**
+     * Costruisce un nuovo TypeCheckingVisitor su una tabella dei simboli propria della
+     * compilazione, che viene svuotata; la stessa tabella va passata al {@link CodeGeneration}.
+     * * @param resType Il descrittore di tipo iniziale.
+     * @param simboli La tabella dei simboli da riempire.
+     */
+	public TypeCheckingVisitor(TypeDescriptor resType, SymbolTable simboli) {
 		super();
-		SymbolTable.init();
+		this.simboli = simboli;
+		simboli.clear();
+		this.resType = resType;
+	}
+
+	/**
+     * @return la tabella dei simboli riempita da questo visitor.
+     */
+	public SymbolTable getSymbolTable() {
+		return simboli;
+	}
+
+	/**
+     * Prepara il visitor per una nuova compilazione senza ricrearlo: svuota la
+     * {@link SymbolTable} e riparte dal primo registro.
+     * * @param resType Il descrittore di tipo iniziale.
+     */
+	public void reset(TypeDescriptor resType) {
+		simboli.clear();
+		prossimoRegistro = 'a';
 		this.resType = resType;
 	}
 
@@ -57,38 +94,40 @@ public class TypeCheckingVisitor implements IVisitor {
 	}
 	/**
      * Controlla se l'identificatore è presente nella Symbol Table.
-     * Se presente, collega l'entry della tabella al nodo per utilizzi futuri.
+     * Se presente, lega il nodo al suo slot e ai suoi attributi ({@link NodeId#bind(int, Attributes)}):
+     * e' l'unica ricerca per l'identificatore, le fasi successive leggono il legame.
      * * @param node Il nodo che rappresenta l'identificatore.
      */
     @Override
 	public void visit(NodeId node) {
-		Attributes lookup = SymbolTable.lookup(node.getName());
-		if(lookup!=null) {
-			node.setEntry(lookup);
-			if(lookup.getTipo()==LangType.INT) {
-				resType= new TypeDescriptor(TipoTD.INT);
-			}else {
-				resType = new TypeDescriptor(TipoTD.FLOAT);
-			}	
+		int slot = simboli.slot(node.getSym(), node.getName());
+		if(slot >= 0) {
+			node.bind(slot, simboli.getAttributes(slot));
+			resType = TypeDescriptor.of(simboli.getTipo(slot));
 		}
 		else
 		{
-			resType = new TypeDescriptor(TipoTD.ERROR,"Errore semantico: variabile '"+node.getName() + "' non dichiarata");
+			node.bind(-1, null);
+			resType = new TypeDescriptor(TipoTD.ERROR,"Errore semantico: variabile '"+node.getName() + "' non dichiarata" + Span.descrivi(node.getSpan()));
 		}
 	}
     /**
      * Gestisce la dichiarazione di una variabile. 
      * Verifica la doppia dichiarazione, assegna un registro e, se presente, 
      * valida il tipo dell'espressione di inizializzazione.
+     * L'identificatore dichiarato viene legato al nuovo slot.
      * * @param node Il nodo di dichiarazione.
      */
     @Override
 	public void visit(NodeDecl node) {
-		Attributes attr = new Attributes(node.getType(),prossimoRegistro++);
-		if(!SymbolTable.enter(node.getId().getName(), attr)) {
-			resType = new TypeDescriptor(TipoTD.ERROR,"Errore: variabile gia' creata");
+		NodeId id = node.getId();
+		int slot = simboli.add(id.getSym(), id.getName(), node.getType(), prossimoRegistro++);
+		if(slot < 0) {
+			id.bind(-1, null);
+			resType = new TypeDescriptor(TipoTD.ERROR,"Errore: variabile gia' creata" + Span.descrivi(node.getSpan()));
 			return;
 		}
+		id.bind(slot, simboli.getAttributes(slot));
 		//Controllo eventuale inizializzazione
 		if(node.getInit() != null) {
 			//parte sinistra
@@ -98,15 +137,15 @@ public class TypeCheckingVisitor implements IVisitor {
 				resType=initType;
 				return;
 			}
-			TypeDescriptor declType= new TypeDescriptor(node.getType()==LangType.INT ? TipoTD.INT : TipoTD.FLOAT);
+			TypeDescriptor declType= TypeDescriptor.of(node.getType());
 			
 			if (!declType.compatible(initType)) {
-                resType = new TypeDescriptor(TipoTD.ERROR, "Errore: Tipi incompatibili nell'inizializzazione di " + node.getId().getName());
+                resType = new TypeDescriptor(TipoTD.ERROR, "Errore: Tipi incompatibili nell'inizializzazione di " + node.getId().getName() + Span.descrivi(node.getSpan()));
             } else {
-                resType = new TypeDescriptor(TipoTD.OK);
+                resType = TypeDescriptor.OK;
             }
 		}else {
-			resType = new TypeDescriptor(TipoTD.OK);
+			resType = TypeDescriptor.OK;
 		}
 	}
 	
@@ -118,7 +157,7 @@ public class TypeCheckingVisitor implements IVisitor {
 	public void visit(NodePrint node) {
 		node.getId().accept(this);
 		if(!resType.isError()) {
-			resType= new TypeDescriptor(TipoTD.OK);
+			resType= TypeDescriptor.OK;
 		}
 	}
 	
@@ -146,9 +185,9 @@ public class TypeCheckingVisitor implements IVisitor {
 		}
 		
 		if(idType.compatible(expType)) 
-			resType = new TypeDescriptor(TipoTD.OK);
+			resType = TypeDescriptor.OK;
 		else
-			resType = new TypeDescriptor(TipoTD.ERROR,"Errore tipi incompatibili");
+			resType = new TypeDescriptor(TipoTD.ERROR,"Errore tipi incompatibili" + Span.descrivi(node.getSpan()));
 		
 	}
     /**
@@ -157,7 +196,7 @@ public class TypeCheckingVisitor implements IVisitor {
      */
     @Override
 	public void visit(NodeCost node) {
-		resType = new TypeDescriptor(node.getType() == LangType.INT ? TipoTD.INT : TipoTD.FLOAT);
+		resType = TypeDescriptor.of(node.getType());
 	}
     /**
      * Gestisce il recupero del valore di una variabile (dereferenziazione).
@@ -172,26 +211,36 @@ public class TypeCheckingVisitor implements IVisitor {
      * Determina il tipo risultante in base agli operandi: se almeno uno è FLOAT, 
      * il risultato è FLOAT. Gestisce inoltre la specializzazione dell'operatore 
      * di divisione per virgola mobile (DIV_FLOAT).
-     * * 
+     * <p>L'albero delle operazioni viene visitato in ordine posticipato con {@link OrdinePosticipato},
+     * non con la ricorsione: una catena di migliaia di operatori non esaurisce lo stack.
+     * Solo le foglie (costanti e variabili) vengono visitate con {@code accept}; il primo
+     * errore, da sinistra a destra, interrompe la visita.</p>
      * * @param node Il nodo dell'operazione binaria.
      */
     @Override
 	public void visit(NodeBinOp node) {
-		node.getLeft().accept(this);
-		TypeDescriptor leftTD= resType;
-		if(leftTD.isError()) {
-		    resType = leftTD;
-		    return;
-		}
-		
-		node.getRight().accept(this);
-		TypeDescriptor rightTD = resType;
-		if(rightTD.isError()) {
-		    resType = rightTD;
-		    return;
+		// dopo un errore la pila dei tipi puo' essere rimasta piena
+		tipi.clear();
+		ordine.inizia(node);
+		for (NodeExpr e; (e = ordine.prossimo()) != null;) {
+			if (e instanceof NodeBinOp op) {
+				TypeDescriptor rightTD = tipi.pop();
+				TypeDescriptor leftTD = tipi.pop();
+				combina(op, leftTD, rightTD);
+			} else {
+				e.accept(this);
+				if (resType.isError())
+					return;
+			}
+			tipi.push(resType);
 		}
+	}
+	/**
+	 * Calcola il tipo di un'operazione dai tipi, gia' corretti, dei suoi operandi.
+	 */
+	private void combina(NodeBinOp node, TypeDescriptor leftTD, TypeDescriptor rightTD) {
 		if(leftTD.getTipo() == TipoTD.FLOAT || rightTD.getTipo() == TipoTD.FLOAT) {
-			resType = new TypeDescriptor(TipoTD.FLOAT);
+			resType = TypeDescriptor.FLOAT;
 			
 			
 			if (node.getOp() == LangOper.DIVIDE) {
@@ -199,7 +248,7 @@ public class TypeCheckingVisitor implements IVisitor {
             }
 		}
 		else {
-			resType = new TypeDescriptor(TipoTD.INT);
+			resType = TypeDescriptor.INT;
 		}
 	}
 	
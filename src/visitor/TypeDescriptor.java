@@ -1,4 +1,6 @@
 package visitor;
+
+import ast.LangType;
 /**
  * La classe {@code TypeDescriptor} rappresenta il descrittore di tipo utilizzato durante 
  * la fase di analisi semantica (Type Checking) del compilatore.
@@ -6,19 +8,32 @@ package visitor;
  * Viene utilizzata per verificare la correttezza dei tipi nelle espressioni, 
  * nelle dichiarazioni e negli assegnamenti, gestendo anche la propagazione dei messaggi di errore.
  * </p>
+ * <p>
+ * I descrittori sono immutabili: i tipi corretti sono rappresentati dalle istanze condivise
+ * {@link #INT}, {@link #FLOAT} e {@link #OK}, cosi' che il controllo dei tipi non allochi
+ * nulla per i nodi corretti; un descrittore {@code ERROR} viene creato solo quando un errore
+ * viene effettivamente rilevato.
+ * </p>
  * * 
  */
 public class TypeDescriptor {
+	/** Descrittore condiviso di un'espressione intera. */
+	public static final TypeDescriptor INT = new TypeDescriptor(TipoTD.INT);
+	/** Descrittore condiviso di un'espressione float. */
+	public static final TypeDescriptor FLOAT = new TypeDescriptor(TipoTD.FLOAT);
+	/** Descrittore condiviso di uno statement corretto. */
+	public static final TypeDescriptor OK = new TypeDescriptor(TipoTD.OK);
+
 	/** Il tipo atomico rappresentato da questo descrittore (INT, FLOAT, OK, ERROR). */
 	private final TipoTD tipo;
 	/** Messaggio di errore associato, valorizzato solo se il tipo è {@code TipoTD.ERROR}. */
-	private String msg;
+	private final String msg;
 	/**
      * Costruisce un descrittore di tipo standard (INT, FLOAT o OK).
      * * @param tipo Il {@link TipoTD} da assegnare al descrittore.
      */
 	public TypeDescriptor(TipoTD tipo) {
-		this.tipo=tipo;
+		this(tipo, null);
 	}
 	/**
      * Costruisce un descrittore di tipo per rappresentare un errore semantico.
@@ -30,6 +45,14 @@ public class TypeDescriptor {
 		this.msg = msg;
 	}
 	/**
+     * Restituisce il descrittore condiviso del tipo di una variabile o di una costante.
+     * * @param tipo Il tipo del linguaggio.
+     * @return {@link #INT} o {@link #FLOAT}.
+     */
+	public static TypeDescriptor of(LangType tipo) {
+		return tipo == LangType.INT ? INT : FLOAT;
+	}
+	/**
      * Restituisce il tipo atomico del descrittore.
      * * @return l'enum {@link TipoTD} associato.
      */